@@ -0,0 +1,22 @@
+package com.redhat.dsevosty.jmh;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/*
+  Main class of target/benchmarks.jar. Takes usual JMH command line options and always
+  adds the gc profiler, so every result has allocation rate (gc.alloc.rate.norm, B/op) next to throughput.
+    java -jar target/benchmarks.jar ModelBenchmark -rf json -rff model.json
+*/
+
+public class BenchmarkRunner {
+
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        CommandLineOptions cmd = new CommandLineOptions(args);
+        new Runner(new OptionsBuilder().parent(cmd).addProfiler(GCProfiler.class).build()).run();
+    }
+}
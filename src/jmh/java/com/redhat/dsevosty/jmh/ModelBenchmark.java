@@ -0,0 +1,98 @@
+package com.redhat.dsevosty.jmh;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.redhat.dsevosty.backend.account.model.AccountDataObject;
+import com.redhat.dsevosty.common.AccountStatusCode;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.Json;
+import io.vertx.core.json.JsonObject;
+
+/*
+  Construction, JSON conversion, request body parsing and toString of AccountDataObject.
+*/
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ModelBenchmark {
+
+    private AccountDataObject ado;
+    private JsonObject json;
+    private String id;
+    private byte[] body;
+
+    @Setup
+    public void setUp() {
+        ado = new AccountDataObject(UUID.randomUUID(), "40817810000000000001", "RUB", false,
+                new BigDecimal("1234567.89"));
+        ado.setStatus(AccountStatusCode.ACTIVE.name());
+        ado.setVersion();
+        json = ado.toJson();
+        id = ado.getId().toString();
+        body = json.encode().getBytes(StandardCharsets.UTF_8);
+    }
+
+    // POST body the way CommonHttpAdapter read it before the streaming path
+    @Benchmark
+    public AccountDataObject fromBodyViaJsonObject() {
+        return new AccountDataObject(Buffer.buffer(body).toJsonObject());
+    }
+
+    @Benchmark
+    public AccountDataObject fromBodyViaJsonParser() throws IOException {
+        try (JsonParser parser = Json.mapper.getFactory().createParser(body)) {
+            return new AccountDataObject(parser);
+        }
+    }
+
+    @Benchmark
+    public AccountDataObject fromJson() {
+        return new AccountDataObject(json);
+    }
+
+    @Benchmark
+    public JsonObject toJson() {
+        return ado.toJson();
+    }
+
+    @Benchmark
+    public String encode() {
+        return json.encode();
+    }
+
+    @Benchmark
+    public String encodePrettily() {
+        return json.encodePrettily();
+    }
+
+    @Benchmark
+    public String toStringAbstract() {
+        return ado.toStringAbstract();
+    }
+
+    @Benchmark
+    public UUID uuidFromString() {
+        return UUID.fromString(id);
+    }
+}
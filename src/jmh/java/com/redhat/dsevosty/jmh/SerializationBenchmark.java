@@ -0,0 +1,80 @@
+package com.redhat.dsevosty.jmh;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.math.BigDecimal;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import com.redhat.dsevosty.backend.account.model.AccountDataObject;
+import com.redhat.dsevosty.backend.account.model.AccountDataObjectExternalizer;
+import com.redhat.dsevosty.common.AccountStatusCode;
+import com.redhat.dsevosty.common.marshall.DataObjectMarshaller;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/*
+  Java serialization of AccountDataObject against DataObjectMarshaller used for Hot Rod.
+*/
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SerializationBenchmark {
+
+    private AccountDataObject ado;
+    private DataObjectMarshaller marshaller;
+    private byte[] javaBytes;
+    private byte[] marshalledBytes;
+
+    @Setup
+    public void setUp() throws Exception {
+        ado = new AccountDataObject(UUID.randomUUID(), "40817810000000000001", "RUB", false,
+                new BigDecimal("1234567.89"));
+        ado.setStatus(AccountStatusCode.ACTIVE.name());
+        ado.setVersion();
+        marshaller = new DataObjectMarshaller().register(new AccountDataObjectExternalizer());
+        javaBytes = javaSerialize();
+        marshalledBytes = marshal();
+    }
+
+    @Benchmark
+    public byte[] javaSerialize() throws IOException {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream(1024);
+        ObjectOutputStream out = new ObjectOutputStream(baos);
+        out.writeObject(ado);
+        out.close();
+        return baos.toByteArray();
+    }
+
+    @Benchmark
+    public Object javaDeserialize() throws IOException, ClassNotFoundException {
+        ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(javaBytes));
+        return in.readObject();
+    }
+
+    @Benchmark
+    public byte[] marshal() throws IOException, InterruptedException {
+        return marshaller.objectToByteBuffer(ado);
+    }
+
+    @Benchmark
+    public Object unmarshal() throws IOException, ClassNotFoundException {
+        return marshaller.objectFromByteBuffer(marshalledBytes);
+    }
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright (c) 2014 Red Hat, Inc. and others
+ *
+ * Red Hat licenses this file to you under the Apache License, version 2.0
+ * (the "License"); you may not use this file except in compliance with the
+ * License.  You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.redhat.dsevosty.backend.account.model;
+
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.json.JsonArray;
+
+/**
+ * Converter for {@link com.redhat.dsevosty.backend.account.model.AccountDataObject}.
+ *
+ * NOTE: This class has been automatically generated from the {@link com.redhat.dsevosty.backend.account.model.AccountDataObject} original class using Vert.x codegen.
+ */
+public class AccountDataObjectConverter {
+
+  public static void fromJson(JsonObject json, AccountDataObject obj) {
+    if (json.getValue("credit") instanceof Boolean) {
+      obj.setCredit((Boolean)json.getValue("credit"));
+    }
+    if (json.getValue("currencyISO4217") instanceof String) {
+      obj.setCurrencyISO4217((String)json.getValue("currencyISO4217"));
+    }
+    if (json.getValue("number") instanceof String) {
+      obj.setNumber((String)json.getValue("number"));
+    }
+    if (json.getValue("status") instanceof String) {
+      obj.setStatus((String)json.getValue("status"));
+    }
+  }
+
+  public static void toJson(AccountDataObject obj, JsonObject json) {
+    json.put("credit", obj.isCredit());
+    if (obj.getCurrencyISO4217() != null) {
+      json.put("currencyISO4217", obj.getCurrencyISO4217());
+    }
+    if (obj.getNumber() != null) {
+      json.put("number", obj.getNumber());
+    }
+    if (obj.getStatus() != null) {
+      json.put("status", obj.getStatus());
+    }
+  }
+}
\ No newline at end of file
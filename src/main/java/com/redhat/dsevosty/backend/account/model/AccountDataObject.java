@@ -1,16 +1,24 @@
 package com.redhat.dsevosty.backend.account.model;
 
+import java.io.IOException;
 import java.math.BigDecimal;
 import java.util.Objects;
 import java.util.UUID;
 
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.redhat.dsevosty.common.AccountStatusCode;
 import com.redhat.dsevosty.common.CurrencyCode;
 import com.redhat.dsevosty.common.model.AbstractDataObject;
+import com.redhat.dsevosty.common.model.Money;
 import com.redhat.dsevosty.common.model.Versionable;
 
+import io.vertx.codegen.annotations.DataObject;
+import io.vertx.codegen.annotations.GenIgnore;
 import io.vertx.core.json.JsonObject;
 
+@DataObject(generateConverter = true)
 public class AccountDataObject implements AbstractDataObject, Versionable {
 
     private static final long serialVersionUID = AccountDataObject.class.hashCode();
@@ -19,7 +27,8 @@ public class AccountDataObject implements AbstractDataObject, Versionable {
     private String number;
     private String currencyISO4217;
     private boolean credit;
-    private BigDecimal amount;
+    // minor units in the scale of the currency
+    private long amount;
     private String status;
     private UUID metaId;
     private UUID version;
@@ -29,7 +38,7 @@ public class AccountDataObject implements AbstractDataObject, Versionable {
         currencyISO4217 = CurrencyCode.RUB.name();
         number = "ААААА-BBB-C-DDDD-EEEEEEE";
         credit = false;
-        amount = new BigDecimal("0.00");
+        amount = 0;
         status = AccountStatusCode.CREATED.name();
         metaId = null;
         this.version = null;
@@ -51,45 +60,104 @@ public class AccountDataObject implements AbstractDataObject, Versionable {
         this.number = number;
         this.currencyISO4217 = currencyISO4217;
         this.credit = credit;
-        this.amount = amount;
+        setAmount(amount);
         this.status = AccountStatusCode.CREATED.name();
         this.metaId = null;
         this.version = null;
     }
 
+    AccountDataObject(UUID id, String number, String currencyISO4217, boolean credit, long amount,
+            String status, UUID metaId, UUID version) {
+        this.id = id;
+        this.number = number;
+        this.currencyISO4217 = currencyISO4217;
+        this.credit = credit;
+        this.amount = amount;
+        this.status = status;
+        this.metaId = metaId;
+        this.version = version;
+    }
+
+    /*
+      JSON native properties go through the generated AccountDataObjectConverter,
+      UUID and the amount are not mapped by vertx-codegen 3.5 and are converted here, the amount
+      after the currency, whose scale it takes.
+    */
     public AccountDataObject(JsonObject json) {
-        String val;
-        val = json.getString("id");
-        if (val != null) {
-            id = UUID.fromString(val);
-        }
-        val = json.getString("number");
-        if (val != null) {
-            number = val;
-        }
-        val = json.getString("currencyISO4217");
-        if (val != null) {
-            currencyISO4217 = val;
+        AccountDataObjectConverter.fromJson(json, this);
+        id = uuidFromJson(json, "id");
+        amount = amountFromJson(json, "amount", getScale());
+        metaId = uuidFromJson(json, "metaId");
+        version = uuidFromJson(json, "version");
+    }
+
+    /*
+      Reads one JSON object token by token, straight from the request body without a JsonObject
+      in between. Field handling follows AccountDataObjectConverter, values of unexpected type are skipped.
+      Amount is converted at the end, when the currency is known whatever the field order.
+    */
+    public AccountDataObject(JsonParser parser) throws IOException {
+        String amountText = null;
+        if (parser.currentToken() == null) {
+            parser.nextToken();
         }
-        credit = Boolean.getBoolean(val);
-        val = json.getString("amount");
-        if (val != null) {
-            amount = new BigDecimal(val);
+        if (parser.currentToken() != JsonToken.START_OBJECT) {
+            throw new JsonParseException(parser, "Expected JSON object, got " + parser.currentToken());
         }
-        val = json.getString("status");
-        if (val != null) {
-            status = val;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            final String name = parser.getCurrentName();
+            final JsonToken token = parser.nextToken();
+            if (token == JsonToken.VALUE_STRING) {
+                switch (name) {
+                case "id":
+                    id = UUID.fromString(parser.getText());
+                    break;
+                case "number":
+                    number = parser.getText();
+                    break;
+                case "currencyISO4217":
+                    currencyISO4217 = parser.getText();
+                    break;
+                case "amount":
+                    amountText = parser.getText();
+                    break;
+                case "status":
+                    status = parser.getText();
+                    break;
+                case "metaId":
+                    metaId = UUID.fromString(parser.getText());
+                    break;
+                case "version":
+                    version = UUID.fromString(parser.getText());
+                    break;
+                default:
+                }
+            } else if (token.isBoolean() && name.equals("credit")) {
+                credit = parser.getBooleanValue();
+            } else if (token.isNumeric() && name.equals("amount")) {
+                amountText = parser.getText();
+            } else {
+                parser.skipChildren();
+            }
         }
-        val = json.getString("metaId");
-        if (val != null) {
-            metaId = UUID.fromString(val);
+        if (parser.currentToken() != JsonToken.END_OBJECT) {
+            throw new JsonParseException(parser, "Unexpected end of JSON object");
         }
-        val = json.getString("version");
-        if (val != null) {
-            version = UUID.fromString(val);
+        if (amountText != null) {
+            amount = Money.parse(amountText, getScale());
         }
     }
 
+    private static UUID uuidFromJson(JsonObject json, String name) {
+        final Object val = json.getValue(name);
+        return val instanceof String ? UUID.fromString((String) val) : null;
+    }
+
+    private static long amountFromJson(JsonObject json, String name, int scale) {
+        final Object val = json.getValue(name);
+        return val instanceof String || val instanceof Number ? Money.parse(val.toString(), scale) : 0;
+    }
+
     @Override
     public UUID getId() {
         if (id == null) {
@@ -98,6 +166,11 @@ public class AccountDataObject implements AbstractDataObject, Versionable {
         return id;
     }
 
+    @Override
+    public boolean hasId() {
+        return id != null;
+    }
+
     public void setId(UUID id) {
         this.id = id;
     }
@@ -114,7 +187,9 @@ public class AccountDataObject implements AbstractDataObject, Versionable {
         return currencyISO4217;
     }
 
+    // Amount keeps its value in the scale of the new currency, ArithmeticException when it does not fit
     public void setCurrencyISO4217(String currencyISO4217) {
+        amount = Money.rescale(amount, getScale(), scaleOf(currencyISO4217));
         this.currencyISO4217 = currencyISO4217;
     }
 
@@ -127,13 +202,34 @@ public class AccountDataObject implements AbstractDataObject, Versionable {
     }
 
     public BigDecimal getAmount() {
-        return amount;
+        return BigDecimal.valueOf(amount, getScale());
     }
 
+    // null is zero, IllegalArgumentException when amount has more fraction digits than the currency
     public void setAmount(BigDecimal amount) {
+        this.amount = amount == null ? 0 : Money.toMinorUnits(amount, getScale());
+    }
+
+    @GenIgnore
+    public long getMinorUnits() {
+        return amount;
+    }
+
+    @GenIgnore
+    public void setMinorUnits(long amount) {
         this.amount = amount;
     }
 
+    // Fraction digits of the amount, Money.DEFAULT_SCALE for a currency that is not a CurrencyCode
+    @GenIgnore
+    public int getScale() {
+        return scaleOf(currencyISO4217);
+    }
+
+    private static int scaleOf(String currencyISO4217) {
+        return Money.scaleOf(CurrencyCode.of(currencyISO4217));
+    }
+
     public String getStatus() {
         return status;
     }
@@ -153,12 +249,9 @@ public class AccountDataObject implements AbstractDataObject, Versionable {
     @Override
     public JsonObject toJson() {
         JsonObject json = new JsonObject();
-        json.put("id", id.toString());
-        json.put("number", number);
-        json.put("currencyISO4217", currencyISO4217);
-        json.put("credit", credit);
-        json.put("amount", amount.toString());
-        json.put("status", status);
+        json.put("id", getId().toString());
+        AccountDataObjectConverter.toJson(this, json);
+        json.put("amount", Money.format(amount, getScale()));
         if (metaId != null) {
             json.put("metaId", metaId.toString());
         }
@@ -189,7 +282,7 @@ public class AccountDataObject implements AbstractDataObject, Versionable {
             return false;
         }
         AccountDataObject other = (AccountDataObject) o;
-        return Objects.equals(getId(), other.getId()) && Objects.equals(getAmount(), other.getAmount())
+        return Objects.equals(getId(), other.getId()) && getMinorUnits() == other.getMinorUnits()
                 && Objects.equals(getCurrencyISO4217(), other.getCurrencyISO4217())
                 && Objects.equals(getNumber(), other.getNumber());
     }
@@ -213,6 +306,7 @@ public class AccountDataObject implements AbstractDataObject, Versionable {
     }
 
     @Override
+    @GenIgnore
     public boolean isVersionSet() {
         return version != null;
     }
@@ -232,6 +326,22 @@ public class AccountDataObject implements AbstractDataObject, Versionable {
         return version.toString();
     }
 
+    // Copy with another amount and a new version, this one is left as is
+    public AccountDataObject withAmount(BigDecimal amount) {
+        return withMinorUnits(Money.toMinorUnits(amount, getScale()));
+    }
+
+    public AccountDataObject withMinorUnits(long amount) {
+        final AccountDataObject changed = new AccountDataObject(id, number, currencyISO4217, credit, amount, status,
+                metaId, null);
+        changed.setVersion();
+        return changed;
+    }
+
+    UUID getVersion() {
+        return version;
+    }
+
     // protected synchronized void setVersion(UUID version) {
     //     this.version = version;
     // }
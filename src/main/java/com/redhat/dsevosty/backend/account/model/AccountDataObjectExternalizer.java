@@ -0,0 +1,98 @@
+package com.redhat.dsevosty.backend.account.model;
+
+import static com.redhat.dsevosty.common.marshall.DataObjectExternalizer.readUUID;
+import static com.redhat.dsevosty.common.marshall.DataObjectExternalizer.readUnscaled;
+import static com.redhat.dsevosty.common.marshall.DataObjectExternalizer.writeUUID;
+import static com.redhat.dsevosty.common.marshall.DataObjectExternalizer.writeUnscaled;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.UUID;
+
+import com.redhat.dsevosty.common.CurrencyCode;
+import com.redhat.dsevosty.common.marshall.DataObjectExternalizer;
+import com.redhat.dsevosty.common.model.Money;
+
+/*
+  Amount is stored in the layout of writeBigDecimal, so entries written while it was a BigDecimal are
+  read as is. Amount of such an entry that does not fit minor units of its currency fails the read.
+*/
+
+public class AccountDataObjectExternalizer implements DataObjectExternalizer<AccountDataObject> {
+
+    public static final int TYPE_ID = 1;
+
+    private static final int HAS_ID = 1;
+    private static final int HAS_NUMBER = 1 << 1;
+    private static final int HAS_CURRENCY = 1 << 2;
+    private static final int CREDIT = 1 << 3;
+    private static final int HAS_AMOUNT = 1 << 4;
+    private static final int HAS_STATUS = 1 << 5;
+    private static final int HAS_META_ID = 1 << 6;
+    private static final int HAS_VERSION = 1 << 7;
+
+    @Override
+    public int getTypeId() {
+        return TYPE_ID;
+    }
+
+    @Override
+    public Class<AccountDataObject> getDataObjectClass() {
+        return AccountDataObject.class;
+    }
+
+    @Override
+    public void writeObject(DataOutput out, AccountDataObject o) throws IOException {
+        final UUID id = o.getId();
+        final String number = o.getNumber();
+        final String currency = o.getCurrencyISO4217();
+        final String status = o.getStatus();
+        final UUID metaId = o.getMetaId();
+        final UUID version = o.getVersion();
+        int flags = 0;
+        flags |= id != null ? HAS_ID : 0;
+        flags |= number != null ? HAS_NUMBER : 0;
+        flags |= currency != null ? HAS_CURRENCY : 0;
+        flags |= o.isCredit() ? CREDIT : 0;
+        flags |= HAS_AMOUNT;
+        flags |= status != null ? HAS_STATUS : 0;
+        flags |= metaId != null ? HAS_META_ID : 0;
+        flags |= version != null ? HAS_VERSION : 0;
+        out.writeByte(flags);
+        if (id != null) {
+            writeUUID(out, id);
+        }
+        if (number != null) {
+            out.writeUTF(number);
+        }
+        if (currency != null) {
+            out.writeUTF(currency);
+        }
+        writeUnscaled(out, o.getMinorUnits(), o.getScale());
+        if (status != null) {
+            out.writeUTF(status);
+        }
+        if (metaId != null) {
+            writeUUID(out, metaId);
+        }
+        if (version != null) {
+            writeUUID(out, version);
+        }
+    }
+
+    @Override
+    public AccountDataObject readObject(DataInput in) throws IOException {
+        final int flags = in.readUnsignedByte();
+        final UUID id = (flags & HAS_ID) != 0 ? readUUID(in) : null;
+        final String number = (flags & HAS_NUMBER) != 0 ? in.readUTF() : null;
+        final String currency = (flags & HAS_CURRENCY) != 0 ? in.readUTF() : null;
+        final boolean credit = (flags & CREDIT) != 0;
+        final long amount = (flags & HAS_AMOUNT) != 0 ? readUnscaled(in, Money.scaleOf(CurrencyCode.of(currency)))
+                : 0;
+        final String status = (flags & HAS_STATUS) != 0 ? in.readUTF() : null;
+        final UUID metaId = (flags & HAS_META_ID) != 0 ? readUUID(in) : null;
+        final UUID version = (flags & HAS_VERSION) != 0 ? readUUID(in) : null;
+        return new AccountDataObject(id, number, currency, credit, amount, status, metaId, version);
+    }
+}
@@ -0,0 +1,91 @@
+package com.redhat.dsevosty.backend.account.svc;
+
+import java.math.BigDecimal;
+import java.util.Map;
+import java.util.TreeMap;
+
+import com.redhat.dsevosty.backend.account.model.AccountDataObject;
+import com.redhat.dsevosty.common.model.AbstractDataObject;
+import com.redhat.dsevosty.common.model.Money;
+import com.redhat.dsevosty.common.svc.Aggregation;
+
+import io.vertx.core.json.JsonObject;
+
+/*
+  Total balance per currency and number of accounts per status.
+  Balance is the sum of amounts in minor units, sent as string like the amount itself.
+*/
+
+class AccountAggregation implements Aggregation {
+
+    // goes on as BigDecimal once the sum no longer fits a long
+    private static class Balance {
+        private final int scale;
+        private long minorUnits;
+        private BigDecimal overflow;
+
+        private Balance(int scale) {
+            this.scale = scale;
+        }
+
+        private void add(long amount) {
+            if (overflow == null) {
+                try {
+                    minorUnits = Math.addExact(minorUnits, amount);
+                    return;
+                } catch (ArithmeticException e) {
+                    overflow = BigDecimal.valueOf(minorUnits, scale);
+                }
+            }
+            overflow = overflow.add(BigDecimal.valueOf(amount, scale));
+        }
+
+        private void add(Balance other) {
+            if (other.overflow == null) {
+                add(other.minorUnits);
+                return;
+            }
+            overflow = (overflow == null ? BigDecimal.valueOf(minorUnits, scale) : overflow).add(other.overflow);
+        }
+
+        @Override
+        public String toString() {
+            return overflow == null ? Money.format(minorUnits, scale) : overflow.toPlainString();
+        }
+    }
+
+    private final Map<String, Balance> balanceByCurrency = new TreeMap<String, Balance>();
+    private final Map<String, Long> countByStatus = new TreeMap<String, Long>();
+    private long accounts;
+
+    @Override
+    public void accumulate(AbstractDataObject ado) {
+        if (ado instanceof AccountDataObject == false) {
+            return;
+        }
+        final AccountDataObject account = (AccountDataObject) ado;
+        accounts++;
+        balanceByCurrency.computeIfAbsent(String.valueOf(account.getCurrencyISO4217()),
+                currency -> new Balance(account.getScale())).add(account.getMinorUnits());
+        countByStatus.merge(String.valueOf(account.getStatus()), 1L, Long::sum);
+    }
+
+    @Override
+    public void merge(Aggregation other) {
+        final AccountAggregation partial = (AccountAggregation) other;
+        accounts += partial.accounts;
+        partial.balanceByCurrency.forEach((currency, balance) -> balanceByCurrency
+                .computeIfAbsent(currency, c -> new Balance(balance.scale)).add(balance));
+        partial.countByStatus.forEach((status, count) -> countByStatus.merge(status, count, Long::sum));
+    }
+
+    @Override
+    public JsonObject toJson() {
+        JsonObject balances = new JsonObject();
+        balanceByCurrency.forEach((currency, balance) -> balances.put(currency, balance.toString()));
+        JsonObject counts = new JsonObject();
+        countByStatus.forEach(counts::put);
+        return new JsonObject().put("accounts", accounts).put("balanceByCurrency", balances).put("countByStatus",
+                counts);
+    }
+}
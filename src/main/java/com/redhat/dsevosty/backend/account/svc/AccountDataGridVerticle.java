@@ -1,24 +1,135 @@
 package com.redhat.dsevosty.backend.account.svc;
 
+import static com.redhat.dsevosty.common.ServiceConstant.SERVICE_JDG_TRANSFER_BATCH_SIZE;
+import static com.redhat.dsevosty.common.ServiceConstant.SERVICE_JDG_TRANSFER_BATCH_WINDOW;
+import static com.redhat.dsevosty.common.ServiceConstant.SERVICE_JDG_TRANSFER_JOURNAL_CACHE;
+import static com.redhat.dsevosty.common.ServiceConstant.SERVICE_NAMESPACE;
+
+import java.util.Collections;
+import java.util.UUID;
+
 import com.redhat.dsevosty.backend.account.model.AccountDataObject;
+import com.redhat.dsevosty.backend.account.model.AccountDataObjectExternalizer;
+import com.redhat.dsevosty.common.AccountStatusCode;
+import com.redhat.dsevosty.common.CurrencyCode;
+import com.redhat.dsevosty.common.marshall.DataObjectMarshaller;
 import com.redhat.dsevosty.common.model.AbstractDataObject;
+import com.redhat.dsevosty.common.model.DataGridReply;
+import com.redhat.dsevosty.common.model.DataGridRequest;
+import com.redhat.dsevosty.common.model.Money;
+import com.redhat.dsevosty.common.svc.Aggregation;
 import com.redhat.dsevosty.common.svc.DataGridVerticle;
 
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Handler;
 import io.vertx.core.eventbus.Message;
+import io.vertx.core.eventbus.ReplyException;
 import io.vertx.core.json.JsonObject;
+import io.vertx.core.logging.Logger;
+import io.vertx.core.logging.LoggerFactory;
 
 public class AccountDataGridVerticle extends DataGridVerticle {
 
+  private static final Logger LOGGER = LoggerFactory.getLogger(AccountDataGridVerticle.class);
+
   public static final String PACKAGE_NAME = AccountDataGridVerticle.class.getPackage().getName();
   public static final String ARTIFACT_ID = "account";
 
+  private String transferJournalCacheName;
+  private TransferBatcher transfers;
+
+  @Override
+  protected String initConfiguration() {
+    final JsonObject vertxConfig = config();
+    transferJournalCacheName = vertxConfig.getString(SERVICE_JDG_TRANSFER_JOURNAL_CACHE.key,
+        SERVICE_JDG_TRANSFER_JOURNAL_CACHE.value);
+    if (transferJournalCacheName.equals("")) {
+      transferJournalCacheName = vertxConfig.getString(SERVICE_NAMESPACE.key, "") + "-transfers";
+    }
+    final long window = Long.valueOf(
+        vertxConfig.getString(SERVICE_JDG_TRANSFER_BATCH_WINDOW.key, SERVICE_JDG_TRANSFER_BATCH_WINDOW.value));
+    final int size = Integer
+        .valueOf(vertxConfig.getString(SERVICE_JDG_TRANSFER_BATCH_SIZE.key, SERVICE_JDG_TRANSFER_BATCH_SIZE.value));
+    transfers = new TransferBatcher(vertx, this::modifyDataObject, () -> getRemoteCache(transferJournalCacheName),
+        window, size);
+    LOGGER.info("Transfers are journaled in {}, batched for {} ms or {} transfers", transferJournalCacheName, window,
+        size);
+    return super.initConfiguration();
+  }
+
   @Override
   protected AbstractDataObject dataObjectFromJson(JsonObject json) {
     return new AccountDataObject(json);
   }
 
-  // public void credit(UUID accountId, Money amount) {
-  // }
+  @Override
+  protected void registerExternalizers(DataObjectMarshaller marshaller) {
+    marshaller.register(new AccountDataObjectExternalizer());
+  }
+
+  // number is read without JSON round trip
+  @Override
+  protected String indexKeyOf(AbstractDataObject ado) {
+    if ("number".equals(getIndexField()) && ado instanceof AccountDataObject) {
+      return ((AccountDataObject) ado).getNumber();
+    }
+    return super.indexKeyOf(ado);
+  }
+
+  // balance per currency, count per status
+  @Override
+  protected Aggregation newAggregation() {
+    return new AccountAggregation();
+  }
+
+  public void credit(UUID accountId, Money amount, Handler<AsyncResult<DataGridReply>> handler) {
+    execute(new DataGridRequest("credit", accountId, amount), handler);
+  }
+
+  public void debit(UUID accountId, Money amount, Handler<AsyncResult<DataGridReply>> handler) {
+    execute(new DataGridRequest("debit", accountId, amount), handler);
+  }
+
+  public void transfer(UUID from, UUID to, Money amount, Handler<AsyncResult<DataGridReply>> handler) {
+    execute(new DataGridRequest("transfer", from, Collections.singletonList(to), amount), handler);
+  }
+
+  // Refuses to change account, currency is the currency of the change and may be null
+  static void checkChangeable(AccountDataObject account, String currency, boolean credit) {
+    if (currency != null && currency.equals(account.getCurrencyISO4217()) == false) {
+      throw new IllegalStateException(
+          "Account " + account.getId() + " is in " + account.getCurrencyISO4217() + ", not " + currency);
+    }
+    final String status = account.getStatus();
+    if (AccountStatusCode.CLOSED.name().equals(status) || AccountStatusCode.BLOCKED.name().equals(status)
+        || (credit == false && AccountStatusCode.FREEZE.name().equals(status))) {
+      throw new IllegalStateException("Account " + account.getId() + " is " + status);
+    }
+  }
+
+  // balance plus change in minor units, only credit accounts may go below zero nor any beyond a long
+  static long checkBalance(AccountDataObject account, long balance, long change) {
+    final long changed;
+    try {
+      changed = Math.addExact(balance, change);
+    } catch (ArithmeticException e) {
+      throw new IllegalStateException("Balance of account " + account.getId() + " would overflow");
+    }
+    if (changed < 0 && account.isCredit() == false) {
+      throw new IllegalStateException("Insufficient funds on account " + account.getId());
+    }
+    return changed;
+  }
+
+  // amount in minor units of the account, refused when it has more fraction digits than the account
+  static long minorUnitsOf(AccountDataObject account, Money amount) {
+    try {
+      return amount.getMinorUnits(account.getScale());
+    } catch (ArithmeticException e) {
+      throw new IllegalStateException("Account " + account.getId() + " can not take it: " + e.getMessage());
+    }
+  }
 
   @Override
   protected String getPackageName() {
@@ -30,9 +141,87 @@ public class AccountDataGridVerticle extends DataGridVerticle {
     return ARTIFACT_ID;
   }
 
+  /*
+    {"id": ..., "amount": "10.00", "currency": "RUB"} for credit and debit,
+    {"from": ..., "to": ..., "amount": "10.00", "currency": "RUB"} for transfer, currency is optional
+  */
+  @Override
+  protected DataGridRequest requestFromJson(String operation, JsonObject json) {
+    if (operation.equalsIgnoreCase("transfer")) {
+      final String from = json.getString("from");
+      final String to = json.getString("to");
+      final String amount = json.getValue("amount") == null ? null : String.valueOf(json.getValue("amount"));
+      if (from == null || to == null || amount == null) {
+        throw new IllegalArgumentException("There is no a from, a to or an amount or it is NULL");
+      }
+      final String currency = json.getString("currency");
+      return new DataGridRequest(operation, UUID.fromString(from), Collections.singletonList(UUID.fromString(to)),
+          Money.parse(amount, currency == null ? null : CurrencyCode.valueOf(currency)));
+    }
+    if (operation.equalsIgnoreCase("credit") || operation.equalsIgnoreCase("debit")) {
+      final String id = json.getString(HTTP_GET_PARAMETER_ID);
+      final String amount = json.getValue("amount") == null ? null : String.valueOf(json.getValue("amount"));
+      if (id == null || amount == null) {
+        throw new IllegalArgumentException("There is no an id or an amount or it is NULL");
+      }
+      final String currency = json.getString("currency");
+      return new DataGridRequest(operation, UUID.fromString(id),
+          Money.parse(amount, currency == null ? null : CurrencyCode.valueOf(currency)));
+    }
+    return super.requestFromJson(operation, json);
+  }
+
   @Override
   protected boolean customEventBusHandler(Message<JsonObject> message, String operation) {
-    return true;
+    final boolean credit = operation.equalsIgnoreCase("credit");
+    final boolean transfer = operation.equalsIgnoreCase("transfer");
+    if (credit == false && transfer == false && operation.equalsIgnoreCase("debit") == false) {
+      return true;
+    }
+    final DataGridRequest request;
+    try {
+      request = requestOf(message, operation);
+    } catch (IllegalArgumentException e) {
+      message.fail(HttpResponseStatus.BAD_REQUEST.code(),
+          "Malformed request for operation " + operation + ": " + e.getMessage());
+      return false;
+    }
+    final Money money = request.getAmount();
+    if (money == null || money.signum() <= 0) {
+      message.fail(HttpResponseStatus.BAD_REQUEST.code(), "Amount of " + operation + " must be positive");
+      return false;
+    }
+    final String currency = money.getCurrency() == null ? null : money.getCurrency().name();
+    if (transfer) {
+      transfer(message, request, money, currency);
+      return false;
+    }
+    // debit may be refused for the lack of funds, so it is never acked before its flush
+    modifyDataObjectBehind(message, request.getId(), ado -> {
+      final AccountDataObject account = (AccountDataObject) ado;
+      checkChangeable(account, currency, credit);
+      final long amount = minorUnitsOf(account, money);
+      return account.withMinorUnits(checkBalance(account, account.getMinorUnits(), credit ? amount : -amount));
+    }, credit);
+    return false;
+  }
+
+  private void transfer(Message<JsonObject> message, DataGridRequest request, Money amount, String currency) {
+    final UUID from = request.getId();
+    final UUID to = request.getIds() == null || request.getIds().size() != 1 ? null : request.getIds().get(0);
+    if (from == null || to == null || from.equals(to)) {
+      message.fail(HttpResponseStatus.BAD_REQUEST.code(), "Transfer needs two different accounts");
+      return;
+    }
+    transfers.submit(from, to, amount, currency, ar -> {
+      if (ar.succeeded()) {
+        reply(message, new DataGridReply(HttpResponseStatus.OK.code(), ar.result()));
+        return;
+      }
+      final Throwable t = ar.cause();
+      message.fail(t instanceof ReplyException ? ((ReplyException) t).failureCode()
+          : HttpResponseStatus.INTERNAL_SERVER_ERROR.code(), t.getMessage());
+    });
   }
 
-}
\ No newline at end of file
+}
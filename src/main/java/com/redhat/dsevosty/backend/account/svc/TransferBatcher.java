@@ -0,0 +1,348 @@
+package com.redhat.dsevosty.backend.account.svc;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+
+import com.redhat.dsevosty.backend.account.model.AccountDataObject;
+import com.redhat.dsevosty.common.model.AbstractDataObject;
+import com.redhat.dsevosty.common.model.Money;
+
+import org.infinispan.client.hotrod.RemoteCache;
+
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Context;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.eventbus.ReplyException;
+import io.vertx.core.eventbus.ReplyFailure;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.logging.Logger;
+import io.vertx.core.logging.LoggerFactory;
+
+/*
+  Transfers between two accounts as a journaled two-step change: debit of the source, then credit
+  of the destination, and a compensating credit of the source when the destination refuses.
+  Each step is written to the journal cache before it is taken, a transfer left DEBITED there
+  needs reconciliation. Transfers from one source that arrive within the batch window are applied
+  together: one debit of the source, one credit per destination and one journal write per step.
+  Runs on the context of its verticle.
+*/
+
+class TransferBatcher {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(TransferBatcher.class);
+
+    interface Modifier {
+        void modify(UUID id, UnaryOperator<AbstractDataObject> mutation,
+                Handler<AsyncResult<AbstractDataObject>> handler);
+    }
+
+    enum State {
+        PENDING, DEBITED, COMMITTED, COMPENSATED, FAILED
+    }
+
+    private static class Transfer {
+        private final UUID id = UUID.randomUUID();
+        private final UUID from;
+        private final UUID to;
+        private final Money amount;
+        private final String currency;
+        private final Handler<AsyncResult<JsonObject>> handler;
+        private UUID batch;
+        private State state = State.PENDING;
+        private int failureCode;
+        private String reason;
+        private AccountDataObject credited;
+
+        private Transfer(UUID from, UUID to, Money amount, String currency,
+                Handler<AsyncResult<JsonObject>> handler) {
+            this.from = from;
+            this.to = to;
+            this.amount = amount;
+            this.currency = currency;
+            this.handler = handler;
+        }
+
+        private void fail(State state, HttpResponseStatus status, String reason) {
+            this.state = state;
+            this.failureCode = status.code();
+            this.reason = reason;
+        }
+
+        private JsonObject toJson() {
+            final JsonObject json = new JsonObject().put("id", id.toString()).put("batch", batch.toString())
+                    .put("from", from.toString()).put("to", to.toString()).put("amount", amount.toPlainString())
+                    .put("state", state.name());
+            if (currency != null) {
+                json.put("currency", currency);
+            }
+            if (reason != null) {
+                json.put("reason", reason);
+            }
+            return json;
+        }
+    }
+
+    private final Vertx vertx;
+    private final Modifier modifier;
+    private final Supplier<RemoteCache<UUID, String>> journal;
+    private final long window;
+    private final int maxBatch;
+    // open batches by source account
+    private final Map<UUID, List<Transfer>> open = new HashMap<UUID, List<Transfer>>();
+
+    private long batches;
+    private long transfers;
+
+    TransferBatcher(Vertx vertx, Modifier modifier, Supplier<RemoteCache<UUID, String>> journal, long window,
+            int maxBatch) {
+        this.vertx = vertx;
+        this.modifier = modifier;
+        this.journal = journal;
+        this.window = window;
+        this.maxBatch = maxBatch;
+    }
+
+    /*
+      Result is the journal entry with "fromAccount" and "toAccount" after the transfer.
+      Failure is ReplyException of 422 for a refused transfer, debited and compensated one as well.
+    */
+    void submit(UUID from, UUID to, Money amount, String currency, Handler<AsyncResult<JsonObject>> handler) {
+        final Transfer transfer = new Transfer(from, to, amount, currency, handler);
+        List<Transfer> batch = open.get(from);
+        if (batch == null) {
+            batch = new ArrayList<Transfer>();
+            if (window > 0 && maxBatch > 1) {
+                open.put(from, batch);
+                final List<Transfer> scheduled = batch;
+                vertx.setTimer(window, timer -> {
+                    if (open.get(from) == scheduled) {
+                        open.remove(from);
+                        apply(from, scheduled);
+                    }
+                });
+            }
+        }
+        batch.add(transfer);
+        if (open.get(from) != batch || batch.size() >= maxBatch) {
+            open.remove(from);
+            apply(from, batch);
+        }
+    }
+
+    long getBatches() {
+        return batches;
+    }
+
+    long getTransfers() {
+        return transfers;
+    }
+
+    private void apply(UUID from, List<Transfer> batch) {
+        final Context context = vertx.getOrCreateContext();
+        final UUID id = UUID.randomUUID();
+        batches++;
+        transfers += batch.size();
+        for (Transfer transfer : batch) {
+            transfer.batch = id;
+        }
+        LOGGER.trace("Applying batch {} of {} transfers from {}", id, batch.size(), from);
+        journal(context, batch, pending -> {
+            if (pending.failed()) {
+                LOGGER.error("Could not journal transfer batch {}", pending.cause(), id);
+                for (Transfer transfer : batch) {
+                    transfer.fail(State.FAILED, HttpResponseStatus.INTERNAL_SERVER_ERROR,
+                            "Could not journal transfer: " + pending.cause().getMessage());
+                }
+                reply(batch, null);
+                return;
+            }
+            debit(context, from, batch);
+        });
+    }
+
+    private void debit(Context context, UUID from, List<Transfer> batch) {
+        final List<Transfer> accepted = new ArrayList<Transfer>(batch.size());
+        modifier.modify(from, ado -> {
+            // runs again after a lost race
+            accepted.clear();
+            final AccountDataObject account = (AccountDataObject) ado;
+            long balance = account.getMinorUnits();
+            for (Transfer transfer : batch) {
+                try {
+                    AccountDataGridVerticle.checkChangeable(account, transfer.currency, false);
+                    balance = AccountDataGridVerticle.checkBalance(account, balance,
+                            -AccountDataGridVerticle.minorUnitsOf(account, transfer.amount));
+                    transfer.reason = null;
+                    accepted.add(transfer);
+                } catch (IllegalStateException e) {
+                    transfer.reason = e.getMessage();
+                }
+            }
+            if (accepted.isEmpty()) {
+                throw new IllegalStateException(batch.get(0).reason);
+            }
+            return account.withMinorUnits(balance);
+        }, ar -> {
+            if (ar.failed() || ar.result() == null) {
+                accepted.clear();
+            }
+            for (Transfer transfer : batch) {
+                if (accepted.contains(transfer)) {
+                    transfer.state = State.DEBITED;
+                } else if (ar.succeeded() && ar.result() == null) {
+                    transfer.fail(State.FAILED, HttpResponseStatus.UNPROCESSABLE_ENTITY, "There is no account " + from);
+                } else if (ar.succeeded()
+                        || failureCode(ar.cause()) == HttpResponseStatus.UNPROCESSABLE_ENTITY.code()) {
+                    transfer.fail(State.FAILED, HttpResponseStatus.UNPROCESSABLE_ENTITY, transfer.reason);
+                } else {
+                    transfer.fail(State.FAILED, HttpResponseStatus.valueOf(failureCode(ar.cause())),
+                            ar.cause().getMessage());
+                }
+            }
+            final AccountDataObject debited = (AccountDataObject) (ar.succeeded() ? ar.result() : null);
+            journal(context, batch, journaled -> {
+                if (journaled.failed()) {
+                    LOGGER.warn("Could not journal debit of transfer batch {}", journaled.cause(),
+                            batch.get(0).batch);
+                }
+                final List<Transfer> refused = new ArrayList<Transfer>(batch);
+                refused.removeAll(accepted);
+                reply(refused, debited);
+                if (accepted.isEmpty() == false) {
+                    credit(context, from, debited, accepted);
+                }
+            });
+        });
+    }
+
+    private void credit(Context context, UUID from, AccountDataObject debited, List<Transfer> accepted) {
+        final Map<UUID, List<Transfer>> byDestination = new LinkedHashMap<UUID, List<Transfer>>();
+        for (Transfer transfer : accepted) {
+            byDestination.computeIfAbsent(transfer.to, to -> new ArrayList<Transfer>()).add(transfer);
+        }
+        final int[] remaining = { byDestination.size() };
+        byDestination.forEach((to, group) -> {
+            modifier.modify(to, ado -> {
+                final AccountDataObject account = (AccountDataObject) ado;
+                AccountDataGridVerticle.checkChangeable(account, debited.getCurrencyISO4217(), true);
+                long balance = account.getMinorUnits();
+                for (Transfer transfer : group) {
+                    balance = AccountDataGridVerticle.checkBalance(account, balance,
+                            AccountDataGridVerticle.minorUnitsOf(account, transfer.amount));
+                }
+                return account.withMinorUnits(balance);
+            }, ar -> {
+                for (Transfer transfer : group) {
+                    if (ar.succeeded() && ar.result() != null) {
+                        transfer.state = State.COMMITTED;
+                        transfer.credited = (AccountDataObject) ar.result();
+                    } else if (ar.succeeded()) {
+                        transfer.fail(State.DEBITED, HttpResponseStatus.UNPROCESSABLE_ENTITY,
+                                "There is no account " + to);
+                    } else {
+                        transfer.fail(State.DEBITED, HttpResponseStatus.valueOf(failureCode(ar.cause())),
+                                ar.cause().getMessage());
+                    }
+                }
+                if (--remaining[0] == 0) {
+                    compensate(context, from, debited, accepted);
+                }
+            });
+        });
+    }
+
+    private void compensate(Context context, UUID from, AccountDataObject debited, List<Transfer> accepted) {
+        final List<Transfer> uncredited = new ArrayList<Transfer>();
+        for (Transfer transfer : accepted) {
+            if (transfer.state == State.DEBITED) {
+                uncredited.add(transfer);
+            }
+        }
+        if (uncredited.isEmpty()) {
+            commit(context, accepted, debited);
+            return;
+        }
+        // source takes its money back whatever its state is now
+        modifier.modify(from, ado -> {
+            final AccountDataObject account = (AccountDataObject) ado;
+            long balance = account.getMinorUnits();
+            for (Transfer transfer : uncredited) {
+                balance = Math.addExact(balance, AccountDataGridVerticle.minorUnitsOf(account, transfer.amount));
+            }
+            return account.withMinorUnits(balance);
+        }, ar -> {
+            if (ar.succeeded() && ar.result() != null) {
+                for (Transfer transfer : uncredited) {
+                    transfer.state = State.COMPENSATED;
+                }
+                commit(context, accepted, (AccountDataObject) ar.result());
+                return;
+            }
+            LOGGER.error("Could not compensate {} transfers of batch {}, {} is left debited by them",
+                    ar.failed() ? ar.cause() : null, uncredited.size(), uncredited.get(0).batch, from);
+            for (Transfer transfer : uncredited) {
+                transfer.fail(State.DEBITED, HttpResponseStatus.INTERNAL_SERVER_ERROR,
+                        "Debited, but neither credited nor compensated: " + transfer.reason);
+            }
+            commit(context, accepted, debited);
+        });
+    }
+
+    private void commit(Context context, List<Transfer> accepted, AccountDataObject source) {
+        journal(context, accepted, journaled -> {
+            if (journaled.failed()) {
+                LOGGER.warn("Could not journal result of transfer batch {}", journaled.cause(),
+                        accepted.get(0).batch);
+            }
+            reply(accepted, source);
+        });
+    }
+
+    private void reply(Collection<Transfer> step, AccountDataObject source) {
+        for (Transfer transfer : step) {
+            if (transfer.state == State.COMMITTED) {
+                final JsonObject result = transfer.toJson().put("fromAccount", source.toJson()).put("toAccount",
+                        transfer.credited.toJson());
+                transfer.handler.handle(Future.succeededFuture(result));
+            } else {
+                transfer.handler.handle(Future.failedFuture(new ReplyException(ReplyFailure.RECIPIENT_FAILURE,
+                        transfer.failureCode, "Transfer " + transfer.id + " is " + transfer.state + ": "
+                                + transfer.reason)));
+            }
+        }
+    }
+
+    private void journal(Context context, Collection<Transfer> step, Handler<AsyncResult<Void>> next) {
+        final RemoteCache<UUID, String> c = journal.get();
+        if (c == null) {
+            next.handle(Future.failedFuture("There is no transfer journal cache"));
+            return;
+        }
+        final Map<UUID, String> entries = new HashMap<UUID, String>();
+        for (Transfer transfer : step) {
+            entries.put(transfer.id, transfer.toJson().encode());
+        }
+        try {
+            c.putAllAsync(entries).whenComplete((v, t) -> context.runOnContext(
+                    x -> next.handle(t == null ? Future.succeededFuture() : Future.failedFuture(t))));
+        } catch (RuntimeException e) {
+            next.handle(Future.failedFuture(e));
+        }
+    }
+
+    private static int failureCode(Throwable t) {
+        return t instanceof ReplyException && ((ReplyException) t).failureCode() > 0
+                ? ((ReplyException) t).failureCode()
+                : HttpResponseStatus.INTERNAL_SERVER_ERROR.code();
+    }
+}
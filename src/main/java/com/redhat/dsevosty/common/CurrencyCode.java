@@ -1,19 +1,33 @@
 package com.redhat.dsevosty.common;
 
 public enum CurrencyCode {
-  // Currency codes ISO4217, also
-  EUR(978, "EUR", "Euro Member Countries"), 
-  @Deprecated RUR(810, "RUR", "Russian Ruble"), 
-  RUB(643, "RUB", "Российский рубль"), 
-  USD(840, "USD", "United States Dollar");
+  // Currency codes ISO4217, also number of minor unit digits
+  EUR(978, "EUR", "Euro Member Countries", 2),
+  @Deprecated RUR(810, "RUR", "Russian Ruble", 2),
+  RUB(643, "RUB", "Российский рубль", 2),
+  USD(840, "USD", "United States Dollar", 2);
+
+  private static final CurrencyCode[] VALUES = values();
 
   public final int key;
   public final String code;
   public final String desc;
+  public final int scale;
 
-  private CurrencyCode(int key, String code, String desc) {
+  private CurrencyCode(int key, String code, String desc, int scale) {
     this.key = key;
     this.code = code;
     this.desc = desc;
+    this.scale = scale;
+  }
+
+  // null for an unknown code, unlike valueOf
+  public static CurrencyCode of(String code) {
+    for (CurrencyCode currency : VALUES) {
+      if (currency.code.equals(code)) {
+        return currency;
+      }
+    }
+    return null;
   }
-}
\ No newline at end of file
+}
@@ -8,10 +8,46 @@ public enum ServiceConstant {
   SERVICE_HTTP_REMOTE_PORT("service.http.remote.port", "8080"),
   SERVICE_HTTP_MANAGEMMENT_SUFFIX("service.management.http.address", "mgmt"),
   SERVICE_HTTP_API_SUFFIX("service.api.http.address", "api"),
+  SERVICE_HTTP_BODY_MAX_SIZE("service.http.body.max.size", "1048576"),
+  SERVICE_HTTP_REUSE_PORT("service.http.reuse.port", "false"),
+  SERVICE_HTTP_TCP_NO_DELAY("service.http.tcp.nodelay", "true"),
+  SERVICE_HTTP_TCP_QUICK_ACK("service.http.tcp.quickack", "false"),
+  SERVICE_HTTP_TCP_FAST_OPEN("service.http.tcp.fastopen", "false"),
+  SERVICE_HTTP_ACCEPT_BACKLOG("service.http.accept.backlog", "-1"),
+  SERVICE_HTTP_IDLE_TIMEOUT("service.http.idle.timeout.seconds", "0"),
+  SERVICE_HTTP_H2C_MAX_CONCURRENT_STREAMS("service.http.h2c.max.concurrent.streams", "100"),
+  SERVICE_HTTP_H2C_CONNECTION_WINDOW_SIZE("service.http.h2c.connection.window.size", "-1"),
+  SERVICE_HTTP_BATCH_GET_MAX_IDS("service.http.batch.get.max.ids", "1000"),
+  SERVICE_HTTP_BULK_IMPORT_BATCH_SIZE("service.http.bulk.import.batch.size", "500"),
+  SERVICE_HTTP_BULK_IMPORT_MAX_IN_FLIGHT("service.http.bulk.import.max.inflight", "4"),
+  SERVICE_HTTP_BULK_IMPORT_MAX_SIZE("service.http.bulk.import.max.size", "1073741824"),
+  SERVICE_HTTP_CHANGES_MAX_SUBSCRIBERS("service.http.changes.max.subscribers", "1000"),
+  SERVICE_HTTP_CHANGES_BUFFER_SIZE("service.http.changes.buffer.size", "65536"),
+  SERVICE_HTTP_CHANGES_SLOW_CONSUMER("service.http.changes.slow.consumer", "drop"),
   SERVICE_JDG_REMOTE_ADDRESS("service.jdg.remote.address", "127.0.0.1"),
   SERVICE_JDG_REMOTE_PORT("service.jdg.remote.port", "11222"),
+  SERVICE_JDG_NEAR_CACHE_MAX_ENTRIES("service.jdg.nearcache.max.entries", "0"),
+  SERVICE_JDG_NEAR_CACHE_EVICTION("service.jdg.nearcache.eviction", "LRU"),
+  SERVICE_JDG_GET_COALESCING("service.jdg.get.coalescing", "true"),
+  SERVICE_JDG_CHANGE_EVENTS("service.jdg.change.events", "false"),
+  SERVICE_JDG_INDEX_FIELD("service.jdg.index.field", ""),
+  SERVICE_JDG_INDEX_CACHE("service.jdg.index.cache", ""),
+  SERVICE_JDG_SCAN_BATCH_SIZE("service.jdg.scan.batch.size", "1000"),
+  SERVICE_JDG_SCAN_CURSOR_TIMEOUT("service.jdg.scan.cursor.timeout.millis", "60000"),
+  SERVICE_JDG_AGGREGATE_PARALLELISM("service.jdg.aggregate.parallelism", "4"),
+  SERVICE_JDG_MODIFY_MAX_RETRIES("service.jdg.modify.max.retries", "5"),
+  SERVICE_JDG_MODIFY_MAX_QUEUE("service.jdg.modify.max.queue", "1000"),
+  SERVICE_JDG_WRITE_BEHIND_WINDOW("service.jdg.write.behind.window.millis", "0"),
+  SERVICE_JDG_WRITE_BEHIND_MAX_CHANGES("service.jdg.write.behind.max.changes", "100"),
+  SERVICE_JDG_WRITE_BEHIND_ACK("service.jdg.write.behind.ack", "flush"),
+  SERVICE_JDG_TRANSFER_JOURNAL_CACHE("service.jdg.transfer.journal.cache", ""),
+  SERVICE_JDG_TRANSFER_BATCH_WINDOW("service.jdg.transfer.batch.window.millis", "5"),
+  SERVICE_JDG_TRANSFER_BATCH_SIZE("service.jdg.transfer.batch.size", "500"),
+  SERVICE_DATAGRID_LOCAL_DISPATCH("service.datagrid.local.dispatch", "true"),
   SERVICE_EVENTBUS_PREFIX("vertx.eventbus.prefix", "com.redhat.dsevosty.eventbus"),
-  SERVICE_OPERATION("service.operation","")
+  SERVICE_OPERATION("service.operation",""),
+  SERVICE_DATA_OBJECT_CLASS("service.dataobject.class", ""),
+  SERVICE_DATA_OBJECT_EXTERNALIZER("service.dataobject.externalizer", "")
   ;
 
   // private static final String PACKAGE_NAME = "com.redhat.dsevosty";
@@ -0,0 +1,110 @@
+package com.redhat.dsevosty.common.marshall;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+import java.util.UUID;
+
+import com.redhat.dsevosty.common.model.AbstractDataObject;
+import com.redhat.dsevosty.common.model.Money;
+
+/*
+  Writes a single AbstractDataObject type in a compact binary form for DataObjectMarshaller.
+  Type id must be unique within a marshaller and must never change once data is stored in the grid.
+*/
+
+public interface DataObjectExternalizer<T extends AbstractDataObject> {
+
+    public int getTypeId();
+
+    public Class<T> getDataObjectClass();
+
+    public void writeObject(DataOutput out, T object) throws IOException;
+
+    public T readObject(DataInput in) throws IOException;
+
+    public static void writeUUID(DataOutput out, UUID uuid) throws IOException {
+        out.writeLong(uuid.getMostSignificantBits());
+        out.writeLong(uuid.getLeastSignificantBits());
+    }
+
+    public static UUID readUUID(DataInput in) throws IOException {
+        return new UUID(in.readLong(), in.readLong());
+    }
+
+    public static void writeVarLong(DataOutput out, long value) throws IOException {
+        // zig-zag, then 7 bits per byte
+        long v = (value << 1) ^ (value >> 63);
+        while ((v & ~0x7FL) != 0) {
+            out.writeByte((int) ((v & 0x7F) | 0x80));
+            v >>>= 7;
+        }
+        out.writeByte((int) v);
+    }
+
+    public static long readVarLong(DataInput in) throws IOException {
+        long v = 0;
+        int shift = 0;
+        byte b;
+        do {
+            if (shift > 63) {
+                throw new IOException("Malformed variable length long");
+            }
+            b = in.readByte();
+            v |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return (v >>> 1) ^ -(v & 1);
+    }
+
+    public static void writeBigDecimal(DataOutput out, BigDecimal value) throws IOException {
+        BigInteger unscaled = value.unscaledValue();
+        writeVarLong(out, value.scale());
+        if (unscaled.bitLength() < 64) {
+            writeVarLong(out, 0);
+            writeVarLong(out, unscaled.longValue());
+        } else {
+            byte[] bytes = unscaled.toByteArray();
+            writeVarLong(out, bytes.length);
+            out.write(bytes);
+        }
+    }
+
+    public static BigDecimal readBigDecimal(DataInput in) throws IOException {
+        int scale = (int) readVarLong(in);
+        int length = (int) readVarLong(in);
+        if (length == 0) {
+            return BigDecimal.valueOf(readVarLong(in), scale);
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new BigDecimal(new BigInteger(bytes), scale);
+    }
+
+    // Same bytes as writeBigDecimal of BigDecimal.valueOf(unscaled, scale), without the BigDecimal
+    public static void writeUnscaled(DataOutput out, long unscaled, int scale) throws IOException {
+        writeVarLong(out, scale);
+        writeVarLong(out, 0);
+        writeVarLong(out, unscaled);
+    }
+
+    // Value of writeBigDecimal or writeUnscaled as unscaled long of the given scale, it must fit exactly
+    public static long readUnscaled(DataInput in, int scale) throws IOException {
+        int written = (int) readVarLong(in);
+        int length = (int) readVarLong(in);
+        try {
+            if (length == 0) {
+                return Money.rescale(readVarLong(in), written, scale);
+            }
+            byte[] bytes = new byte[length];
+            in.readFully(bytes);
+            return new BigDecimal(new BigInteger(bytes), written).setScale(scale, RoundingMode.UNNECESSARY)
+                    .unscaledValue().longValueExact();
+        } catch (ArithmeticException e) {
+            throw new IOException("Stored decimal does not fit " + scale + " fraction digits in a long", e);
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package com.redhat.dsevosty.common.marshall;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import com.redhat.dsevosty.common.model.AbstractDataObject;
+
+import org.infinispan.commons.io.ByteBuffer;
+import org.infinispan.commons.io.ByteBufferImpl;
+import org.infinispan.commons.io.ExposedByteArrayOutputStream;
+import org.infinispan.commons.marshall.AbstractMarshaller;
+
+/*
+  Hot Rod marshaller for UUID keys and registered AbstractDataObject values.
+  Layout: one tag byte, then
+    TAG_UUID        - 16 bytes
+    TAG_DATA_OBJECT - type id byte + externalizer payload
+    TAG_STRING      - modified UTF-8, like secondary index keys
+    TAG_JAVA        - plain Java serialization for everything else
+*/
+
+public class DataObjectMarshaller extends AbstractMarshaller {
+
+    private static final byte TAG_NULL = 0;
+    private static final byte TAG_UUID = 1;
+    private static final byte TAG_DATA_OBJECT = 2;
+    private static final byte TAG_JAVA = 3;
+    private static final byte TAG_STRING = 4;
+
+    private static final int MAX_TYPE_ID = 0xFF;
+
+    private final Map<Class<?>, DataObjectExternalizer<?>> byClass = new ConcurrentHashMap<Class<?>, DataObjectExternalizer<?>>();
+    private final AtomicReferenceArray<DataObjectExternalizer<?>> byTypeId = new AtomicReferenceArray<DataObjectExternalizer<?>>(
+            MAX_TYPE_ID + 1);
+
+    public synchronized DataObjectMarshaller register(DataObjectExternalizer<?> externalizer) {
+        final int typeId = externalizer.getTypeId();
+        if (typeId < 0 || typeId > MAX_TYPE_ID) {
+            throw new IllegalArgumentException("Type id must be in range [0.." + MAX_TYPE_ID + "], but got: " + typeId);
+        }
+        DataObjectExternalizer<?> existed = byTypeId.get(typeId);
+        if (existed != null && existed.getDataObjectClass() != externalizer.getDataObjectClass()) {
+            throw new IllegalArgumentException("Type id " + typeId + " already registered for "
+                    + existed.getDataObjectClass().getName());
+        }
+        byTypeId.set(typeId, externalizer);
+        byClass.put(externalizer.getDataObjectClass(), externalizer);
+        return this;
+    }
+
+    public boolean isRegistered(Class<?> clazz) {
+        return byClass.containsKey(clazz);
+    }
+
+    @Override
+    protected ByteBuffer objectToBuffer(Object o, int estimatedSize) throws IOException, InterruptedException {
+        ExposedByteArrayOutputStream baos = new ExposedByteArrayOutputStream(estimatedSize);
+        DataOutputStream out = new DataOutputStream(baos);
+        writeObject(out, o);
+        out.flush();
+        return new ByteBufferImpl(baos.getRawBuffer(), 0, baos.size());
+    }
+
+    @Override
+    public Object objectFromByteBuffer(byte[] buf, int offset, int length) throws IOException, ClassNotFoundException {
+        return readObject(new DataInputStream(new ByteArrayInputStream(buf, offset, length)));
+    }
+
+    @Override
+    public boolean isMarshallable(Object o) throws Exception {
+        return o == null || o instanceof UUID || o instanceof String || byClass.containsKey(o.getClass()) || o instanceof Serializable;
+    }
+
+    @SuppressWarnings("unchecked")
+    public void writeObject(DataOutputStream out, Object o) throws IOException {
+        if (o == null) {
+            out.writeByte(TAG_NULL);
+            return;
+        }
+        if (o instanceof UUID) {
+            out.writeByte(TAG_UUID);
+            DataObjectExternalizer.writeUUID(out, (UUID) o);
+            return;
+        }
+        if (o instanceof String) {
+            out.writeByte(TAG_STRING);
+            out.writeUTF((String) o);
+            return;
+        }
+        DataObjectExternalizer<AbstractDataObject> externalizer = (DataObjectExternalizer<AbstractDataObject>) byClass
+                .get(o.getClass());
+        if (externalizer != null) {
+            out.writeByte(TAG_DATA_OBJECT);
+            out.writeByte(externalizer.getTypeId());
+            externalizer.writeObject(out, (AbstractDataObject) o);
+            return;
+        }
+        out.writeByte(TAG_JAVA);
+        ObjectOutputStream oos = new ObjectOutputStream(out);
+        oos.writeObject(o);
+        oos.flush();
+    }
+
+    public Object readObject(DataInputStream in) throws IOException, ClassNotFoundException {
+        final byte tag = in.readByte();
+        switch (tag) {
+        case TAG_NULL:
+            return null;
+        case TAG_UUID:
+            return DataObjectExternalizer.readUUID(in);
+        case TAG_DATA_OBJECT:
+            final int typeId = in.readUnsignedByte();
+            DataObjectExternalizer<?> externalizer = byTypeId.get(typeId);
+            if (externalizer == null) {
+                throw new IOException("There is no externalizer registered for type id " + typeId);
+            }
+            return externalizer.readObject(in);
+        case TAG_STRING:
+            return in.readUTF();
+        case TAG_JAVA:
+            return new ObjectInputStream(in).readObject();
+        default:
+            throw new IOException("Unknown marshalled object tag " + tag);
+        }
+    }
+}
@@ -0,0 +1,216 @@
+package com.redhat.dsevosty.common.marshall;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.WeakHashMap;
+
+import com.redhat.dsevosty.common.CurrencyCode;
+import com.redhat.dsevosty.common.model.AbstractDataObject;
+import com.redhat.dsevosty.common.model.DataGridReply;
+import com.redhat.dsevosty.common.model.DataGridRequest;
+import com.redhat.dsevosty.common.model.Money;
+
+import org.infinispan.commons.io.ExposedByteArrayOutputStream;
+
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.eventbus.EventBus;
+import io.vertx.core.eventbus.MessageCodec;
+import io.vertx.core.json.JsonObject;
+
+/*
+  Event-bus codecs for DataGridRequest/DataGridReply.
+  Local delivery hands over the same instance, clustered delivery writes
+  a length-prefixed DataObjectMarshaller payload.
+*/
+
+public abstract class DataObjectMessageCodec<T> implements MessageCodec<T, T> {
+
+    private static final int INITIAL_BUFFER_SIZE = 128;
+
+    private static final Map<EventBus, DataObjectMarshaller> MARSHALLERS = new WeakHashMap<EventBus, DataObjectMarshaller>();
+
+    protected final DataObjectMarshaller marshaller;
+
+    protected DataObjectMessageCodec(DataObjectMarshaller marshaller) {
+        this.marshaller = marshaller;
+    }
+
+    /*
+      Registers codecs once per event bus and returns the marshaller they share,
+      so every verticle can add its own externalizers to it.
+    */
+    public static synchronized DataObjectMarshaller registerCodecs(EventBus eb) {
+        DataObjectMarshaller m = MARSHALLERS.get(eb);
+        if (m == null) {
+            m = new DataObjectMarshaller();
+            eb.registerDefaultCodec(DataGridRequest.class, new RequestCodec(m));
+            eb.registerDefaultCodec(DataGridReply.class, new ReplyCodec(m));
+            MARSHALLERS.put(eb, m);
+        }
+        return m;
+    }
+
+    protected abstract void write(DataOutputStream out, T t) throws IOException;
+
+    protected abstract T read(DataInputStream in) throws IOException, ClassNotFoundException;
+
+    @Override
+    public void encodeToWire(Buffer buffer, T t) {
+        ExposedByteArrayOutputStream baos = new ExposedByteArrayOutputStream(INITIAL_BUFFER_SIZE);
+        DataOutputStream out = new DataOutputStream(baos);
+        try {
+            write(out, t);
+            out.flush();
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not encode " + t + " with codec " + name(), e);
+        }
+        buffer.appendInt(baos.size()).appendBytes(baos.getRawBuffer(), 0, baos.size());
+    }
+
+    @Override
+    public T decodeFromWire(int pos, Buffer buffer) {
+        final int length = buffer.getInt(pos);
+        pos += 4;
+        try {
+            return read(new DataInputStream(new ByteArrayInputStream(buffer.getBytes(pos, pos + length))));
+        } catch (IOException | ClassNotFoundException e) {
+            throw new IllegalStateException("Could not decode message with codec " + name(), e);
+        }
+    }
+
+    @Override
+    public T transform(T t) {
+        return t;
+    }
+
+    @Override
+    public byte systemCodecID() {
+        return -1;
+    }
+
+    public static class RequestCodec extends DataObjectMessageCodec<DataGridRequest> {
+
+        public RequestCodec(DataObjectMarshaller marshaller) {
+            super(marshaller);
+        }
+
+        @Override
+        protected void write(DataOutputStream out, DataGridRequest request) throws IOException {
+            out.writeUTF(request.getOperation());
+            marshaller.writeObject(out, request.getId());
+            marshaller.writeObject(out, request.getDataObject());
+            final List<UUID> ids = request.getIds();
+            out.writeInt(ids == null ? -1 : ids.size());
+            if (ids != null) {
+                for (UUID id : ids) {
+                    DataObjectExternalizer.writeUUID(out, id);
+                }
+            }
+            final Collection<AbstractDataObject> dataObjects = request.getDataObjects();
+            out.writeInt(dataObjects == null ? -1 : dataObjects.size());
+            if (dataObjects != null) {
+                for (AbstractDataObject ado : dataObjects) {
+                    marshaller.writeObject(out, ado);
+                }
+            }
+            marshaller.writeObject(out, request.getKey());
+            final Money amount = request.getAmount();
+            out.writeBoolean(amount != null);
+            if (amount != null) {
+                out.writeLong(amount.getMinorUnits());
+                out.writeUTF(amount.getCurrency() == null ? "" : amount.getCurrency().name());
+            }
+        }
+
+        @Override
+        protected DataGridRequest read(DataInputStream in) throws IOException, ClassNotFoundException {
+            final String operation = in.readUTF();
+            final UUID id = (UUID) marshaller.readObject(in);
+            final AbstractDataObject ado = (AbstractDataObject) marshaller.readObject(in);
+            final int size = in.readInt();
+            List<UUID> ids = null;
+            if (size >= 0) {
+                ids = new ArrayList<UUID>(size);
+                for (int i = 0; i < size; i++) {
+                    ids.add(DataObjectExternalizer.readUUID(in));
+                }
+            }
+            final int count = in.readInt();
+            List<AbstractDataObject> dataObjects = null;
+            if (count >= 0) {
+                dataObjects = new ArrayList<AbstractDataObject>(count);
+                for (int i = 0; i < count; i++) {
+                    dataObjects.add((AbstractDataObject) marshaller.readObject(in));
+                }
+            }
+            final String key = (String) marshaller.readObject(in);
+            Money amount = null;
+            if (in.readBoolean()) {
+                final long minorUnits = in.readLong();
+                final String currency = in.readUTF();
+                amount = new Money(minorUnits, currency.isEmpty() ? null : CurrencyCode.valueOf(currency));
+            }
+            return new DataGridRequest(operation, id, ado, ids, dataObjects, key, amount);
+        }
+
+        @Override
+        public String name() {
+            return DataGridRequest.class.getName();
+        }
+    }
+
+    public static class ReplyCodec extends DataObjectMessageCodec<DataGridReply> {
+
+        public ReplyCodec(DataObjectMarshaller marshaller) {
+            super(marshaller);
+        }
+
+        @Override
+        protected void write(DataOutputStream out, DataGridReply reply) throws IOException {
+            out.writeShort(reply.getStatusCode());
+            marshaller.writeObject(out, reply.getDataObject());
+            final Map<UUID, AbstractDataObject> dataObjects = reply.getDataObjects();
+            out.writeInt(dataObjects == null ? -1 : dataObjects.size());
+            if (dataObjects != null) {
+                for (Map.Entry<UUID, AbstractDataObject> e : dataObjects.entrySet()) {
+                    DataObjectExternalizer.writeUUID(out, e.getKey());
+                    marshaller.writeObject(out, e.getValue());
+                }
+            }
+            marshaller.writeObject(out, reply.getCursor());
+            marshaller.writeObject(out, reply.getResult() == null ? null : reply.getResult().encode());
+        }
+
+        @Override
+        protected DataGridReply read(DataInputStream in) throws IOException, ClassNotFoundException {
+            final int statusCode = in.readUnsignedShort();
+            final AbstractDataObject ado = (AbstractDataObject) marshaller.readObject(in);
+            final int size = in.readInt();
+            Map<UUID, AbstractDataObject> dataObjects = null;
+            if (size >= 0) {
+                dataObjects = new LinkedHashMap<UUID, AbstractDataObject>();
+                for (int i = 0; i < size; i++) {
+                    final UUID id = DataObjectExternalizer.readUUID(in);
+                    dataObjects.put(id, (AbstractDataObject) marshaller.readObject(in));
+                }
+            }
+            final String cursor = (String) marshaller.readObject(in);
+            final String result = (String) marshaller.readObject(in);
+            return new DataGridReply(statusCode, ado, dataObjects, cursor,
+                    result == null ? null : new JsonObject(result));
+        }
+
+        @Override
+        public String name() {
+            return DataGridReply.class.getName();
+        }
+    }
+}
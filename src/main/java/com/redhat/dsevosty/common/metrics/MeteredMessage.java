@@ -0,0 +1,94 @@
+package com.redhat.dsevosty.common.metrics;
+
+import com.redhat.dsevosty.common.model.DataGridReply;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Handler;
+import io.vertx.core.MultiMap;
+import io.vertx.core.eventbus.DeliveryOptions;
+import io.vertx.core.eventbus.Message;
+import io.vertx.core.json.JsonObject;
+
+/*
+  Message decorator which stops the timer on reply or fail.
+  fail() and replies with statusCode >= 500 are counted as errors.
+*/
+
+public class MeteredMessage<T> implements Message<T> {
+
+    private static final int SERVER_ERROR = 500;
+
+    private final Message<T> delegate;
+    private final OperationMetrics.Timer timer;
+
+    public MeteredMessage(Message<T> delegate, OperationMetrics metrics) {
+        this.delegate = delegate;
+        this.timer = metrics.start();
+    }
+
+    private void stop(Object reply) {
+        int status = 0;
+        if (reply instanceof DataGridReply) {
+            status = ((DataGridReply) reply).getStatusCode();
+        } else if (reply instanceof JsonObject) {
+            final Integer code = ((JsonObject) reply).getInteger("statusCode");
+            status = code == null ? 0 : code;
+        }
+        timer.stop(status >= SERVER_ERROR);
+    }
+
+    @Override
+    public String address() {
+        return delegate.address();
+    }
+
+    @Override
+    public MultiMap headers() {
+        return delegate.headers();
+    }
+
+    @Override
+    public T body() {
+        return delegate.body();
+    }
+
+    @Override
+    public String replyAddress() {
+        return delegate.replyAddress();
+    }
+
+    @Override
+    public boolean isSend() {
+        return delegate.isSend();
+    }
+
+    @Override
+    public void reply(Object message) {
+        stop(message);
+        delegate.reply(message);
+    }
+
+    @Override
+    public <R> void reply(Object message, Handler<AsyncResult<Message<R>>> replyHandler) {
+        stop(message);
+        delegate.reply(message, replyHandler);
+    }
+
+    @Override
+    public void reply(Object message, DeliveryOptions options) {
+        stop(message);
+        delegate.reply(message, options);
+    }
+
+    @Override
+    public <R> void reply(Object message, DeliveryOptions options, Handler<AsyncResult<Message<R>>> replyHandler) {
+        stop(message);
+        delegate.reply(message, options, replyHandler);
+    }
+
+    @Override
+    public void fail(int failureCode, String message) {
+        timer.stop(failureCode >= SERVER_ERROR || failureCode < 0);
+        delegate.fail(failureCode, message);
+    }
+}
@@ -0,0 +1,81 @@
+package com.redhat.dsevosty.common.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import io.vertx.core.json.JsonObject;
+
+/*
+  Latency, in-flight and error counters of one operation on one hop.
+*/
+
+public class OperationMetrics {
+
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicLong errors = new AtomicLong();
+
+    /*
+      Stops only once, so it can be both on the reply path and on the close path.
+    */
+    public class Timer {
+        private final long started = System.nanoTime();
+        private final AtomicBoolean stopped = new AtomicBoolean();
+
+        public void stop(boolean error) {
+            if (stopped.compareAndSet(false, true)) {
+                OperationMetrics.this.stop(started, error);
+            }
+        }
+    }
+
+    public Timer start() {
+        inFlight.incrementAndGet();
+        return new Timer();
+    }
+
+    private void stop(long started, boolean error) {
+        latency.record(System.nanoTime() - started);
+        inFlight.decrementAndGet();
+        if (error) {
+            errors.incrementAndGet();
+        }
+    }
+
+    public LatencyHistogram getLatency() {
+        return latency;
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    public long getErrors() {
+        return errors.get();
+    }
+
+    public void reset() {
+        latency.reset();
+        errors.set(0);
+    }
+
+    // Latencies are in microseconds
+    public JsonObject toJson() {
+        JsonObject json = new JsonObject();
+        json.put("count", latency.getCount());
+        json.put("errors", errors.get());
+        json.put("inFlight", inFlight.get());
+        json.put("mean", micros(latency.getMean()));
+        json.put("p50", micros(latency.getValueAtQuantile(0.5)));
+        json.put("p99", micros(latency.getValueAtQuantile(0.99)));
+        json.put("p999", micros(latency.getValueAtQuantile(0.999)));
+        json.put("max", micros(latency.getMax()));
+        return json;
+    }
+
+    private static long micros(long nanos) {
+        return TimeUnit.NANOSECONDS.toMicros(nanos);
+    }
+}
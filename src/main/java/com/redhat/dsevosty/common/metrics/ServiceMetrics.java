@@ -0,0 +1,81 @@
+package com.redhat.dsevosty.common.metrics;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import io.vertx.core.json.JsonObject;
+
+/*
+  Process-wide operation metrics of one service, grouped by hop:
+    http     - CommonHttpAdapter request until response end
+    eventbus - adapter send until reply
+    local    - adapter direct call of a co-located data grid until reply
+    datagrid - DataGridVerticle handler until reply
+    cache    - RemoteCache call
+    writebehind - flush of write-behind changes of one DataObject
+  Batch sizes, like the number of changes in a flush, are kept apart under "sizes".
+  Shared by all verticle instances of the service, so numbers are already aggregated.
+*/
+
+public class ServiceMetrics {
+
+    public static final String HOP_HTTP = "http";
+    public static final String HOP_EVENTBUS = "eventbus";
+    public static final String HOP_LOCAL = "local";
+    public static final String HOP_DATAGRID = "datagrid";
+    public static final String HOP_CACHE = "cache";
+    public static final String HOP_WRITE_BEHIND = "writebehind";
+
+    private static final ConcurrentMap<String, ServiceMetrics> SERVICES = new ConcurrentHashMap<String, ServiceMetrics>();
+
+    private final ConcurrentMap<String, ConcurrentMap<String, OperationMetrics>> hops = new ConcurrentHashMap<String, ConcurrentMap<String, OperationMetrics>>();
+    private final ConcurrentMap<String, LatencyHistogram> sizes = new ConcurrentHashMap<String, LatencyHistogram>();
+
+    public static ServiceMetrics forService(String service) {
+        return SERVICES.computeIfAbsent(service, s -> new ServiceMetrics());
+    }
+
+    public OperationMetrics get(String hop, String operation) {
+        return hops.computeIfAbsent(hop, h -> new ConcurrentHashMap<String, OperationMetrics>())
+                .computeIfAbsent(operation.toLowerCase(), o -> new OperationMetrics());
+    }
+
+    // Histogram of counts, not of nanos
+    public LatencyHistogram sizes(String operation) {
+        return sizes.computeIfAbsent(operation.toLowerCase(), o -> new LatencyHistogram());
+    }
+
+    public void reset() {
+        for (Map<String, OperationMetrics> operations : hops.values()) {
+            for (OperationMetrics m : operations.values()) {
+                m.reset();
+            }
+        }
+        for (LatencyHistogram h : sizes.values()) {
+            h.reset();
+        }
+    }
+
+    public JsonObject toJson() {
+        JsonObject json = new JsonObject();
+        for (Map.Entry<String, ConcurrentMap<String, OperationMetrics>> hop : hops.entrySet()) {
+            JsonObject operations = new JsonObject();
+            for (Map.Entry<String, OperationMetrics> e : hop.getValue().entrySet()) {
+                operations.put(e.getKey(), e.getValue().toJson());
+            }
+            json.put(hop.getKey(), operations);
+        }
+        if (sizes.isEmpty() == false) {
+            JsonObject operations = new JsonObject();
+            for (Map.Entry<String, LatencyHistogram> e : sizes.entrySet()) {
+                final LatencyHistogram h = e.getValue();
+                operations.put(e.getKey(), new JsonObject().put("count", h.getCount()).put("mean", h.getMean())
+                        .put("p50", h.getValueAtQuantile(0.5)).put("p99", h.getValueAtQuantile(0.99))
+                        .put("max", h.getMax()));
+            }
+            json.put("sizes", operations);
+        }
+        return json;
+    }
+}
@@ -0,0 +1,108 @@
+package com.redhat.dsevosty.common.model;
+
+import java.util.Map;
+import java.util.UUID;
+
+import io.vertx.core.json.JsonObject;
+
+/*
+  Typed event-bus reply of DataGridVerticle. toJson() gives the legacy
+  { statusCode, result } form for JsonObject requests.
+  Multi-key operations fill dataObjects, a null value marks an id that was not found.
+  Scan page has a cursor of the next page, null on the last one.
+  Operations answering with neither, like "aggregate", fill result.
+*/
+
+public class DataGridReply {
+
+    private final int statusCode;
+    private final AbstractDataObject dataObject;
+    private final Map<UUID, AbstractDataObject> dataObjects;
+    private final String cursor;
+    private final JsonObject result;
+
+    public DataGridReply(int statusCode) {
+        this(statusCode, (AbstractDataObject) null);
+    }
+
+    public DataGridReply(int statusCode, AbstractDataObject dataObject) {
+        this(statusCode, dataObject, null);
+    }
+
+    public DataGridReply(int statusCode, Map<UUID, AbstractDataObject> dataObjects) {
+        this(statusCode, null, dataObjects);
+    }
+
+    public DataGridReply(int statusCode, JsonObject result) {
+        this(statusCode, null, null, null, result);
+    }
+
+    public DataGridReply(int statusCode, Map<UUID, AbstractDataObject> dataObjects, String cursor) {
+        this(statusCode, null, dataObjects, cursor);
+    }
+
+    public DataGridReply(int statusCode, AbstractDataObject dataObject, Map<UUID, AbstractDataObject> dataObjects) {
+        this(statusCode, dataObject, dataObjects, null);
+    }
+
+    public DataGridReply(int statusCode, AbstractDataObject dataObject, Map<UUID, AbstractDataObject> dataObjects,
+            String cursor) {
+        this(statusCode, dataObject, dataObjects, cursor, null);
+    }
+
+    public DataGridReply(int statusCode, AbstractDataObject dataObject, Map<UUID, AbstractDataObject> dataObjects,
+            String cursor, JsonObject result) {
+        this.statusCode = statusCode;
+        this.dataObject = dataObject;
+        this.dataObjects = dataObjects;
+        this.cursor = cursor;
+        this.result = result;
+    }
+
+    public int getStatusCode() {
+        return statusCode;
+    }
+
+    public AbstractDataObject getDataObject() {
+        return dataObject;
+    }
+
+    public Map<UUID, AbstractDataObject> getDataObjects() {
+        return dataObjects;
+    }
+
+    public String getCursor() {
+        return cursor;
+    }
+
+    public JsonObject getResult() {
+        return result;
+    }
+
+    public JsonObject toJson() {
+        JsonObject json = new JsonObject();
+        json.put("statusCode", statusCode);
+        if (dataObject != null) {
+            json.put("result", dataObject.toJson());
+        }
+        if (dataObjects != null) {
+            JsonObject result = new JsonObject();
+            for (Map.Entry<UUID, AbstractDataObject> e : dataObjects.entrySet()) {
+                result.put(e.getKey().toString(), e.getValue() == null ? null : e.getValue().toJson());
+            }
+            json.put("result", result);
+        }
+        if (cursor != null) {
+            json.put("cursor", cursor);
+        }
+        if (result != null) {
+            json.put("result", result);
+        }
+        return json;
+    }
+
+    public String toString() {
+        return getClass().getSimpleName() + ": [ statusCode=" + statusCode + ", dataObject=" + dataObject
+                + ", dataObjects=" + (dataObjects == null ? null : dataObjects.size()) + ", cursor=" + cursor + " ]";
+    }
+}
@@ -0,0 +1,115 @@
+package com.redhat.dsevosty.common.model;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+/*
+  Typed event-bus request for DataGridVerticle. Delivered by reference inside one JVM,
+  so the receiver may modify dataObject in place.
+*/
+
+public class DataGridRequest {
+
+    private final String operation;
+    private final UUID id;
+    private final AbstractDataObject dataObject;
+    private final List<UUID> ids;
+    private final Collection<AbstractDataObject> dataObjects;
+    private final String key;
+    private final Money amount;
+
+    public DataGridRequest(String operation, UUID id) {
+        this(operation, id, (AbstractDataObject) null);
+    }
+
+    // amount to apply to DataObject id, like credit and debit
+    public DataGridRequest(String operation, UUID id, Money amount) {
+        this(operation, id, null, null, null, null, amount);
+    }
+
+    // amount to move from DataObject id to ids, like transfer
+    public DataGridRequest(String operation, UUID id, List<UUID> ids, Money amount) {
+        this(operation, id, null, ids, null, null, amount);
+    }
+
+    public DataGridRequest(String operation, List<UUID> ids) {
+        this(operation, null, null, ids);
+    }
+
+    public DataGridRequest(String operation, Collection<AbstractDataObject> dataObjects) {
+        this(operation, null, null, null, dataObjects);
+    }
+
+    // key is a secondary index key
+    public DataGridRequest(String operation, String key) {
+        this(operation, null, null, null, null, key);
+    }
+
+    public DataGridRequest(String operation, AbstractDataObject dataObject) {
+        this(operation, dataObject.getId(), dataObject);
+    }
+
+    public DataGridRequest(String operation, UUID id, AbstractDataObject dataObject) {
+        this(operation, id, dataObject, null);
+    }
+
+    public DataGridRequest(String operation, UUID id, AbstractDataObject dataObject, List<UUID> ids) {
+        this(operation, id, dataObject, ids, null);
+    }
+
+    public DataGridRequest(String operation, UUID id, AbstractDataObject dataObject, List<UUID> ids,
+            Collection<AbstractDataObject> dataObjects) {
+        this(operation, id, dataObject, ids, dataObjects, null);
+    }
+
+    public DataGridRequest(String operation, UUID id, AbstractDataObject dataObject, List<UUID> ids,
+            Collection<AbstractDataObject> dataObjects, String key) {
+        this(operation, id, dataObject, ids, dataObjects, key, null);
+    }
+
+    public DataGridRequest(String operation, UUID id, AbstractDataObject dataObject, List<UUID> ids,
+            Collection<AbstractDataObject> dataObjects, String key, Money amount) {
+        this.operation = operation;
+        this.id = id;
+        this.dataObject = dataObject;
+        this.ids = ids;
+        this.dataObjects = dataObjects;
+        this.key = key;
+        this.amount = amount;
+    }
+
+    public String getOperation() {
+        return operation;
+    }
+
+    public UUID getId() {
+        return id;
+    }
+
+    public AbstractDataObject getDataObject() {
+        return dataObject;
+    }
+
+    public List<UUID> getIds() {
+        return ids;
+    }
+
+    public Collection<AbstractDataObject> getDataObjects() {
+        return dataObjects;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public Money getAmount() {
+        return amount;
+    }
+
+    public String toString() {
+        return getClass().getSimpleName() + ": [ operation=" + operation + ", id=" + id + ", dataObject=" + dataObject
+                + ", ids=" + (ids == null ? null : ids.size()) + ", dataObjects="
+                + (dataObjects == null ? null : dataObjects.size()) + ", key=" + key + ", amount=" + amount + " ]";
+    }
+}
@@ -1,40 +1,267 @@
 package com.redhat.dsevosty.common.model;
 
 import java.math.BigDecimal;
+import java.math.RoundingMode;
 
 import com.redhat.dsevosty.common.CurrencyCode;
 
-public class Money {
-  private BigDecimal amount;
-  private CurrencyCode currency;
+/*
+  Amount as a long of minor units, like cents, with the scale of its currency. Amount without a currency,
+  like a credit in the currency of the account, has DEFAULT_SCALE. Static methods work on bare minor units,
+  so balance arithmetic needs no Money nor BigDecimal, overflow is an ArithmeticException as in Math.*Exact.
+  Text form is a plain decimal with exactly scale fraction digits, "10.50", and is parsed back exactly.
+*/
+
+public final class Money implements Comparable<Money> {
+  public static final int DEFAULT_SCALE = 2;
+
+  private static final long[] POWERS_OF_TEN = { 1L, 10L, 100L, 1000L, 10000L, 100000L, 1000000L, 10000000L,
+      100000000L, 1000000000L, 10000000000L, 100000000000L, 1000000000000L, 10000000000000L, 100000000000000L,
+      1000000000000000L, 10000000000000000L, 100000000000000000L, 1000000000000000000L };
+
+  private final long minorUnits;
+  private final CurrencyCode currency;
 
   public Money() {
-    amount = new BigDecimal("0.00");
-    currency = CurrencyCode.RUB;
+    this(0, CurrencyCode.RUB);
   }
 
-  public Money(BigDecimal amount, CurrencyCode currency) {
-    this.amount = amount;
+  public Money(long minorUnits, CurrencyCode currency) {
+    this.minorUnits = minorUnits;
     this.currency = currency;
   }
 
-  public BigDecimal getAmount() {
-    return amount;
+  // IllegalArgumentException when amount has more fraction digits than the currency or does not fit a long
+  public Money(BigDecimal amount, CurrencyCode currency) {
+    this(toMinorUnits(amount, scaleOf(currency)), currency);
+  }
+
+  // NumberFormatException like new BigDecimal(amount), also for amounts the constructor above refuses
+  public static Money parse(CharSequence amount, CurrencyCode currency) {
+    return new Money(parse(amount, scaleOf(currency)), currency);
+  }
+
+  public static int scaleOf(CurrencyCode currency) {
+    return currency == null ? DEFAULT_SCALE : currency.scale;
+  }
+
+  public static long toMinorUnits(BigDecimal amount, int scale) {
+    try {
+      return amount.setScale(scale, RoundingMode.UNNECESSARY).unscaledValue().longValueExact();
+    } catch (ArithmeticException e) {
+      throw new IllegalArgumentException("Amount " + amount.toPlainString() + " does not fit " + scale
+          + " fraction digits in a long");
+    }
   }
-  
-  public void setAmount(BigDecimal amount) {
-    this.amount = amount;
+
+  /*
+    Decimal like "-10.5", ".5", "3" or "1.5E3", the amount must have at most scale fraction digits.
+    Parsed on longs only, exponent of any size costs nothing.
+  */
+  public static long parse(CharSequence text, int scale) {
+    final int length = text.length();
+    int i = 0;
+    boolean negative = false;
+    if (length > 0 && (text.charAt(0) == '-' || text.charAt(0) == '+')) {
+      negative = text.charAt(0) == '-';
+      i++;
+    }
+    // significant digits accumulated as negative, so Long.MIN_VALUE fits too, its zeros are held back
+    long value = 0;
+    long zeros = 0;
+    long fractionDigits = 0;
+    int digits = 0;
+    boolean point = false;
+    try {
+      for (; i < length; i++) {
+        final char c = text.charAt(i);
+        if (c >= '0' && c <= '9') {
+          digits++;
+          if (point) {
+            fractionDigits++;
+          }
+          if (c == '0') {
+            zeros = value == 0 ? 0 : zeros + 1;
+            continue;
+          }
+          value = Math.subtractExact(Math.multiplyExact(value, powerOfTen(zeros + 1)), c - '0');
+          zeros = 0;
+        } else if (c == '.' && point == false) {
+          point = true;
+        } else if ((c == 'e' || c == 'E') && digits > 0) {
+          zeros += parseExponent(text, i + 1);
+          break;
+        } else {
+          throw new NumberFormatException("Malformed amount " + text);
+        }
+      }
+      if (digits == 0) {
+        throw new NumberFormatException("Malformed amount " + text);
+      }
+      if (value == 0) {
+        return 0;
+      }
+      // value ends with a non zero digit, so a negative shift is never exact
+      final long shift = zeros - fractionDigits + scale;
+      if (shift < 0) {
+        throw new NumberFormatException("Amount " + text + " has more than " + scale + " fraction digits");
+      }
+      value = Math.multiplyExact(value, powerOfTen(shift));
+      return negative ? value : Math.negateExact(value);
+    } catch (ArithmeticException e) {
+      throw new NumberFormatException("Amount " + text + " does not fit " + scale + " fraction digits in a long");
+    }
+  }
+
+  // Saturates far beyond any exponent a long amount can have
+  private static long parseExponent(CharSequence text, int start) {
+    final int length = text.length();
+    int i = start;
+    boolean negative = false;
+    if (i < length && (text.charAt(i) == '-' || text.charAt(i) == '+')) {
+      negative = text.charAt(i) == '-';
+      i++;
+    }
+    if (i == length) {
+      throw new NumberFormatException("Malformed amount " + text);
+    }
+    long exponent = 0;
+    for (; i < length; i++) {
+      final char c = text.charAt(i);
+      if (c < '0' || c > '9') {
+        throw new NumberFormatException("Malformed amount " + text);
+      }
+      exponent = Math.min(exponent * 10 + (c - '0'), Integer.MAX_VALUE);
+    }
+    return negative ? -exponent : exponent;
+  }
+
+  public static String format(long minorUnits, int scale) {
+    final String digits = Long.toString(minorUnits);
+    if (scale == 0) {
+      return digits;
+    }
+    final int start = minorUnits < 0 ? 1 : 0;
+    final int point = digits.length() - scale;
+    final StringBuilder text = new StringBuilder(digits.length() + scale + 2);
+    text.append(digits, 0, start);
+    if (point <= start) {
+      text.append("0.");
+      for (int i = point; i < start; i++) {
+        text.append('0');
+      }
+      text.append(digits, start, digits.length());
+    } else {
+      text.append(digits, start, point).append('.').append(digits, point, digits.length());
+    }
+    return text.toString();
+  }
+
+  // Same amount with another number of fraction digits, ArithmeticException when it is not exact or overflows
+  public static long rescale(long minorUnits, int fromScale, int toScale) {
+    if (fromScale == toScale || minorUnits == 0) {
+      return minorUnits;
+    }
+    if (toScale > fromScale) {
+      return Math.multiplyExact(minorUnits, powerOfTen(toScale - fromScale));
+    }
+    final long divisor = powerOfTen(fromScale - toScale);
+    if (minorUnits % divisor != 0) {
+      throw new ArithmeticException("Amount " + format(minorUnits, fromScale) + " has more than " + toScale
+          + " fraction digits");
+    }
+    return minorUnits / divisor;
+  }
+
+  private static long powerOfTen(long n) {
+    if (n < 0 || n >= POWERS_OF_TEN.length) {
+      throw new ArithmeticException("Scale difference " + n + " does not fit a long");
+    }
+    return POWERS_OF_TEN[(int) n];
+  }
+
+  public long getMinorUnits() {
+    return minorUnits;
   }
 
   public CurrencyCode getCurrency() {
     return currency;
   }
 
-  public void setCurrecy(CurrencyCode currency) {
-    this.currency = currency;
+  public int getScale() {
+    return scaleOf(currency);
+  }
+
+  // Minor units in the given scale, ArithmeticException when it is not exact or overflows
+  public long getMinorUnits(int scale) {
+    return rescale(minorUnits, getScale(), scale);
+  }
+
+  public BigDecimal getAmount() {
+    return BigDecimal.valueOf(minorUnits, getScale());
+  }
+
+  public int signum() {
+    return Long.signum(minorUnits);
+  }
+
+  /*
+    Amounts of different currencies are not added nor compared, IllegalArgumentException then.
+    Amount without a currency goes with any one.
+  */
+  public Money plus(Money other) {
+    final CurrencyCode common = commonCurrency(other);
+    final int scale = scaleOf(common);
+    return new Money(Math.addExact(getMinorUnits(scale), other.getMinorUnits(scale)), common);
+  }
+
+  public Money minus(Money other) {
+    final CurrencyCode common = commonCurrency(other);
+    final int scale = scaleOf(common);
+    return new Money(Math.subtractExact(getMinorUnits(scale), other.getMinorUnits(scale)), common);
+  }
+
+  @Override
+  public int compareTo(Money other) {
+    commonCurrency(other);
+    final int scale = Math.max(getScale(), other.getScale());
+    return Long.compare(getMinorUnits(scale), other.getMinorUnits(scale));
+  }
+
+  private CurrencyCode commonCurrency(Money other) {
+    if (currency == null) {
+      return other.currency;
+    }
+    if (other.currency != null && other.currency != currency) {
+      throw new IllegalArgumentException("Currency " + currency + " differs from " + other.currency);
+    }
+    return currency;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (o == this) {
+      return true;
+    }
+    if (!(o instanceof Money)) {
+      return false;
+    }
+    final Money other = (Money) o;
+    return minorUnits == other.minorUnits && currency == other.currency;
+  }
+
+  @Override
+  public int hashCode() {
+    return 31 * Long.hashCode(minorUnits) + (currency == null ? 0 : currency.hashCode());
+  }
+
+  // Amount alone, as it goes to JSON
+  public String toPlainString() {
+    return format(minorUnits, getScale());
   }
 
   public String toString() {
-    return getClass().getName() + ": [ amount=" + amount + ", currency=" + currency.key + "/" + currency.code + " ]";
+    return getClass().getName() + ": [ amount=" + toPlainString() + ", currency="
+        + (currency == null ? "none" : currency.key + "/" + currency.code) + " ]";
   }
-}
\ No newline at end of file
+}
@@ -0,0 +1,20 @@
+package com.redhat.dsevosty.common.svc;
+
+import com.redhat.dsevosty.common.model.AbstractDataObject;
+
+import io.vertx.core.json.JsonObject;
+
+/*
+  Partial reduction of DataObjects for the "aggregate" operation. Each segment group is reduced
+  into its own instance on a worker thread, partials are merged into one afterwards.
+*/
+
+public interface Aggregation {
+
+    void accumulate(AbstractDataObject ado);
+
+    // other is a partial of the same class
+    void merge(Aggregation other);
+
+    JsonObject toJson();
+}
@@ -0,0 +1,97 @@
+package com.redhat.dsevosty.common.svc;
+
+import java.util.UUID;
+
+import com.redhat.dsevosty.common.model.AbstractDataObject;
+
+import org.infinispan.client.hotrod.RemoteCache;
+import org.infinispan.client.hotrod.annotation.ClientCacheEntryCreated;
+import org.infinispan.client.hotrod.annotation.ClientCacheEntryExpired;
+import org.infinispan.client.hotrod.annotation.ClientCacheEntryModified;
+import org.infinispan.client.hotrod.annotation.ClientCacheEntryRemoved;
+import org.infinispan.client.hotrod.annotation.ClientCacheFailover;
+import org.infinispan.client.hotrod.annotation.ClientListener;
+import org.infinispan.client.hotrod.event.ClientCacheEntryCreatedEvent;
+import org.infinispan.client.hotrod.event.ClientCacheEntryExpiredEvent;
+import org.infinispan.client.hotrod.event.ClientCacheEntryModifiedEvent;
+import org.infinispan.client.hotrod.event.ClientCacheEntryRemovedEvent;
+import org.infinispan.client.hotrod.event.ClientCacheFailoverEvent;
+
+import io.vertx.core.eventbus.EventBus;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.logging.Logger;
+import io.vertx.core.logging.LoggerFactory;
+
+/*
+  Publishes changes of remote cache entries to the eventbus as
+    { "type": "created|modified|removed|expired|failover", "id": ..., "version": ..., "dataObject": {...} }
+  Hot Rod events carry no value, it is read once per event here rather than once per subscriber.
+  One listener per cache name, see SharedRemoteCacheManager, so every change is published once.
+  failover means events may have been lost, subscribers should read what they need again.
+*/
+
+@ClientListener
+public class ChangeEventListener {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ChangeEventListener.class);
+
+    private static final String ADDRESS_SUFFIX = ".changes";
+
+    private final RemoteCache<UUID, AbstractDataObject> cache;
+    private final EventBus eventBus;
+    private final String address;
+
+    public ChangeEventListener(RemoteCache<UUID, AbstractDataObject> cache, EventBus eventBus, String address) {
+        this.cache = cache;
+        this.eventBus = eventBus;
+        this.address = address;
+    }
+
+    // Address change events of the data grid at dataGridAddress are published to
+    public static String addressOf(String dataGridAddress) {
+        return dataGridAddress + ADDRESS_SUFFIX;
+    }
+
+    @ClientCacheEntryCreated
+    public void created(ClientCacheEntryCreatedEvent<UUID> e) {
+        publishWithValue("created", e.getKey(), e.getVersion());
+    }
+
+    @ClientCacheEntryModified
+    public void modified(ClientCacheEntryModifiedEvent<UUID> e) {
+        publishWithValue("modified", e.getKey(), e.getVersion());
+    }
+
+    @ClientCacheEntryRemoved
+    public void removed(ClientCacheEntryRemovedEvent<UUID> e) {
+        eventBus.publish(address, event("removed", e.getKey()));
+    }
+
+    @ClientCacheEntryExpired
+    public void expired(ClientCacheEntryExpiredEvent<UUID> e) {
+        eventBus.publish(address, event("expired", e.getKey()));
+    }
+
+    @ClientCacheFailover
+    public void failover(ClientCacheFailoverEvent e) {
+        LOGGER.info("Client listener failover, change events to {} may have been lost", address);
+        eventBus.publish(address, new JsonObject().put("type", "failover"));
+    }
+
+    private static JsonObject event(String type, UUID id) {
+        return new JsonObject().put("type", type).put("id", id.toString());
+    }
+
+    // Value may be newer than the event when entry changes again meanwhile, null when it is already removed
+    private void publishWithValue(String type, UUID id, long version) {
+        cache.getAsync(id).whenComplete((ado, t) -> {
+            final JsonObject event = event(type, id).put("version", version);
+            if (t != null) {
+                LOGGER.debug("Could not read {} entry id={}, event is published without value", t, type, id);
+            } else if (ado != null) {
+                event.put("dataObject", ado.toJson());
+            }
+            eventBus.publish(address, event);
+        });
+    }
+}
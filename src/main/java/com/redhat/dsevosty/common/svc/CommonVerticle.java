@@ -1,8 +1,17 @@
 package com.redhat.dsevosty.common.svc;
 
 import static com.redhat.dsevosty.common.ServiceConstant.SERVICE_EVENTBUS_PREFIX;
+import static com.redhat.dsevosty.common.ServiceConstant.SERVICE_HTTP_ACCEPT_BACKLOG;
+import static com.redhat.dsevosty.common.ServiceConstant.SERVICE_HTTP_BODY_MAX_SIZE;
+import static com.redhat.dsevosty.common.ServiceConstant.SERVICE_HTTP_H2C_CONNECTION_WINDOW_SIZE;
+import static com.redhat.dsevosty.common.ServiceConstant.SERVICE_HTTP_H2C_MAX_CONCURRENT_STREAMS;
+import static com.redhat.dsevosty.common.ServiceConstant.SERVICE_HTTP_IDLE_TIMEOUT;
 import static com.redhat.dsevosty.common.ServiceConstant.SERVICE_HTTP_LISTEN_ADDRESS;
 import static com.redhat.dsevosty.common.ServiceConstant.SERVICE_HTTP_LISTEN_PORT;
+import static com.redhat.dsevosty.common.ServiceConstant.SERVICE_HTTP_REUSE_PORT;
+import static com.redhat.dsevosty.common.ServiceConstant.SERVICE_HTTP_TCP_FAST_OPEN;
+import static com.redhat.dsevosty.common.ServiceConstant.SERVICE_HTTP_TCP_NO_DELAY;
+import static com.redhat.dsevosty.common.ServiceConstant.SERVICE_HTTP_TCP_QUICK_ACK;
 import static com.redhat.dsevosty.common.ServiceConstant.SERVICE_NAMESPACE;
 
 import java.lang.management.ManagementFactory;
@@ -10,27 +19,36 @@ import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 import javax.management.InstanceAlreadyExistsException;
+import javax.management.InstanceNotFoundException;
 import javax.management.MBeanRegistrationException;
 import javax.management.MBeanServer;
 import javax.management.MalformedObjectNameException;
 import javax.management.NotCompliantMBeanException;
 import javax.management.ObjectName;
 
+import com.redhat.dsevosty.common.metrics.ServiceMetrics;
+
 import io.netty.handler.codec.http.HttpResponseStatus;
 import io.vertx.core.AbstractVerticle;
 import io.vertx.core.AsyncResult;
 import io.vertx.core.Future;
+import io.vertx.core.Handler;
 import io.vertx.core.eventbus.EventBus;
 import io.vertx.core.eventbus.Message;
+import io.vertx.core.http.Http2Settings;
+import io.vertx.core.http.HttpHeaders;
 import io.vertx.core.http.HttpMethod;
 import io.vertx.core.http.HttpServer;
+import io.vertx.core.http.HttpServerOptions;
 import io.vertx.core.json.JsonArray;
 import io.vertx.core.json.JsonObject;
 import io.vertx.core.logging.Logger;
@@ -52,6 +70,7 @@ public abstract class CommonVerticle extends AbstractVerticle implements CommonV
   private HttpServer httpServer;
   private String httpServerHost;
   private int httpServerPort;
+  private long httpBodyMaxSize;
 
   private EventBus eb;
   private String eventBusAddress;
@@ -63,6 +82,8 @@ public abstract class CommonVerticle extends AbstractVerticle implements CommonV
 
   private List<Method> managementMethods;
 
+  private static final Map<ObjectName, List<CommonVerticle>> MBEAN_INSTANCES = new HashMap<ObjectName, List<CommonVerticle>>();
+
   @Override
   public void start(Future<Void> start) {
     LOGGER.info("About to start Verticle {}", getClass().getSimpleName());
@@ -77,6 +98,7 @@ public abstract class CommonVerticle extends AbstractVerticle implements CommonV
   @Override
   public void stop(Future<Void> stop) {
     LOGGER.info("About to stop Verticle({})", this);
+    unregisterMBean();
     stopHttpServer(stop);
   }
 
@@ -150,7 +172,6 @@ public abstract class CommonVerticle extends AbstractVerticle implements CommonV
     allowMethods.add(HttpMethod.PUT);
 
     root.route().handler(CorsHandler.create("*").allowedHeaders(allowHeaders).allowedMethods(allowMethods));
-    root.route().handler(BodyHandler.create());
 
     Router sub = getSubRouter();
     root.mountSubRouter("/" + getType() + "/", sub);
@@ -169,9 +190,85 @@ public abstract class CommonVerticle extends AbstractVerticle implements CommonV
     return root;
   }
 
+  /*
+    Body is buffered only on routes which read it, put this handler on such a route before the real one.
+    Body bigger than service.http.body.max.size gets 413.
+  */
+  protected Handler<RoutingContext> bodyHandler() {
+    return bodyHandler(httpBodyMaxSize);
+  }
+
+  protected Handler<RoutingContext> bodyHandler(long maxSize) {
+    final BodyHandler body = BodyHandler.create().setBodyLimit(maxSize);
+    return rc -> {
+      if (rejectTooLarge(rc, maxSize) == false) {
+        body.handle(rc);
+      }
+    };
+  }
+
+  // Declared Content-Length over maxSize is answered with 413 before the body is read, -1 is no limit
+  protected boolean rejectTooLarge(RoutingContext rc, long maxSize) {
+    final String length = rc.request().getHeader(HttpHeaders.CONTENT_LENGTH);
+    if (maxSize < 0 || length == null) {
+      return false;
+    }
+    try {
+      if (Long.parseLong(length.trim()) <= maxSize) {
+        return false;
+      }
+    } catch (NumberFormatException e) {
+      return false;
+    }
+    LOGGER.debug("Rejecting {} {}, Content-Length {} is over {}", rc.request().method(), rc.normalisedPath(),
+        length, maxSize);
+    rc.response().setStatusCode(HttpResponseStatus.REQUEST_ENTITY_TOO_LARGE.code())
+        .putHeader(HttpHeaders.CONNECTION, "close").end("Body is larger than " + maxSize + " bytes");
+    return true;
+  }
+
+  /*
+    Socket options come from service.http.* keys. Reuse port, quick ack and fast open need the native
+    transport (netty epoll, VertxOptions.preferNativeTransport), without it they are left off with a warning.
+    HTTP/2 clear text (h2c, upgrade or prior knowledge) is served on the same port, streams of one
+    connection are multiplexed up to service.http.h2c.max.concurrent.streams.
+  */
+  protected HttpServerOptions createHttpServerOptions() {
+    JsonObject vertxConfig = config();
+    HttpServerOptions options = new HttpServerOptions().setHost(httpServerHost).setPort(httpServerPort);
+    options.setTcpNoDelay(Boolean.valueOf(
+        vertxConfig.getString(SERVICE_HTTP_TCP_NO_DELAY.key, SERVICE_HTTP_TCP_NO_DELAY.value)));
+    options.setAcceptBacklog(Integer.valueOf(
+        vertxConfig.getString(SERVICE_HTTP_ACCEPT_BACKLOG.key, SERVICE_HTTP_ACCEPT_BACKLOG.value)));
+    options.setIdleTimeout(Integer.valueOf(
+        vertxConfig.getString(SERVICE_HTTP_IDLE_TIMEOUT.key, SERVICE_HTTP_IDLE_TIMEOUT.value)));
+    options.setInitialSettings(new Http2Settings().setMaxConcurrentStreams(Long.valueOf(vertxConfig
+        .getString(SERVICE_HTTP_H2C_MAX_CONCURRENT_STREAMS.key, SERVICE_HTTP_H2C_MAX_CONCURRENT_STREAMS.value))));
+    options.setHttp2ConnectionWindowSize(Integer.valueOf(vertxConfig
+        .getString(SERVICE_HTTP_H2C_CONNECTION_WINDOW_SIZE.key, SERVICE_HTTP_H2C_CONNECTION_WINDOW_SIZE.value)));
+
+    final boolean reusePort = Boolean.valueOf(
+        vertxConfig.getString(SERVICE_HTTP_REUSE_PORT.key, SERVICE_HTTP_REUSE_PORT.value));
+    final boolean quickAck = Boolean.valueOf(
+        vertxConfig.getString(SERVICE_HTTP_TCP_QUICK_ACK.key, SERVICE_HTTP_TCP_QUICK_ACK.value));
+    final boolean fastOpen = Boolean.valueOf(
+        vertxConfig.getString(SERVICE_HTTP_TCP_FAST_OPEN.key, SERVICE_HTTP_TCP_FAST_OPEN.value));
+    if (getNativeTransport()) {
+      options.setReusePort(reusePort).setTcpQuickAck(quickAck).setTcpFastOpen(fastOpen);
+    } else if (reusePort || quickAck || fastOpen) {
+      LOGGER.warn("Native transport is not available, {}={}, {}={}, {}={} are ignored", SERVICE_HTTP_REUSE_PORT.key,
+          reusePort, SERVICE_HTTP_TCP_QUICK_ACK.key, quickAck, SERVICE_HTTP_TCP_FAST_OPEN.key, fastOpen);
+    }
+    return options;
+  }
+
   protected Future<Void> startHttpServer(Future<Void> future) {
-    LOGGER.info("Creating HTTP server for host={}, port={}", httpServerHost, httpServerPort);
-    vertx.createHttpServer().requestHandler(getRootRouter()::accept).listen(httpServerPort, httpServerHost, result -> {
+    LOGGER.info("Creating HTTP server for host={}, port={}, native transport={}", httpServerHost, httpServerPort,
+        getNativeTransport());
+    vertx.createHttpServer(createHttpServerOptions()).requestHandler(getRootRouter()::accept).listen(httpServerPort, httpServerHost, result -> {
+      if (result.succeeded()) {
+        httpServer = result.result();
+      }
       httpServerStartErrorHandler(future, result);
     });
     return future;
@@ -220,6 +317,8 @@ public abstract class CommonVerticle extends AbstractVerticle implements CommonV
     httpServerHost = vertxConfig.getString(SERVICE_HTTP_LISTEN_ADDRESS.key, SERVICE_HTTP_LISTEN_ADDRESS.value);
     httpServerPort = Integer
         .valueOf(vertxConfig.getString(SERVICE_HTTP_LISTEN_PORT.key, SERVICE_HTTP_LISTEN_PORT.value));
+    httpBodyMaxSize = Long
+        .valueOf(vertxConfig.getString(SERVICE_HTTP_BODY_MAX_SIZE.key, SERVICE_HTTP_BODY_MAX_SIZE.value));
     serviceContextName = vertxConfig.getString(SERVICE_NAMESPACE.key, "");
     eventBusAddress = vertxConfig.getString(SERVICE_EVENTBUS_PREFIX.key, SERVICE_EVENTBUS_PREFIX.value);
     if (serviceContextName.equals("") == false) {
@@ -235,26 +334,71 @@ public abstract class CommonVerticle extends AbstractVerticle implements CommonV
     LOGGER.info(info, getClass().getName(), httpServerHost, httpServerPort, serviceContextName, eventBusAddress);
   }
 
+  protected ObjectName getMBeanName() throws MalformedObjectNameException {
+    return new ObjectName(getPackageName() + ":type=" + getType());
+  }
+
+  /*
+    All instances of one verticle type share the MBean name, it is registered for the
+    first live instance and handed over to the next one when that instance stops.
+  */
   protected void registerMBean() {
     vertx.executeBlocking(future -> {
       MBeanServer mbs = ManagementFactory.getPlatformMBeanServer();
       try {
-        final ObjectName name = new ObjectName(getPackageName() + ":type=" + getType());
-        mbs.registerMBean(this, name);
+        final ObjectName name = getMBeanName();
+        synchronized (MBEAN_INSTANCES) {
+          List<CommonVerticle> instances = MBEAN_INSTANCES.get(name);
+          if (instances == null) {
+            instances = new ArrayList<CommonVerticle>();
+            MBEAN_INSTANCES.put(name, instances);
+          }
+          if (instances.isEmpty()) {
+            if (mbs.isRegistered(name)) {
+              mbs.unregisterMBean(name);
+            }
+            mbs.registerMBean(this, name);
+          }
+          instances.add(this);
+        }
         future.complete();
-      } catch (MalformedObjectNameException | InstanceAlreadyExistsException | MBeanRegistrationException
-          | NotCompliantMBeanException e) {
+      } catch (MalformedObjectNameException | InstanceAlreadyExistsException | InstanceNotFoundException
+          | MBeanRegistrationException | NotCompliantMBeanException e) {
         future.fail(e);
       }
     }, result -> {
       if (result.succeeded()) {
-        LOGGER.info("Registered JMX MBean '{}:Type={}'", getPackageName(), getType());
+        LOGGER.info("Registered JMX MBean '{}:Type={}', instances={}", getPackageName(), getType(), getInstances());
       } else {
         LOGGER.error("Error while creating JMX MBean '{}:Type={}'", result.cause(), getPackageName(), getType());
       }
     });
   }
 
+  protected void unregisterMBean() {
+    MBeanServer mbs = ManagementFactory.getPlatformMBeanServer();
+    try {
+      final ObjectName name = getMBeanName();
+      synchronized (MBEAN_INSTANCES) {
+        final List<CommonVerticle> instances = MBEAN_INSTANCES.get(name);
+        if (instances == null || instances.isEmpty()) {
+          return;
+        }
+        final boolean owner = instances.get(0) == this;
+        instances.remove(this);
+        if (owner) {
+          mbs.unregisterMBean(name);
+          if (instances.isEmpty() == false) {
+            mbs.registerMBean(instances.get(0), name);
+          }
+        }
+      }
+    } catch (MalformedObjectNameException | InstanceAlreadyExistsException | InstanceNotFoundException
+        | MBeanRegistrationException | NotCompliantMBeanException e) {
+      LOGGER.error("Error while removing JMX MBean '{}:Type={}'", e, getPackageName(), getType());
+    }
+  }
+
   protected abstract void defaultEventBusHandler(Message<JsonObject> message);
 
   // Managenent Methods
@@ -263,6 +407,32 @@ public abstract class CommonVerticle extends AbstractVerticle implements CommonV
     return serviceContextName + "/" + getClass().getName();
   }
 
+  protected ServiceMetrics getServiceMetrics() {
+    return ServiceMetrics.forService(serviceContextName);
+  }
+
+  @Override
+  public Map<String, Object> getMetrics() {
+    return getServiceMetrics().toJson().getMap();
+  }
+
+  @Override
+  public void resetMetrics() {
+    getServiceMetrics().reset();
+  }
+
+  @Override
+  public int getInstances() {
+    synchronized (MBEAN_INSTANCES) {
+      for (List<CommonVerticle> instances : MBEAN_INSTANCES.values()) {
+        if (instances.contains(this)) {
+          return instances.size();
+        }
+      }
+    }
+    return 0;
+  }
+
   @Override
   public void createHttpServer() {
     Future<Void> future = Future.<Void>future();
@@ -276,6 +446,11 @@ public abstract class CommonVerticle extends AbstractVerticle implements CommonV
     startHttpServer(future);
   }
 
+  @Override
+  public boolean getNativeTransport() {
+    return vertx.isNativeTransportEnabled();
+  }
+
   @Override
   public void destroyHttpServer() {
     Future<Void> future = Future.<Void>future();
@@ -444,6 +619,7 @@ public abstract class CommonVerticle extends AbstractVerticle implements CommonV
         });
       } else {
         LOGGER.debug("Registering handler for context {}, method POST", path);
+        router.post("/" + path).handler(bodyHandler());
         router.post("/" + path).handler(rc -> {
           JsonObject body = rc.getBodyAsJson();
           final Object value = body.getValue("value");
@@ -1,8 +1,14 @@
 package com.redhat.dsevosty.common.svc;
 
+import java.util.Map;
+
 public interface CommonVerticleMBean {
   public String getServiceName();
+  public int getInstances();
+  public Map<String, Object> getMetrics();
+  public void resetMetrics();
 
+  public boolean getNativeTransport();
   public void createHttpServer();
   public void destroyHttpServer();
   public String getHttpServerHost();
@@ -0,0 +1,17 @@
+package com.redhat.dsevosty.common.svc;
+
+import com.redhat.dsevosty.common.model.DataGridReply;
+import com.redhat.dsevosty.common.model.DataGridRequest;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Handler;
+
+/*
+  Typed data grid operations for callers in the same Vert.x instance, see LocalDataGridServices.
+  Reply is the one the eventbus consumer would send, failure is a ReplyException with its status code.
+*/
+
+public interface DataGridService {
+
+    void execute(DataGridRequest request, Handler<AsyncResult<DataGridReply>> handler);
+}
@@ -1,40 +1,108 @@
 package com.redhat.dsevosty.common.svc;
 
+import static com.redhat.dsevosty.common.ServiceConstant.SERVICE_JDG_AGGREGATE_PARALLELISM;
+import static com.redhat.dsevosty.common.ServiceConstant.SERVICE_JDG_CHANGE_EVENTS;
+import static com.redhat.dsevosty.common.ServiceConstant.SERVICE_JDG_GET_COALESCING;
+import static com.redhat.dsevosty.common.ServiceConstant.SERVICE_JDG_INDEX_CACHE;
+import static com.redhat.dsevosty.common.ServiceConstant.SERVICE_JDG_INDEX_FIELD;
+import static com.redhat.dsevosty.common.ServiceConstant.SERVICE_JDG_MODIFY_MAX_QUEUE;
+import static com.redhat.dsevosty.common.ServiceConstant.SERVICE_JDG_MODIFY_MAX_RETRIES;
+import static com.redhat.dsevosty.common.ServiceConstant.SERVICE_JDG_WRITE_BEHIND_ACK;
+import static com.redhat.dsevosty.common.ServiceConstant.SERVICE_JDG_WRITE_BEHIND_MAX_CHANGES;
+import static com.redhat.dsevosty.common.ServiceConstant.SERVICE_JDG_WRITE_BEHIND_WINDOW;
+import static com.redhat.dsevosty.common.ServiceConstant.SERVICE_JDG_NEAR_CACHE_EVICTION;
+import static com.redhat.dsevosty.common.ServiceConstant.SERVICE_JDG_NEAR_CACHE_MAX_ENTRIES;
 import static com.redhat.dsevosty.common.ServiceConstant.SERVICE_JDG_REMOTE_ADDRESS;
 import static com.redhat.dsevosty.common.ServiceConstant.SERVICE_JDG_REMOTE_PORT;
+import static com.redhat.dsevosty.common.ServiceConstant.SERVICE_JDG_SCAN_BATCH_SIZE;
+import static com.redhat.dsevosty.common.ServiceConstant.SERVICE_JDG_SCAN_CURSOR_TIMEOUT;
+import static com.redhat.dsevosty.common.ServiceConstant.SERVICE_NAMESPACE;
 import static com.redhat.dsevosty.common.ServiceConstant.SERVICE_OPERATION;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
 
+import com.redhat.dsevosty.common.marshall.DataObjectMarshaller;
+import com.redhat.dsevosty.common.metrics.MeteredMessage;
+import com.redhat.dsevosty.common.metrics.OperationMetrics;
+import com.redhat.dsevosty.common.metrics.ServiceMetrics;
+import com.redhat.dsevosty.common.marshall.DataObjectMessageCodec;
 import com.redhat.dsevosty.common.model.AbstractDataObject;
+import com.redhat.dsevosty.common.model.DataGridReply;
+import com.redhat.dsevosty.common.model.DataGridRequest;
 import com.redhat.dsevosty.common.model.Versionable;
 
+import org.infinispan.client.hotrod.CacheTopologyInfo;
+import org.infinispan.client.hotrod.Flag;
+import org.infinispan.client.hotrod.MetadataValue;
 import org.infinispan.client.hotrod.RemoteCache;
 import org.infinispan.client.hotrod.RemoteCacheManager;
 import org.infinispan.client.hotrod.configuration.Configuration;
 import org.infinispan.client.hotrod.configuration.ConfigurationBuilder;
+import org.infinispan.commons.util.CloseableIterator;
 
 import io.netty.handler.codec.http.HttpResponseStatus;
 import io.vertx.core.AsyncResult;
 import io.vertx.core.CompositeFuture;
+import io.vertx.core.Context;
 import io.vertx.core.Future;
 import io.vertx.core.Handler;
 import io.vertx.core.MultiMap;
 import io.vertx.core.eventbus.Message;
+import io.vertx.core.eventbus.ReplyException;
+import io.vertx.core.eventbus.ReplyFailure;
 import io.vertx.core.http.HttpServer;
+import io.vertx.core.json.JsonArray;
 import io.vertx.core.json.JsonObject;
 import io.vertx.core.logging.Logger;
 import io.vertx.core.logging.LoggerFactory;
 
-public abstract class DataGridVerticle extends CommonVerticle implements DataGridVerticleMBean {
+public abstract class DataGridVerticle extends CommonVerticle implements DataGridVerticleMBean, DataGridService {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(DataGridVerticle.class);
 
     private String hotrodServerHost;
     private int hotrodServerPort;
 
-    private RemoteCacheManager manager;
+    private SharedRemoteCacheManager shared;
+    private volatile RemoteCacheManager manager;
+    private DataObjectMarshaller marshaller;
+
+    private int nearCacheMaxEntries;
+    private NearCache.EvictionPolicy nearCachePolicy;
+    private volatile NearCache<UUID, byte[]> nearCache;
+    private boolean coalesceGets;
+    private volatile SingleFlight<UUID, AbstractDataObject> singleFlight;
+    private boolean changeEvents;
+    private int scanBatchSize;
+    private long scanCursorTimeout;
+    private volatile ScanCursors scanCursors;
+    private long scanExpiryTimer = -1;
+    private int aggregateParallelism;
+    private int modifyMaxRetries;
+    private int modifyMaxQueue;
+    private volatile MutationQueue<UUID> mutationQueue;
+    private long writeBehindWindow;
+    private int writeBehindMaxChanges;
+    private boolean writeBehindAckEarly;
+    private WriteBehind writeBehind;
     private RemoteCache<UUID, AbstractDataObject> cache;
+    private String indexField;
+    private String indexCacheName;
+    private RemoteCache<String, UUID> indexCache;
 
     @Override
     public void start(Future<Void> start) {
@@ -49,50 +117,124 @@ public abstract class DataGridVerticle extends CommonVerticle implements DataGri
                 start.fail(ar.cause());
             }
         });
+        registerExternalizers(DataObjectMessageCodec.registerCodecs(getEventBus()));
         super.start(httpServerStart);
         createCacheManagerInFuture(cacheStart);
     }
 
     protected void createCacheManagerInFuture(Future<Void> start) {
-        vertx.<RemoteCacheManager>executeBlocking(future -> {
-            RemoteCacheManager rcm = new RemoteCacheManager(getCacheManagerConfiguration());
-            try {
-                Thread.sleep(200);
-            } catch (InterruptedException e) {
-                LOGGER.trace("Exception caught while sleep(200) to wait for init {}", e, rcm);
+        vertx.<SharedRemoteCacheManager>executeBlocking(future -> {
+            // marshaller comes from registerExternalizers, so other verticle classes get their own manager
+            final String key = getClass().getName() + "@" + hotrodServerHost + ":" + hotrodServerPort;
+            SharedRemoteCacheManager s = SharedRemoteCacheManager.acquire(key, () -> {
+                RemoteCacheManager rcm = new RemoteCacheManager(getCacheManagerConfiguration());
+                try {
+                    Thread.sleep(200);
+                } catch (InterruptedException e) {
+                    LOGGER.trace("Exception caught while sleep(200) to wait for init {}", e, rcm);
+                }
+                LOGGER.info("Created RemoteCacheManager={}", rcm);
+                return rcm;
+            });
+            if (nearCacheMaxEntries > 0) {
+                try {
+                    nearCache = s.getNearCache(serviceContextName, nearCacheMaxEntries, nearCachePolicy);
+                } catch (RuntimeException e) {
+                    s.release();
+                    throw e;
+                }
+                LOGGER.info("Near cache for {} enabled with maxEntries={}, policy={}", serviceContextName,
+                        nearCache.getMaxEntries(), nearCache.getPolicy());
+            }
+            if (coalesceGets) {
+                singleFlight = s.getSingleFlight(serviceContextName);
             }
-            LOGGER.info("Created RemoteCacheManager={}", rcm);
-            future.complete(rcm);
+            scanCursors = s.getScanCursors(serviceContextName, scanCursorTimeout);
+            mutationQueue = s.getMutationQueue(serviceContextName, modifyMaxQueue);
+            if (changeEvents) {
+                try {
+                    s.addChangeEventListener(serviceContextName, getEventBus(),
+                            ChangeEventListener.addressOf(getEventBusAddress()));
+                } catch (RuntimeException e) {
+                    s.release();
+                    throw e;
+                }
+            }
+            future.complete(s);
         }, result -> {
             if (result.succeeded()) {
-                manager = result.result();
+                shared = result.result();
+                manager = shared.getManager();
+                startScanExpiry();
                 start.complete();
             } else {
                 manager = null;
+                nearCache = null;
+                singleFlight = null;
+                scanCursors = null;
+                mutationQueue = null;
                 LOGGER.fatal("Error while creating remote cache manager", result.cause());
                 start.fail(result.cause());
             }
         });
     }
 
+    /*
+      Closes idle scan cursors on a worker. Cursors are shared by the instances of the JVM,
+      every instance runs its own timer, which is harmless.
+    */
+    private void startScanExpiry() {
+        scanExpiryTimer = vertx.setPeriodic(Math.max(scanCursorTimeout, 1), timer -> {
+            final ScanCursors cursors = scanCursors;
+            if (cursors != null) {
+                vertx.executeBlocking(future -> {
+                    cursors.expire();
+                    future.complete();
+                }, false, null);
+            }
+        });
+    }
+
     @Override
     public void stop(Future<Void> stop) {
         LOGGER.info("About to stop Verticle({})", this);
-        stopCacheManagerInFuture(stop);
+        if (scanExpiryTimer >= 0) {
+            vertx.cancelTimer(scanExpiryTimer);
+            scanExpiryTimer = -1;
+        }
+        unregisterMBean();
+        LocalDataGridServices.binding(vertx, getEventBusAddress()).unbind(this);
+        final WriteBehind wb = writeBehind;
+        if (wb != null) {
+            wb.flushAll(flushed -> stopCacheManagerInFuture(stop));
+        } else {
+            stopCacheManagerInFuture(stop);
+        }
     }
 
     protected void stopCacheManagerInFuture(Future<Void> stop) {
-        if (manager != null) {
-            LOGGER.info("About to stop RemoteCacheManager for", serviceContextName);
-            manager.stopAsync().whenCompleteAsync((e, ex) -> {
-                LOGGER.info("RemoteCacheManager stopped");
+        if (shared != null) {
+            LOGGER.info("About to release RemoteCacheManager for {}", serviceContextName);
+            final SharedRemoteCacheManager s = shared;
+            nearCache = null;
+            singleFlight = null;
+            scanCursors = null;
+            mutationQueue = null;
+            manager = null;
+            shared = null;
+            synchronized (this) {
+                cache = null;
+                indexCache = null;
+            }
+            s.release().whenCompleteAsync((e, ex) -> {
+                LOGGER.info("RemoteCacheManager released");
                 stop.complete();
             });
-            manager = null;
         } else {
             stop.complete();
         }
     }
+
     protected void httpServerStartErrorHandler(Future<Void> future, AsyncResult<HttpServer> result) {
         if (result.succeeded()) {
             LOGGER.info("Vert.x HTTP Server started: " + result.result());
@@ -118,10 +260,189 @@ public abstract class DataGridVerticle extends CommonVerticle implements DataGri
         return cache;
     }
 
+    /*
+      Secondary index: service.jdg.index.field value -> id, kept in service.jdg.index.cache,
+      null when there is no index.
+    */
+    protected synchronized RemoteCache<String, UUID> getIndexCache() {
+        if (indexCache == null && indexField != null && manager != null) {
+            indexCache = manager.getCache(indexCacheName);
+            LOGGER.trace("Got reference for index RemoteCache={}", indexCacheName);
+        }
+        return indexCache;
+    }
+
+    // Another cache of the same data grid, null while there is no RemoteCacheManager
+    protected <K, V> RemoteCache<K, V> getRemoteCache(String name) {
+        final RemoteCacheManager m = manager;
+        return m == null ? null : m.getCache(name);
+    }
+
+    protected String getIndexField() {
+        return indexField;
+    }
+
+    /*
+      Secondary index key of DataObject, null when it is not indexed.
+      Value of service.jdg.index.field in JSON, subclasses may read it without toJson().
+    */
+    protected String indexKeyOf(AbstractDataObject ado) {
+        if (indexField == null || ado == null) {
+            return null;
+        }
+        final Object value = ado.toJson().getValue(indexField);
+        return value == null ? null : String.valueOf(value);
+    }
+
     protected synchronized void resetCache(Throwable t) {
         // if (t instanceof ) {
         cache = null;
+        indexCache = null;
         // }
+        final NearCache<UUID, byte[]> near = nearCache;
+        if (near != null) {
+            near.clear();
+        }
+        final SingleFlight<UUID, AbstractDataObject> flight = singleFlight;
+        if (flight != null) {
+            flight.clear();
+        }
+    }
+
+    /*
+      Near cache keeps marshalled bytes, so every hit gets its own copy of DataObject.
+      With coalescing, concurrent misses of one id share a single remote read and its DataObject.
+    */
+    protected CompletableFuture<AbstractDataObject> getAsync(UUID id) {
+        final NearCache<UUID, byte[]> near = nearCache;
+        if (near != null) {
+            final AbstractDataObject cached = nearCacheGet(near, id);
+            if (cached != null) {
+                return CompletableFuture.completedFuture(cached);
+            }
+        }
+        final SingleFlight<UUID, AbstractDataObject> flight = singleFlight;
+        if (flight == null) {
+            return fetch(near, id);
+        }
+        return flight.execute(id, () -> fetch(near, id));
+    }
+
+    private CompletableFuture<AbstractDataObject> fetch(NearCache<UUID, byte[]> near, UUID id) {
+        if (near == null) {
+            return metered("get", () -> getCache().getAsync(id));
+        }
+        final long stamp = near.stamp();
+        return metered("get", () -> getCache().getAsync(id)).thenApply(fetched -> {
+            nearCachePut(near, id, fetched, stamp);
+            return fetched;
+        });
+    }
+
+    /*
+      RemoteCache of this Hot Rod version has no getAllAsync, so getAll runs on a worker.
+      Found DataObjects are returned in ids order, missing ids are mapped to null.
+    */
+    protected void getAllAsync(List<UUID> ids, Handler<AsyncResult<Map<UUID, AbstractDataObject>>> handler) {
+        final Map<UUID, AbstractDataObject> result = new LinkedHashMap<UUID, AbstractDataObject>();
+        final Set<UUID> missing = new HashSet<UUID>();
+        final NearCache<UUID, byte[]> near = nearCache;
+        for (UUID id : ids) {
+            final AbstractDataObject cached = near == null ? null : nearCacheGet(near, id);
+            result.put(id, cached);
+            if (cached == null) {
+                missing.add(id);
+            }
+        }
+        if (missing.isEmpty()) {
+            handler.handle(Future.succeededFuture(result));
+            return;
+        }
+        final long stamp = near == null ? 0 : near.stamp();
+        final RemoteCache<UUID, AbstractDataObject> c = getCache();
+        vertx.<Map<UUID, AbstractDataObject>>executeBlocking(future -> {
+            future.complete(meteredBlocking("getAll", () -> c.getAll(missing)));
+        }, false, ar -> {
+            if (ar.failed()) {
+                handler.handle(Future.failedFuture(ar.cause()));
+                return;
+            }
+            for (Map.Entry<UUID, AbstractDataObject> e : ar.result().entrySet()) {
+                result.put(e.getKey(), e.getValue());
+                if (near != null) {
+                    nearCachePut(near, e.getKey(), e.getValue(), stamp);
+                }
+            }
+            handler.handle(Future.succeededFuture(result));
+        });
+    }
+
+    /*
+      Times a RemoteCache call on the cache hop, call throwing is an error as well.
+    */
+    protected <T> CompletableFuture<T> metered(String operation, Supplier<CompletableFuture<T>> call) {
+        final OperationMetrics.Timer timer = getServiceMetrics().get(ServiceMetrics.HOP_CACHE, operation).start();
+        final CompletableFuture<T> future;
+        try {
+            future = call.get();
+        } catch (RuntimeException e) {
+            timer.stop(true);
+            throw e;
+        }
+        future.whenComplete((r, t) -> timer.stop(t != null));
+        return future;
+    }
+
+    protected <T> T meteredBlocking(String operation, Supplier<T> call) {
+        final OperationMetrics.Timer timer = getServiceMetrics().get(ServiceMetrics.HOP_CACHE, operation).start();
+        boolean error = true;
+        try {
+            final T result = call.get();
+            error = false;
+            return result;
+        } finally {
+            timer.stop(error);
+        }
+    }
+
+    private AbstractDataObject nearCacheGet(NearCache<UUID, byte[]> near, UUID id) {
+        final byte[] bytes = near.get(id);
+        if (bytes == null) {
+            return null;
+        }
+        try {
+            return (AbstractDataObject) getMarshaller().objectFromByteBuffer(bytes);
+        } catch (Exception e) {
+            LOGGER.warn("Could not read near cache entry for id={}", e, id);
+            near.invalidate(id);
+            return null;
+        }
+    }
+
+    private void nearCachePut(NearCache<UUID, byte[]> near, UUID id, AbstractDataObject ado, long stamp) {
+        if (ado == null) {
+            return;
+        }
+        try {
+            near.put(id, getMarshaller().objectToByteBuffer(ado), stamp);
+        } catch (Exception e) {
+            LOGGER.warn("Could not put id={} into near cache", e, id);
+        }
+    }
+
+    /*
+      Called before every local write of id: drops the near cache entry, and GETs
+      coming after the write do not join a remote read started before it.
+    */
+    protected void invalidateLocal(UUID id) {
+        final NearCache<UUID, byte[]> near = nearCache;
+        if (near != null) {
+            near.invalidate(id);
+        }
+        final SingleFlight<UUID, AbstractDataObject> flight = singleFlight;
+        if (flight != null) {
+            flight.forget(id);
+        }
     }
 
     protected String initConfiguration() {
@@ -129,32 +450,89 @@ public abstract class DataGridVerticle extends CommonVerticle implements DataGri
         hotrodServerHost = vertxConfig.getString(SERVICE_JDG_REMOTE_ADDRESS.key, SERVICE_JDG_REMOTE_ADDRESS.value);
         hotrodServerPort = Integer
                 .valueOf(vertxConfig.getString(SERVICE_JDG_REMOTE_PORT.key, SERVICE_JDG_REMOTE_PORT.value));
+        nearCacheMaxEntries = Integer.valueOf(vertxConfig.getString(SERVICE_JDG_NEAR_CACHE_MAX_ENTRIES.key,
+                SERVICE_JDG_NEAR_CACHE_MAX_ENTRIES.value));
+        nearCachePolicy = NearCache.EvictionPolicy.valueOf(vertxConfig
+                .getString(SERVICE_JDG_NEAR_CACHE_EVICTION.key, SERVICE_JDG_NEAR_CACHE_EVICTION.value).toUpperCase());
+        coalesceGets = Boolean.valueOf(
+                vertxConfig.getString(SERVICE_JDG_GET_COALESCING.key, SERVICE_JDG_GET_COALESCING.value));
+        changeEvents = Boolean.valueOf(
+                vertxConfig.getString(SERVICE_JDG_CHANGE_EVENTS.key, SERVICE_JDG_CHANGE_EVENTS.value));
+        scanBatchSize = Integer.valueOf(
+                vertxConfig.getString(SERVICE_JDG_SCAN_BATCH_SIZE.key, SERVICE_JDG_SCAN_BATCH_SIZE.value));
+        scanCursorTimeout = Long.valueOf(
+                vertxConfig.getString(SERVICE_JDG_SCAN_CURSOR_TIMEOUT.key, SERVICE_JDG_SCAN_CURSOR_TIMEOUT.value));
+        aggregateParallelism = Integer.valueOf(vertxConfig.getString(SERVICE_JDG_AGGREGATE_PARALLELISM.key,
+                SERVICE_JDG_AGGREGATE_PARALLELISM.value));
+        modifyMaxRetries = Integer.valueOf(
+                vertxConfig.getString(SERVICE_JDG_MODIFY_MAX_RETRIES.key, SERVICE_JDG_MODIFY_MAX_RETRIES.value));
+        modifyMaxQueue = Integer.valueOf(
+                vertxConfig.getString(SERVICE_JDG_MODIFY_MAX_QUEUE.key, SERVICE_JDG_MODIFY_MAX_QUEUE.value));
+        writeBehindWindow = Long.valueOf(
+                vertxConfig.getString(SERVICE_JDG_WRITE_BEHIND_WINDOW.key, SERVICE_JDG_WRITE_BEHIND_WINDOW.value));
+        writeBehindMaxChanges = Integer.valueOf(vertxConfig.getString(SERVICE_JDG_WRITE_BEHIND_MAX_CHANGES.key,
+                SERVICE_JDG_WRITE_BEHIND_MAX_CHANGES.value));
+        writeBehindAckEarly = "accept".equalsIgnoreCase(
+                vertxConfig.getString(SERVICE_JDG_WRITE_BEHIND_ACK.key, SERVICE_JDG_WRITE_BEHIND_ACK.value));
+        indexField = vertxConfig.getString(SERVICE_JDG_INDEX_FIELD.key, SERVICE_JDG_INDEX_FIELD.value);
+        if (indexField.equals("")) {
+            indexField = null;
+        } else {
+            indexCacheName = vertxConfig.getString(SERVICE_JDG_INDEX_CACHE.key, SERVICE_JDG_INDEX_CACHE.value);
+            if (indexCacheName.equals("")) {
+                indexCacheName = vertxConfig.getString(SERVICE_NAMESPACE.key, "") + "-by-" + indexField;
+            }
+        }
         final String info = super.initConfiguration()
-                + "INFINISPAN_HOTROD_SERVER_HOST - {}\nINFINISPAN_HOTROD_SERVER_PORT - {}\n";
+                + "INFINISPAN_HOTROD_SERVER_HOST - {}\nINFINISPAN_HOTROD_SERVER_PORT - {}\n"
+                + "NEAR_CACHE_MAX_ENTRIES - {}\nNEAR_CACHE_EVICTION - {}\nGET_COALESCING - {}\n"
+                + "CHANGE_EVENTS - {}\nINDEX_FIELD - {}\nINDEX_CACHE - {}\nSCAN_BATCH_SIZE - {}\n"
+                + "SCAN_CURSOR_TIMEOUT - {}\nAGGREGATE_PARALLELISM - {}\nMODIFY_MAX_RETRIES - {}\n"
+                + "MODIFY_MAX_QUEUE - {}\nWRITE_BEHIND_WINDOW - {}\nWRITE_BEHIND_MAX_CHANGES - {}\n"
+                + "WRITE_BEHIND_ACK_EARLY - {}\n";
+        // metrics need the service name
+        writeBehind = writeBehindWindow > 0
+                ? new WriteBehind(vertx, this::modifyDataObject, getServiceMetrics(), writeBehindWindow,
+                        writeBehindMaxChanges)
+                : null;
         return info;
     }
 
     protected void printInitialConfiguration(String info) {
         LOGGER.info(info, getClass().getName(), getHttpServerHost(), getHttpServerPort(), serviceContextName,
-                getEventBusAddress(), hotrodServerHost, hotrodServerPort);
+                getEventBusAddress(), hotrodServerHost, hotrodServerPort, nearCacheMaxEntries, nearCachePolicy,
+                coalesceGets, changeEvents, indexField, indexCacheName, scanBatchSize, scanCursorTimeout,
+                aggregateParallelism, modifyMaxRetries, modifyMaxQueue, writeBehindWindow, writeBehindMaxChanges,
+                writeBehindAckEarly);
     }
 
     protected Configuration getCacheManagerConfiguration() {
         LOGGER.debug("Creating remote cache configuration for host={}, port={}", hotrodServerHost, hotrodServerPort);
         ConfigurationBuilder builder = new ConfigurationBuilder();
         builder.addServer().host(hotrodServerHost).port(hotrodServerPort);
+        builder.marshaller(getMarshaller());
         return builder.build();
     }
 
+    protected synchronized DataObjectMarshaller getMarshaller() {
+        if (marshaller == null) {
+            DataObjectMarshaller m = new DataObjectMarshaller();
+            registerExternalizers(m);
+            marshaller = m;
+        }
+        return marshaller;
+    }
+
     @Override
-    protected void defaultEventBusHandler(Message<JsonObject> message) {
-        LOGGER.trace("Rise defaultEventBusHandler for message {}", message);
+    protected void defaultEventBusHandler(Message<JsonObject> received) {
+        LOGGER.trace("Rise defaultEventBusHandler for message {}", received);
+        final String operation = operationOf(received);
+        final Message<JsonObject> message = new MeteredMessage<JsonObject>(received, getServiceMetrics()
+                .get(ServiceMetrics.HOP_DATAGRID, operation == null ? "unknown" : operation));
         if (manager == null) {
             replyError(message, "Unable to perform operation, Remote CacheMnager is NULL");
             return;
         }
-        MultiMap headers = message.headers();
-        String operation = headers.get(SERVICE_OPERATION.key);
         if (operation == null) {
             replyError(message, "Operation must be set at message header " + SERVICE_OPERATION.key);
             return;
@@ -164,51 +542,181 @@ public abstract class DataGridVerticle extends CommonVerticle implements DataGri
             return;
         }
 
+        final DataGridRequest request;
+        try {
+            request = requestOf(message, operation);
+        } catch (IllegalArgumentException e) {
+            replyError(message, "Malformed request for operation " + operation + ": " + e.getMessage());
+            return;
+        }
+
         if (operation.equalsIgnoreCase("create")) {
-            defaultCreateDataObject(message);
+            defaultCreateDataObject(message, request);
             return;
         }
         if (operation.equalsIgnoreCase("get")) {
-            defaultGetDataObject(message);
+            defaultGetDataObject(message, request);
             return;
         }
         if (operation.equalsIgnoreCase("update")) {
-            defaultUpdateDataObject(message);
+            defaultUpdateDataObject(message, request);
             return;
         }
         if (operation.equalsIgnoreCase("remove")) {
-            defaultRemoveDataObject(message);
+            defaultRemoveDataObject(message, request);
+            return;
+        }
+        if (operation.equalsIgnoreCase("getAll")) {
+            defaultGetAllDataObjects(message, request);
+            return;
+        }
+        if (operation.equalsIgnoreCase("putAll")) {
+            defaultPutAllDataObjects(message, request);
+            return;
+        }
+        if (operation.equalsIgnoreCase("getByIndex")) {
+            defaultGetDataObjectByIndex(message, request);
+            return;
+        }
+        if (operation.equalsIgnoreCase("scan")) {
+            defaultScanDataObjects(message, request);
+            return;
+        }
+        if (operation.equalsIgnoreCase("scanClose")) {
+            defaultCloseScan(message, request);
+            return;
+        }
+        if (operation.equalsIgnoreCase("aggregate")) {
+            defaultAggregateDataObjects(message);
             return;
         }
         replyError(message, "Unknown operation " + operation);
     }
 
-    protected void getAsyncUtil(UUID id, Message<JsonObject> message, HttpResponseStatus success,
-            Handler<JsonObject> replyError) {
-        getCache().getAsync(id).whenComplete((fetched, t) -> {
+    /*
+      Direct call from a co-located caller, see LocalDataGridServices. Runs on this verticle's
+      context and goes the same way as an eventbus message with DataGridRequest body.
+    */
+    @Override
+    @SuppressWarnings("unchecked")
+    public void execute(DataGridRequest request, Handler<AsyncResult<DataGridReply>> handler) {
+        defaultEventBusHandler((Message<JsonObject>) (Message<?>) new LocalMessage<DataGridRequest>(
+                getEventBusAddress(), request, handler));
+    }
+
+    @Override
+    public void registerEventBusHandler() {
+        super.registerEventBusHandler();
+        LocalDataGridServices.binding(vertx, getEventBusAddress()).bind(this);
+    }
+
+    @Override
+    public void unregisterEventBusHandler() {
+        LocalDataGridServices.binding(vertx, getEventBusAddress()).unbind(this);
+        super.unregisterEventBusHandler();
+    }
+
+    // Typed request as is, JsonObject one is read by requestFromJson
+    protected DataGridRequest requestOf(Message<JsonObject> message, String operation) {
+        final Object body = ((Message<?>) message).body();
+        if (body instanceof DataGridRequest) {
+            return (DataGridRequest) body;
+        }
+        return requestFromJson(operation, message.body());
+    }
+
+    private String operationOf(Message<?> message) {
+        final Object body = message.body();
+        if (body instanceof DataGridRequest) {
+            return ((DataGridRequest) body).getOperation();
+        }
+        MultiMap headers = message.headers();
+        return headers.get(SERVICE_OPERATION.key);
+    }
+
+    protected DataGridRequest requestFromJson(String operation, JsonObject json) {
+        if (operation.equalsIgnoreCase("create") || operation.equalsIgnoreCase("update")) {
+            return new DataGridRequest(operation, dataObjectFromJson(json));
+        }
+        if (operation.equalsIgnoreCase("getAll")) {
+            final JsonArray array = json.getJsonArray("ids");
+            if (array == null) {
+                throw new IllegalArgumentException("There is no an ids array or it is NULL");
+            }
+            List<UUID> ids = new ArrayList<UUID>(array.size());
+            for (Object id : array) {
+                ids.add(UUID.fromString(String.valueOf(id)));
+            }
+            return new DataGridRequest(operation, ids);
+        }
+        if (operation.equalsIgnoreCase("putAll")) {
+            final JsonArray array = json.getJsonArray("dataObjects");
+            if (array == null) {
+                throw new IllegalArgumentException("There is no a dataObjects array or it is NULL");
+            }
+            List<AbstractDataObject> dataObjects = new ArrayList<AbstractDataObject>(array.size());
+            for (int i = 0; i < array.size(); i++) {
+                dataObjects.add(dataObjectFromJson(array.getJsonObject(i)));
+            }
+            return new DataGridRequest(operation, dataObjects);
+        }
+        if (operation.equalsIgnoreCase("getByIndex")) {
+            final String key = json.getString("key");
+            if (key == null) {
+                throw new IllegalArgumentException("There is no a key or it is NULL");
+            }
+            return new DataGridRequest(operation, key);
+        }
+        if (operation.equalsIgnoreCase("scan") || operation.equalsIgnoreCase("scanClose")) {
+            return new DataGridRequest(operation, json.getString("cursor"));
+        }
+        if (operation.equalsIgnoreCase("aggregate")) {
+            return new DataGridRequest(operation, (String) null);
+        }
+        final String id = json.getString(HTTP_GET_PARAMETER_ID);
+        if (id == null) {
+            throw new IllegalArgumentException("There is no an " + HTTP_GET_PARAMETER_ID + " or it is NULL");
+        }
+        return new DataGridRequest(operation, UUID.fromString(id));
+    }
+
+    /*
+      Typed requests are answered with DataGridReply as is, JsonObject requests get
+      the legacy { statusCode, result } wrapper.
+    */
+    protected void reply(Message<?> message, DataGridReply reply) {
+        LOGGER.trace("Reply to publisher with {}", reply);
+        if (message.body() instanceof DataGridRequest) {
+            message.reply(reply);
+        } else {
+            message.reply(reply.toJson());
+        }
+    }
+
+    protected void getAsyncUtil(UUID id, Message<?> message, HttpResponseStatus success,
+            Handler<Void> notFound) {
+        getAsync(id).whenComplete((fetched, t) -> {
             if (t != null) {
                 LOGGER.error("Error occured while working with cache", t);
                 replyError(message, t);
                 return;
             }
-            JsonObject reply = new JsonObject();
             if (fetched == null) {
-                replyError.handle(reply);
+                notFound.handle(null);
             } else {
-                reply.put("statusCode", success.code());
-                LOGGER.trace("GOT just created DataObject: {}", fetched);
-                reply.put("result", fetched.toJson());
-                LOGGER.trace("Reply to publisher with {}", reply);
+                LOGGER.trace("GOT DataObject: {}", fetched);
+                reply(message, new DataGridReply(success.code(), fetched));
             }
-            message.reply(reply);
         });
     }
 
-    protected void defaultCreateDataObject(Message<JsonObject> message) {
-        JsonObject o = message.body();
-        LOGGER.trace("About to PUT into Cache for o={}...", o);
-
-        AbstractDataObject ado = dataObjectFromJson(o);
+    protected void defaultCreateDataObject(Message<?> message, DataGridRequest request) {
+        AbstractDataObject ado = request.getDataObject();
+        LOGGER.trace("About to PUT into Cache for o={}...", ado);
+        if (ado == null) {
+            replyError(message, "There is no DataObject to create");
+            return;
+        }
 
         if (ado instanceof Versionable) {
             Versionable v = (Versionable) ado;
@@ -220,74 +728,287 @@ public abstract class DataGridVerticle extends CommonVerticle implements DataGri
             v.setVersion();
         }
 
+        final String key = indexKeyOf(ado);
+        final RemoteCache<String, UUID> index = key == null ? null : getIndexCache();
+        if (index == null) {
+            putIfAbsentDataObject(message, ado, null);
+            return;
+        }
+        // key is reserved first, so two objects never get the same one
+        metered("indexPutIfAbsent", () -> index.withFlags(Flag.FORCE_RETURN_VALUE).putIfAbsentAsync(key, ado.getId()))
+                .whenComplete((owner, t) -> {
+                    if (t != null) {
+                        LOGGER.error("Error occured while working with index cache", t);
+                        replyError(message, t);
+                        return;
+                    }
+                    if (owner != null && owner.equals(ado.getId()) == false) {
+                        replyIndexConflict(message, key, owner);
+                        return;
+                    }
+                    putIfAbsentDataObject(message, ado, owner == null ? key : null);
+                });
+    }
+
+    // reservedKey is released when the object is not stored
+    private void putIfAbsentDataObject(Message<?> message, AbstractDataObject ado, String reservedKey) {
         final UUID id = ado.getId();
+        final RemoteCache<UUID, AbstractDataObject> c = getCache();
 
-        RemoteCache<UUID, AbstractDataObject> c = getCache();
+        // putIfAbsent returns previous value only with FORCE_RETURN_VALUE
+        invalidateLocal(id);
+        metered("putIfAbsent", () -> c.withFlags(Flag.FORCE_RETURN_VALUE).putIfAbsentAsync(id, ado))
+                .whenComplete((existed, t) -> {
+                    LOGGER.trace("Cache PUT IF ABSENT for id={} completed, existed: {}", id, existed);
+                    if (t != null || existed != null) {
+                        releaseIndexKey(reservedKey, null);
+                    }
+                    if (t != null) {
+                        LOGGER.error("Error occured while working with cache", t);
+                        replyError(message, t);
+                        return;
+                    }
+                    if (existed != null) {
+                        LOGGER.debug("Key '{}' already exists in cache {}", id, c.getName());
+                        message.fail(HttpResponseStatus.CONFLICT.code(),
+                                "Key '" + id + "' already exists in cache " + c.getName());
+                        return;
+                    }
+                    reply(message, new DataGridReply(HttpResponseStatus.CREATED.code(), ado));
+                });
+    }
+
+    protected void defaultGetDataObject(Message<?> message, DataGridRequest request) {
+        final UUID id = request.getId();
+        LOGGER.trace("About to GET Cache for id={}...", id);
+        getAsyncUtil(id, message, HttpResponseStatus.OK, v -> {
+            LOGGER.debug("DataObject not found for id={}", id);
+            reply(message, new DataGridReply(HttpResponseStatus.NOT_FOUND.code()));
+        });
+    }
 
-        if (c.containsKey(id)) {
-            replyError(message, "Key '" + id + "' already exists in cache " + c.getName());
+    /*
+      Versionable objects are replaced only if their version is the current one. Grid entry
+      version read together with the object makes the compare-and-set atomic on the server.
+      RemoteCache of this Hot Rod version has no getWithMetadataAsync, so it runs on a worker.
+    */
+    protected void defaultUpdateDataObject(Message<?> message, DataGridRequest request) {
+        final AbstractDataObject ado = request.getDataObject();
+        if (ado == null) {
+            replyError(message, "There is no DataObject to update");
             return;
         }
+        final UUID id = ado.getId();
+        LOGGER.trace("About to UPDATE Cache for id={} for object {}...", id, ado);
 
-        c.putAsync(id, ado).whenComplete((result, t) -> {
-            LOGGER.trace("Cache PUT for id={}  completed with result: {}", id, result);
-            if (t != null) {
-                LOGGER.error("Error occured while working with cache", t);
-                replyError(message, t);
+        if (ado instanceof Versionable == false) {
+            realDefaultUpdateDataObject(message, ado, -1, null);
+            return;
+        }
+        final Versionable expected = (Versionable) ado;
+        if (expected.isVersionSet() == false) {
+            message.fail(HttpResponseStatus.PRECONDITION_REQUIRED.code(),
+                    "Version of " + Versionable.class.getName() + " must be set for update of " + id);
+            return;
+        }
+        final RemoteCache<UUID, AbstractDataObject> c = getCache();
+        vertx.<MetadataValue<AbstractDataObject>>executeBlocking(future -> {
+            future.complete(meteredBlocking("getWithMetadata", () -> c.getWithMetadata(id)));
+        }, false, ar -> {
+            if (ar.failed()) {
+                LOGGER.error("Error occured while working with cache", ar.cause());
+                replyError(message, ar.cause());
                 return;
             }
-            getAsyncUtil(id, message, HttpResponseStatus.CREATED, reply -> {
-                replyError(message, "Could not get just put dataObject with id " + id);
-            });
+            final MetadataValue<AbstractDataObject> current = ar.result();
+            if (current == null) {
+                LOGGER.debug("DataObject not found for id={}", id);
+                reply(message, new DataGridReply(HttpResponseStatus.NOT_FOUND.code()));
+                return;
+            }
+            if (expected.isVersionEqual(current.getValue()) == false) {
+                replyConflict(message, id, expected.versionAsString());
+                return;
+            }
+            realDefaultUpdateDataObject(message, ado, current.getVersion(), current.getValue());
         });
     }
 
-    protected void defaultGetDataObject(Message<JsonObject> message) {
-        final UUID id = UUID.fromString(message.body().getString(HTTP_GET_PARAMETER_ID));
-        LOGGER.trace("About to GET Cache for id={}...", id);
-        getAsyncUtil(id, message, HttpResponseStatus.OK, reply -> {
-            LOGGER.debug("DataObject not found for id={}", id);
-            reply.put("statusCode", HttpResponseStatus.NOT_FOUND.code());
-        });
+    /*
+      Atomic read-modify-write of one DataObject, for changes like credit that do not depend on
+      what the caller has seen. Stored object is replaced on its grid entry version, a lost race is
+      retried with a fresh read up to service.jdg.modify.max.retries times, then it is 409.
+      Modifications of one id are queued in this JVM, so its instances never race each other.
+      mutation returns the new object, with a new version if it is Versionable, and may throw
+      IllegalStateException to refuse the change, which is 422.
+    */
+    protected void modifyDataObject(Message<?> message, UUID id, UnaryOperator<AbstractDataObject> mutation) {
+        modifyDataObject(id, mutation, ar -> replyModified(message, ar));
     }
 
-    protected void defaultUpdateDataObject(Message<JsonObject> message) {
-        JsonObject json = message.body();
-        final UUID id = UUID.fromString(json.getString(HTTP_GET_PARAMETER_ID));
-        LOGGER.trace("About to UPDATE Cache for id={} for object {}...", id, json);
+    /*
+      Same as above through write-behind when service.jdg.write.behind.window.millis is set: changes
+      of one id are flushed together by one replace. Reply comes after the flush, unless
+      service.jdg.write.behind.ack is accept and ackEarly is true, then it is 202 right away. Only
+      changes whose refusal does not depend on other changes, like a credit, should be acked early.
+    */
+    protected void modifyDataObjectBehind(Message<?> message, UUID id, UnaryOperator<AbstractDataObject> mutation,
+            boolean ackEarly) {
+        final WriteBehind wb = writeBehind;
+        if (wb == null) {
+            modifyDataObject(message, id, mutation);
+            return;
+        }
+        if (ackEarly && writeBehindAckEarly) {
+            wb.submit(id, mutation, null);
+            reply(message, new DataGridReply(HttpResponseStatus.ACCEPTED.code()));
+            return;
+        }
+        wb.submit(id, mutation, ar -> replyModified(message, ar));
+    }
 
-        AbstractDataObject ado = dataObjectFromJson(json);
-        if (ado instanceof Versionable) {
-            Versionable _new = (Versionable) ado;
-            getCache().getAsync(id).whenComplete((result, t) -> {
-                if (result instanceof Versionable) {
-                    Versionable _old = (Versionable) result;
-                    if (_old.isVersionEqual(_new)) {
-                        // real update
-                        realDefaultUpdateDataObject(message, ado, true);
-                        return;
-                    } else {
-                        replyError(message, "Update object " + result.toJson() + " with wrong versin "
-                                + ado.toJson().getString("version"));
-                        return;
-                    }
-                } else {
-                    replyError(message,
-                            "Trying to update non-versionable DataObject" + result + " with versionrd " + _new);
+    private void replyModified(Message<?> message, AsyncResult<AbstractDataObject> ar) {
+        if (ar.failed()) {
+            final Throwable t = ar.cause();
+            if (t instanceof ReplyException && ((ReplyException) t).failureCode() > 0) {
+                message.fail(((ReplyException) t).failureCode(), t.getMessage());
+            } else {
+                replyError(message, t.getMessage());
+            }
+            return;
+        }
+        reply(message, ar.result() == null ? new DataGridReply(HttpResponseStatus.NOT_FOUND.code())
+                : new DataGridReply(HttpResponseStatus.OK.code(), ar.result()));
+    }
+
+    /*
+      Same as above for callers that go on with the result. Result is null when there is no such id,
+      refusal, lost races and a full queue fail with ReplyException of 422, 409 and 503.
+    */
+    protected void modifyDataObject(UUID id, UnaryOperator<AbstractDataObject> mutation,
+            Handler<AsyncResult<AbstractDataObject>> handler) {
+        final MutationQueue<UUID> queue = mutationQueue;
+        if (queue == null || id == null) {
+            handler.handle(Future.failedFuture(id == null ? "There is no id to modify"
+                    : "Remote CacheManager is not available"));
+            return;
+        }
+        final Context context = vertx.getOrCreateContext();
+        if (queue.submit(id, context, done -> modifyAttempt(context, id, mutation, 1, ar -> {
+            done.run();
+            handler.handle(ar);
+        })) == false) {
+            handler.handle(Future.failedFuture(modifyFailure(HttpResponseStatus.SERVICE_UNAVAILABLE,
+                    "Too many pending changes of " + id)));
+        }
+    }
+
+    private static ReplyException modifyFailure(HttpResponseStatus status, String msg) {
+        return new ReplyException(ReplyFailure.RECIPIENT_FAILURE, status.code(), msg);
+    }
+
+    // Handler and retries run on context, replace completes on a Hot Rod thread
+    private void modifyAttempt(Context context, UUID id, UnaryOperator<AbstractDataObject> mutation, int attempt,
+            Handler<AsyncResult<AbstractDataObject>> handler) {
+        final RemoteCache<UUID, AbstractDataObject> c = getCache();
+        vertx.<MetadataValue<AbstractDataObject>>executeBlocking(future -> {
+            future.complete(meteredBlocking("getWithMetadata", () -> c.getWithMetadata(id)));
+        }, false, ar -> {
+            if (ar.failed()) {
+                LOGGER.error("Error occured while working with cache", ar.cause());
+                resetCache(ar.cause());
+                handler.handle(Future.failedFuture(ar.cause()));
+                return;
+            }
+            final MetadataValue<AbstractDataObject> current = ar.result();
+            if (current == null) {
+                handler.handle(Future.succeededFuture());
+                return;
+            }
+            final AbstractDataObject changed;
+            try {
+                changed = mutation.apply(current.getValue());
+            } catch (IllegalStateException e) {
+                LOGGER.debug("Change of id={} refused: {}", id, e.getMessage());
+                handler.handle(Future.failedFuture(modifyFailure(HttpResponseStatus.UNPROCESSABLE_ENTITY,
+                        e.getMessage())));
+                return;
+            } catch (RuntimeException e) {
+                // handler must run whatever happens, it releases the queue of the id
+                LOGGER.error("Change of id={} failed", e, id);
+                handler.handle(Future.failedFuture(modifyFailure(HttpResponseStatus.INTERNAL_SERVER_ERROR,
+                        "Change of " + id + " failed: " + e)));
+                return;
+            }
+            invalidateLocal(id);
+            final CompletableFuture<Boolean> replace;
+            try {
+                replace = metered("replaceWithVersion",
+                        () -> c.replaceWithVersionAsync(id, changed, current.getVersion()));
+            } catch (RuntimeException e) {
+                LOGGER.error("Error occured while working with cache", e);
+                resetCache(e);
+                handler.handle(Future.failedFuture(e));
+                return;
+            }
+            replace.whenComplete((replaced, t) -> context.runOnContext(v -> {
+                if (t != null) {
+                    LOGGER.error("Error occured while working with cache", t);
+                    resetCache(t);
+                    handler.handle(Future.failedFuture(t));
                     return;
                 }
-            });
-        } else {
-            // Non-versionable
-            realDefaultUpdateDataObject(message, ado, false);
+                if (replaced) {
+                    handler.handle(Future.succeededFuture(changed));
+                    return;
+                }
+                if (attempt >= modifyMaxRetries) {
+                    LOGGER.debug("Change of id={} lost the race {} times", id, attempt);
+                    handler.handle(Future.failedFuture(modifyFailure(HttpResponseStatus.CONFLICT,
+                            "Could not change " + id + " after " + attempt + " attempts")));
+                    return;
+                }
+                LOGGER.trace("Change of id={} lost the race, attempt {}", id, attempt);
+                modifyAttempt(context, id, mutation, attempt + 1, handler);
+            }));
+        });
+    }
+
+    /*
+      entryVersion < 0 replaces unconditionally, otherwise only the grid entry with this version.
+      Versionable object gets a new version, reply carries the object as stored.
+      current is the stored object when it is known. A changed index key is reserved before
+      the replace, the previous one is dropped after it.
+    */
+    protected void realDefaultUpdateDataObject(Message<?> message, AbstractDataObject _new, long entryVersion,
+            AbstractDataObject current) {
+        final String key = indexKeyOf(_new);
+        final RemoteCache<String, UUID> index = indexField == null ? null : getIndexCache();
+        if (index == null || key == null || (current != null && key.equals(indexKeyOf(current)))) {
+            replaceDataObject(message, _new, entryVersion, current, null);
+            return;
         }
+        final UUID id = _new.getId();
+        metered("indexPutIfAbsent", () -> index.withFlags(Flag.FORCE_RETURN_VALUE).putIfAbsentAsync(key, id))
+                .whenComplete((owner, t) -> {
+                    if (t != null) {
+                        LOGGER.error("Error occured while working with index cache", t);
+                        replyError(message, t);
+                        return;
+                    }
+                    if (owner != null && owner.equals(id) == false) {
+                        replyIndexConflict(message, key, owner);
+                        return;
+                    }
+                    replaceDataObject(message, _new, entryVersion, current, owner == null ? key : null);
+                });
     }
 
-    protected void realDefaultUpdateDataObject(Message<JsonObject> message, AbstractDataObject _new,
-            boolean versioned) {
+    private void replaceDataObject(Message<?> message, AbstractDataObject _new, long entryVersion,
+            AbstractDataObject current, String reservedKey) {
         final UUID id = _new.getId();
         AbstractDataObject ado;
-        if (versioned) {
+        if (_new instanceof Versionable) {
             JsonObject json = _new.toJson();
             json.put("version", UUID.randomUUID().toString());
             ado = dataObjectFromJson(json);
@@ -295,49 +1016,435 @@ public abstract class DataGridVerticle extends CommonVerticle implements DataGri
             ado = _new;
         }
 
-        getCache().replaceAsync(id, ado).whenComplete((result, t) -> {
-            LOGGER.trace("Cache REPLACE for id={} completed with result: {}", id, result);
+        invalidateLocal(id);
+        if (entryVersion < 0) {
+            // replace returns previous value only with FORCE_RETURN_VALUE
+            metered("replace", () -> getCache().withFlags(Flag.FORCE_RETURN_VALUE).replaceAsync(id, ado))
+                    .whenComplete((previous, t) -> {
+                        LOGGER.trace("Cache REPLACE for id={} completed, previous: {}", id, previous);
+                        if (t != null || previous == null) {
+                            releaseIndexKey(reservedKey, null);
+                        }
+                        if (t != null) {
+                            LOGGER.error("Error occured while working with cache", t);
+                            replyError(message, t);
+                            return;
+                        }
+                        if (previous == null) {
+                            reply(message, new DataGridReply(HttpResponseStatus.NOT_FOUND.code()));
+                            return;
+                        }
+                        releaseIndexKey(indexKeyOf(previous), indexKeyOf(ado));
+                        reply(message, new DataGridReply(HttpResponseStatus.OK.code(), ado));
+                    });
+            return;
+        }
+        metered("replaceWithVersion", () -> getCache().replaceWithVersionAsync(id, ado, entryVersion))
+                .whenComplete((replaced, t) -> {
+                    LOGGER.trace("Cache REPLACE for id={} with entry version {} completed: {}", id, entryVersion,
+                            replaced);
+                    if (t != null || replaced == false) {
+                        releaseIndexKey(reservedKey, null);
+                    }
+                    if (t != null) {
+                        LOGGER.error("Error occured while working with cache", t);
+                        replyError(message, t);
+                        return;
+                    }
+                    if (replaced == false) {
+                        replyConflict(message, id, ((Versionable) _new).versionAsString());
+                        return;
+                    }
+                    releaseIndexKey(indexKeyOf(current), indexKeyOf(ado));
+                    reply(message, new DataGridReply(HttpResponseStatus.OK.code(), ado));
+                });
+    }
+
+    /*
+      Drops index entry of key unless it is still in use as keep. Key is only ever owned by one id,
+      so entry is removed unconditionally. Failure leaves a stale entry, lookups check it.
+    */
+    private void releaseIndexKey(String key, String keep) {
+        if (key == null || key.equals(keep)) {
+            return;
+        }
+        final RemoteCache<String, UUID> index = getIndexCache();
+        if (index == null) {
+            return;
+        }
+        metered("indexRemove", () -> index.removeAsync(key)).whenComplete((r, t) -> {
+            if (t != null) {
+                LOGGER.warn("Could not remove index key {}, entry is stale now", t, key);
+            }
+        });
+    }
+
+    protected void defaultRemoveDataObject(Message<?> message, DataGridRequest request) {
+        final UUID id = request.getId();
+        LOGGER.debug("About to REMOVE Cache for id={} for object {}...", id);
+        invalidateLocal(id);
+        final boolean indexed = indexField != null;
+        // removed object is needed only to drop its index key
+        metered("remove", () -> indexed ? getCache().withFlags(Flag.FORCE_RETURN_VALUE).removeAsync(id)
+                : getCache().removeAsync(id)).whenCompleteAsync((removed, t) -> {
+            LOGGER.trace("Cache DELETE for id={} completed with result: {}", id, removed);
             if (t != null) {
                 LOGGER.error("Error occured while working with cache", t);
                 replyError(message, t);
                 return;
             }
-            getAsyncUtil(id, message, HttpResponseStatus.OK, reply -> {
-                replyError(message, "Could not get just replaced dataObject with id " + id);
-            });
+            releaseIndexKey(indexKeyOf(removed), null);
+            reply(message, new DataGridReply(HttpResponseStatus.NO_CONTENT.code()));
         });
     }
 
-    protected void defaultRemoveDataObject(Message<JsonObject> message) {
-        final UUID id = UUID.fromString(message.body().getString(HTTP_GET_PARAMETER_ID));
-        LOGGER.debug("About to REMOVE Cache for id={} for object {}...", id);
-        getCache().removeAsync(id).whenCompleteAsync((result, t) -> {
-            LOGGER.trace("Cache DELETE for id={} completed with result: {}", id, result);
+    /*
+      Two reads: index key -> id, then the object by id (near cache and coalescing apply).
+      Object whose key is not the one asked, left by a failed update, is not found.
+    */
+    protected void defaultGetDataObjectByIndex(Message<?> message, DataGridRequest request) {
+        final String key = request.getKey();
+        final RemoteCache<String, UUID> index = getIndexCache();
+        if (index == null) {
+            message.fail(HttpResponseStatus.NOT_IMPLEMENTED.code(), "There is no index, "
+                    + SERVICE_JDG_INDEX_FIELD.key + " is not set");
+            return;
+        }
+        if (key == null) {
+            replyError(message, "There is no index key to get");
+            return;
+        }
+        LOGGER.trace("About to GET Cache for index key={}...", key);
+        metered("indexGet", () -> index.getAsync(key)).thenCompose(id -> id == null
+                ? CompletableFuture.<AbstractDataObject>completedFuture(null) : getAsync(id))
+                .whenComplete((fetched, t) -> {
+                    if (t != null) {
+                        LOGGER.error("Error occured while working with cache", t);
+                        replyError(message, t);
+                        return;
+                    }
+                    if (fetched == null || key.equals(indexKeyOf(fetched)) == false) {
+                        LOGGER.debug("DataObject not found for index key={}", key);
+                        reply(message, new DataGridReply(HttpResponseStatus.NOT_FOUND.code()));
+                        return;
+                    }
+                    reply(message, new DataGridReply(HttpResponseStatus.OK.code(), fetched));
+                });
+    }
+
+    protected void defaultGetAllDataObjects(Message<?> message, DataGridRequest request) {
+        final List<UUID> ids = request.getIds();
+        if (ids == null) {
+            replyError(message, "There is no ids to get");
+            return;
+        }
+        LOGGER.trace("About to GET ALL Cache for {} ids...", ids.size());
+        getAllAsync(ids, ar -> {
+            if (ar.failed()) {
+                LOGGER.error("Error occured while working with cache", ar.cause());
+                replyError(message, ar.cause());
+                return;
+            }
+            reply(message, new DataGridReply(HttpResponseStatus.OK.code(), ar.result()));
+        });
+    }
+
+    /*
+      One page of a full scan, no cursor opens a new one. Hot Rod entry iteration is blocking,
+      so the page is read on a worker. Reply cursor is null after the last page, an unknown
+      or expired cursor is 410.
+    */
+    protected void defaultScanDataObjects(Message<?> message, DataGridRequest request) {
+        final ScanCursors cursors = scanCursors;
+        final RemoteCache<UUID, AbstractDataObject> c = getCache();
+        if (cursors == null || c == null) {
+            replyError(message, "Remote CacheManager is not available");
+            return;
+        }
+        final String id = request.getKey();
+        final ScanCursors.Cursor cursor;
+        if (id == null) {
+            cursor = null;
+        } else {
+            cursor = cursors.take(id);
+            if (cursor == null) {
+                message.fail(HttpResponseStatus.GONE.code(), "Scan cursor " + id + " is unknown or expired");
+                return;
+            }
+        }
+        vertx.<DataGridReply>executeBlocking(future -> {
+            final ScanCursors.Cursor current = cursor != null ? cursor
+                    : meteredBlocking("scanOpen", () -> cursors.open(c.retrieveEntries(null, scanBatchSize)));
+            final Map<UUID, AbstractDataObject> page;
+            try {
+                page = meteredBlocking("scan", () -> current.next(scanBatchSize));
+            } catch (RuntimeException e) {
+                // iterator state is unknown after a failure, it is not reused
+                cursors.discard(current);
+                throw e;
+            }
+            cursors.release(current);
+            LOGGER.trace("Scan {} read {} entries, exhausted: {}", current.getId(), page.size(),
+                    current.isExhausted());
+            future.complete(new DataGridReply(HttpResponseStatus.OK.code(), page,
+                    current.isExhausted() ? null : current.getId()));
+        }, false, ar -> {
+            if (ar.failed()) {
+                LOGGER.error("Error occured while scanning cache", ar.cause());
+                replyError(message, ar.cause());
+                return;
+            }
+            reply(message, ar.result());
+        });
+    }
+
+    // Closing the iterator is a round trip to the server, so it is done on a worker
+    protected void defaultCloseScan(Message<?> message, DataGridRequest request) {
+        final ScanCursors cursors = scanCursors;
+        final String id = request.getKey();
+        if (cursors == null || id == null) {
+            reply(message, new DataGridReply(HttpResponseStatus.NO_CONTENT.code()));
+            return;
+        }
+        vertx.<Boolean>executeBlocking(future -> future.complete(cursors.close(id)), false, ar -> {
+            if (ar.failed()) {
+                LOGGER.warn("Could not close scan {}", ar.cause(), id);
+            } else if (ar.result()) {
+                LOGGER.trace("Scan {} closed", id);
+            }
+            reply(message, new DataGridReply(HttpResponseStatus.NO_CONTENT.code()));
+        });
+    }
+
+    /*
+      Reduces the whole cache with newAggregation(). Segments are split into up to
+      service.jdg.aggregate.parallelism groups, each group is iterated and reduced on its own worker,
+      partials are merged here. Only the aggregates are sent to the caller.
+    */
+    protected void defaultAggregateDataObjects(Message<?> message) {
+        final Aggregation total = newAggregation();
+        if (total == null) {
+            message.fail(HttpResponseStatus.NOT_IMPLEMENTED.code(), getServiceName() + " has no aggregation");
+            return;
+        }
+        final RemoteCache<UUID, AbstractDataObject> c = getCache();
+        if (c == null) {
+            replyError(message, "Remote CacheManager is not available");
+            return;
+        }
+        final CacheTopologyInfo topology = c.getCacheTopologyInfo();
+        final List<Set<Integer>> groups = segmentGroups(topology == null ? null : topology.getSegmentsPerServer(),
+                aggregateParallelism);
+        LOGGER.trace("About to AGGREGATE Cache in {} segment groups...", groups.size());
+        @SuppressWarnings("rawtypes")
+        final List<Future> partials = new ArrayList<Future>(groups.size());
+        for (Set<Integer> segments : groups) {
+            final Future<Aggregation> partial = Future.future();
+            partials.add(partial);
+            vertx.<Aggregation>executeBlocking(future -> {
+                future.complete(meteredBlocking("aggregate", () -> aggregate(c, segments)));
+            }, false, partial);
+        }
+        CompositeFuture.all(partials).setHandler(ar -> {
+            if (ar.failed()) {
+                LOGGER.error("Error occured while aggregating cache", ar.cause());
+                replyError(message, ar.cause());
+                return;
+            }
+            for (int i = 0; i < groups.size(); i++) {
+                total.merge(ar.result().resultAt(i));
+            }
+            reply(message, new DataGridReply(HttpResponseStatus.OK.code(), total.toJson()));
+        });
+    }
+
+    // Blocking
+    private Aggregation aggregate(RemoteCache<UUID, AbstractDataObject> c, Set<Integer> segments) {
+        final Aggregation partial = newAggregation();
+        try (CloseableIterator<Map.Entry<Object, Object>> entries = c.retrieveEntries(null, segments,
+                scanBatchSize)) {
+            while (entries.hasNext()) {
+                partial.accumulate((AbstractDataObject) entries.next().getValue());
+            }
+        }
+        return partial;
+    }
+
+    /*
+      Groups of segments, round robin over the segments owned by the servers. One null group,
+      the whole cache, when the cache has no segment owners (local cache) or parallelism is 1.
+      getNumSegments() is not used, it throws for a local cache.
+    */
+    static List<Set<Integer>> segmentGroups(Map<?, Set<Integer>> segmentsPerServer, int parallelism) {
+        final Set<Integer> segments = new TreeSet<Integer>();
+        if (segmentsPerServer != null) {
+            for (Set<Integer> owned : segmentsPerServer.values()) {
+                segments.addAll(owned);
+            }
+        }
+        if (segments.size() <= 1 || parallelism <= 1) {
+            return Collections.singletonList(null);
+        }
+        final int size = Math.min(parallelism, segments.size());
+        final List<Set<Integer>> groups = new ArrayList<Set<Integer>>(size);
+        for (int i = 0; i < size; i++) {
+            groups.add(new HashSet<Integer>());
+        }
+        int i = 0;
+        for (Integer segment : segments) {
+            groups.get(i++ % size).add(segment);
+        }
+        return groups;
+    }
+
+    /*
+      Bulk upsert in one putAll round trip, existing keys are overwritten.
+      Versionable objects without version get a new one, like on create.
+      With the index on, keys are reserved the way create does it. Record whose key is used by another
+      id, in the grid or earlier in the batch, is left out and listed under "rejected" of the reply
+      result, keys of overwritten objects are dropped after the put.
+    */
+    protected void defaultPutAllDataObjects(Message<?> message, DataGridRequest request) {
+        final Collection<AbstractDataObject> dataObjects = request.getDataObjects();
+        if (dataObjects == null) {
+            replyError(message, "There is no DataObjects to put");
+            return;
+        }
+        LOGGER.trace("About to PUT ALL into Cache for {} objects...", dataObjects.size());
+        // in batch order, so the earlier of two records with one key is kept
+        final Map<UUID, AbstractDataObject> map = new LinkedHashMap<UUID, AbstractDataObject>(dataObjects.size() * 2);
+        for (AbstractDataObject ado : dataObjects) {
+            if (ado instanceof Versionable && ((Versionable) ado).isVersionSet() == false) {
+                ((Versionable) ado).setVersion();
+            }
+            map.put(ado.getId(), ado);
+        }
+        final RemoteCache<String, UUID> index = indexField == null ? null : getIndexCache();
+        if (index == null) {
+            putAllDataObjects(message, map, Collections.<UUID, AbstractDataObject>emptyMap(),
+                    Collections.<String>emptyList(), new JsonArray());
+            return;
+        }
+        final RemoteCache<UUID, AbstractDataObject> c = getCache();
+        // previous objects give the keys to drop, there is no getAllAsync
+        vertx.<Map<UUID, AbstractDataObject>>executeBlocking(future -> {
+            future.complete(meteredBlocking("getAll", () -> c.getAll(map.keySet())));
+        }, false, ar -> {
+            if (ar.failed()) {
+                LOGGER.error("Error occured while working with cache", ar.cause());
+                replyError(message, ar.cause());
+                return;
+            }
+            reserveIndexKeys(message, index, map, ar.result());
+        });
+    }
+
+    private void reserveIndexKeys(Message<?> message, RemoteCache<String, UUID> index,
+            Map<UUID, AbstractDataObject> map, Map<UUID, AbstractDataObject> previous) {
+        final JsonArray rejected = new JsonArray();
+        final Map<String, UUID> batchKeys = new HashMap<String, UUID>();
+        final Map<String, CompletableFuture<UUID>> reservations = new HashMap<String, CompletableFuture<UUID>>();
+        for (Iterator<AbstractDataObject> i = map.values().iterator(); i.hasNext();) {
+            final AbstractDataObject ado = i.next();
+            final UUID id = ado.getId();
+            final String key = indexKeyOf(ado);
+            if (key == null) {
+                continue;
+            }
+            final UUID other = batchKeys.putIfAbsent(key, id);
+            if (other != null) {
+                i.remove();
+                rejected.add(indexConflictOf(id, key, other));
+                continue;
+            }
+            if (key.equals(indexKeyOf(previous.get(id))) == false) {
+                reservations.put(key, metered("indexPutIfAbsent",
+                        () -> index.withFlags(Flag.FORCE_RETURN_VALUE).putIfAbsentAsync(key, id)));
+            }
+        }
+        CompletableFuture.allOf(reservations.values().toArray(new CompletableFuture<?>[reservations.size()]))
+                .whenComplete((v, t) -> {
+                    final List<String> reserved = new ArrayList<String>();
+                    reservations.forEach((key, reservation) -> {
+                        if (reservation.isCompletedExceptionally()) {
+                            return;
+                        }
+                        final UUID owner = reservation.join();
+                        final UUID id = batchKeys.get(key);
+                        if (owner == null) {
+                            reserved.add(key);
+                        } else if (owner.equals(id) == false) {
+                            map.remove(id);
+                            rejected.add(indexConflictOf(id, key, owner));
+                        }
+                    });
+                    if (t != null) {
+                        LOGGER.error("Error occured while working with index cache", t);
+                        reserved.forEach(key -> releaseIndexKey(key, null));
+                        replyError(message, t);
+                        return;
+                    }
+                    putAllDataObjects(message, map, previous, reserved, rejected);
+                });
+    }
+
+    private JsonObject indexConflictOf(UUID id, String key, UUID owner) {
+        LOGGER.debug("Index key {} of id={} is already used by id={}", key, id, owner);
+        return new JsonObject().put("id", id.toString()).put("error",
+                indexField + " " + key + " is already used by " + owner);
+    }
+
+    // reserved keys are released when the put fails, keys of previous objects after it succeeds
+    private void putAllDataObjects(Message<?> message, Map<UUID, AbstractDataObject> map,
+            Map<UUID, AbstractDataObject> previous, List<String> reserved, JsonArray rejected) {
+        for (UUID id : map.keySet()) {
+            invalidateLocal(id);
+        }
+        metered("putAll", () -> getCache().putAllAsync(map)).whenComplete((result, t) -> {
+            LOGGER.trace("Cache PUT ALL for {} objects completed", map.size());
             if (t != null) {
                 LOGGER.error("Error occured while working with cache", t);
+                reserved.forEach(key -> releaseIndexKey(key, null));
                 replyError(message, t);
                 return;
             }
-            JsonObject reply = new JsonObject();
-            reply.put("statusCode", HttpResponseStatus.NO_CONTENT.code());
-            LOGGER.debug("Reply to publisher with {}", reply);
-            message.reply(reply);
+            map.forEach((id, ado) -> releaseIndexKey(indexKeyOf(previous.get(id)), indexKeyOf(ado)));
+            reply(message, rejected.isEmpty() ? new DataGridReply(HttpResponseStatus.CREATED.code())
+                    : new DataGridReply(HttpResponseStatus.CREATED.code(), new JsonObject().put("rejected", rejected)));
         });
     }
 
-    private void replyError(Message<JsonObject> message, Throwable t) {
+    private void replyError(Message<?> message, Throwable t) {
         resetCache(t);
         replyError(message, t.getMessage());
     }
 
-    private void replyError(Message<JsonObject> message, String msg) {
+    private void replyIndexConflict(Message<?> message, String key, UUID owner) {
+        LOGGER.debug("Index key {} is already used by id={}", key, owner);
+        message.fail(HttpResponseStatus.CONFLICT.code(), indexField + " " + key + " is already used by " + owner);
+    }
+
+    private void replyConflict(Message<?> message, UUID id, String version) {
+        LOGGER.debug("Version {} of id={} is not the current one", version, id);
+        message.fail(HttpResponseStatus.PRECONDITION_FAILED.code(),
+                "Version " + version + " of " + id + " is not the current one");
+    }
+
+    private void replyError(Message<?> message, String msg) {
         message.fail(HttpResponseStatus.INTERNAL_SERVER_ERROR.code(), msg);
     }
 
+    // Reducer of the "aggregate" operation, null when the service has none
+    protected Aggregation newAggregation() {
+        return null;
+    }
+
     protected abstract boolean customEventBusHandler(Message<JsonObject> message, String operation);
 
     protected abstract AbstractDataObject dataObjectFromJson(JsonObject json);
 
+    protected abstract void registerExternalizers(DataObjectMarshaller marshaller);
+
     // Management methods
 
     @Override
@@ -385,4 +1492,100 @@ public abstract class DataGridVerticle extends CommonVerticle implements DataGri
     public int getHotrodServerPort() {
       return hotrodServerPort;
     }
+
+    @Override
+    public int getCacheManagerReferences() {
+        final SharedRemoteCacheManager s = shared;
+        return s == null ? 0 : s.getReferences();
+    }
+
+    @Override
+    public int getNearCacheMaxEntries() {
+        return nearCacheMaxEntries;
+    }
+
+    @Override
+    public String getNearCacheEvictionPolicy() {
+        return nearCachePolicy == null ? null : nearCachePolicy.name();
+    }
+
+    @Override
+    public int getNearCacheSize() {
+        final NearCache<UUID, byte[]> near = nearCache;
+        return near == null ? 0 : near.size();
+    }
+
+    @Override
+    public long getNearCacheHits() {
+        final NearCache<UUID, byte[]> near = nearCache;
+        return near == null ? 0 : near.getHits();
+    }
+
+    @Override
+    public long getNearCacheMisses() {
+        final NearCache<UUID, byte[]> near = nearCache;
+        return near == null ? 0 : near.getMisses();
+    }
+
+    @Override
+    public long getNearCacheEvictions() {
+        final NearCache<UUID, byte[]> near = nearCache;
+        return near == null ? 0 : near.getEvictions();
+    }
+
+    @Override
+    public long getNearCacheInvalidations() {
+        final NearCache<UUID, byte[]> near = nearCache;
+        return near == null ? 0 : near.getInvalidations();
+    }
+
+    @Override
+    public long getRemoteGets() {
+        final SingleFlight<UUID, AbstractDataObject> flight = singleFlight;
+        return flight == null ? 0 : flight.getCalls();
+    }
+
+    @Override
+    public long getCoalescedGets() {
+        final SingleFlight<UUID, AbstractDataObject> flight = singleFlight;
+        return flight == null ? 0 : flight.getCoalesced();
+    }
+
+    @Override
+    public int getOpenScans() {
+        final ScanCursors cursors = scanCursors;
+        return cursors == null ? 0 : cursors.getOpen();
+    }
+
+    @Override
+    public long getExpiredScans() {
+        final ScanCursors cursors = scanCursors;
+        return cursors == null ? 0 : cursors.getExpired();
+    }
+
+    @Override
+    public long getQueuedMutations() {
+        final MutationQueue<UUID> queue = mutationQueue;
+        return queue == null ? 0 : queue.getQueued();
+    }
+
+    @Override
+    public int getWriteBehindPending() {
+        final WriteBehind wb = writeBehind;
+        return wb == null ? 0 : wb.getPending();
+    }
+
+    @Override
+    public long getRejectedMutations() {
+        final MutationQueue<UUID> queue = mutationQueue;
+        return queue == null ? 0 : queue.getRejected();
+    }
+
+    @Override
+    public void clearNearCache() {
+        final NearCache<UUID, byte[]> near = nearCache;
+        if (near != null) {
+            near.clear();
+        }
+    }
 }
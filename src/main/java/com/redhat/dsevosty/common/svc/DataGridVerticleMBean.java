@@ -12,6 +12,26 @@ public interface DataGridVerticleMBean extends CommonVerticleMBean {
   public String getHotrodServerHost();
   public void setHotrodServerPort(int port);
   public int getHotrodServerPort();
+  public int getCacheManagerReferences();
+
+  public int getNearCacheMaxEntries();
+  public String getNearCacheEvictionPolicy();
+  public int getNearCacheSize();
+  public long getNearCacheHits();
+  public long getNearCacheMisses();
+  public long getNearCacheEvictions();
+  public long getNearCacheInvalidations();
+  public void clearNearCache();
+
+  public long getRemoteGets();
+  public long getCoalescedGets();
+
+  public int getOpenScans();
+  public long getExpiredScans();
+
+  public long getQueuedMutations();
+  public long getRejectedMutations();
+  public int getWriteBehindPending();
 
   // public void registerRestApi();
   // public void unregisterRestApi();
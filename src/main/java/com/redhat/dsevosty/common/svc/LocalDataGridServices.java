@@ -0,0 +1,132 @@
+package com.redhat.dsevosty.common.svc;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.redhat.dsevosty.common.model.DataGridReply;
+import com.redhat.dsevosty.common.model.DataGridRequest;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Context;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.eventbus.ReplyException;
+import io.vertx.core.eventbus.ReplyFailure;
+import io.vertx.core.logging.Logger;
+import io.vertx.core.logging.LoggerFactory;
+
+/*
+  DataGridService instances deployed in a Vert.x instance, by eventbus address.
+  Callers resolve a Binding once, at deploy time. It follows deploys and undeploys of the
+  data grid and is empty when the data grid is remote, then the caller uses the eventbus.
+*/
+
+public class LocalDataGridServices {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(LocalDataGridServices.class);
+
+    private static final Map<Vertx, Map<String, Binding>> BINDINGS = new WeakHashMap<Vertx, Map<String, Binding>>();
+
+    public static synchronized Binding binding(Vertx vertx, String address) {
+        return BINDINGS.computeIfAbsent(vertx, v -> new HashMap<String, Binding>()).computeIfAbsent(address,
+                a -> new Binding(vertx, a));
+    }
+
+    private static class Target {
+        private final DataGridService service;
+        private final Context context;
+        // event loop context always runs on the same thread, worker context has none
+        private final Thread thread;
+
+        Target(DataGridService service, Context context, Thread thread) {
+            this.service = service;
+            this.context = context;
+            this.thread = thread;
+        }
+    }
+
+    public static class Binding {
+
+        private final Vertx vertx;
+        private final String address;
+        private final List<Target> targets = new CopyOnWriteArrayList<Target>();
+        private final AtomicInteger next = new AtomicInteger();
+
+        private Binding(Vertx vertx, String address) {
+            this.vertx = vertx;
+            this.address = address;
+        }
+
+        /*
+          Must be called on the service context, it is the one requests will run on.
+        */
+        public void bind(DataGridService service) {
+            final Context context = vertx.getOrCreateContext();
+            targets.add(new Target(service, context, context.isEventLoopContext() ? Thread.currentThread() : null));
+            LOGGER.info("Bound local DataGridService {} to {}, instances={}", service, address, targets.size());
+        }
+
+        public void unbind(DataGridService service) {
+            targets.removeIf(t -> t.service == service);
+            LOGGER.info("Unbound local DataGridService {} from {}, instances={}", service, address, targets.size());
+        }
+
+        public boolean isEmpty() {
+            return targets.isEmpty();
+        }
+
+        public int size() {
+            return targets.size();
+        }
+
+        public String getAddress() {
+            return address;
+        }
+
+        /*
+          Instance on the caller's event loop thread is preferred, otherwise they are taken round robin.
+          Request runs on the service context, handler is called back on the caller context.
+          Without local instance it fails like eventbus send to an address nobody consumes.
+        */
+        public void execute(DataGridRequest request, Handler<AsyncResult<DataGridReply>> handler) {
+            final Target target = select();
+            if (target == null) {
+                handler.handle(Future.failedFuture(new ReplyException(ReplyFailure.NO_HANDLERS,
+                        "No local DataGridService for address " + address)));
+                return;
+            }
+            final Context caller = vertx.getOrCreateContext();
+            final Handler<AsyncResult<DataGridReply>> back = ar -> {
+                if (Vertx.currentContext() == caller) {
+                    handler.handle(ar);
+                } else {
+                    caller.runOnContext(v -> handler.handle(ar));
+                }
+            };
+            if (Vertx.currentContext() == target.context) {
+                target.service.execute(request, back);
+            } else {
+                target.context.runOnContext(v -> target.service.execute(request, back));
+            }
+        }
+
+        private Target select() {
+            final Object[] all = targets.toArray();
+            if (all.length == 0) {
+                return null;
+            }
+            final Thread current = Thread.currentThread();
+            for (Object o : all) {
+                if (((Target) o).thread == current) {
+                    return (Target) o;
+                }
+            }
+            return (Target) all[(next.getAndIncrement() & Integer.MAX_VALUE) % all.length];
+        }
+    }
+}
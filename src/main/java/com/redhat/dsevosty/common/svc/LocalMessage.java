@@ -0,0 +1,98 @@
+package com.redhat.dsevosty.common.svc;
+
+import com.redhat.dsevosty.common.model.DataGridReply;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.MultiMap;
+import io.vertx.core.eventbus.DeliveryOptions;
+import io.vertx.core.eventbus.Message;
+import io.vertx.core.eventbus.ReplyException;
+import io.vertx.core.eventbus.ReplyFailure;
+
+/*
+  Message handed to eventbus handlers by a direct DataGridService call, and to callers as the reply.
+  reply() and fail() complete the handler instead of going through the eventbus, there are no headers.
+*/
+
+public class LocalMessage<T> implements Message<T> {
+
+    private final String address;
+    private final T body;
+    private final Handler<AsyncResult<DataGridReply>> replyHandler;
+
+    private MultiMap headers;
+
+    public LocalMessage(String address, T body, Handler<AsyncResult<DataGridReply>> replyHandler) {
+        this.address = address;
+        this.body = body;
+        this.replyHandler = replyHandler;
+    }
+
+    @Override
+    public String address() {
+        return address;
+    }
+
+    @Override
+    public MultiMap headers() {
+        if (headers == null) {
+            headers = MultiMap.caseInsensitiveMultiMap();
+        }
+        return headers;
+    }
+
+    @Override
+    public T body() {
+        return body;
+    }
+
+    @Override
+    public String replyAddress() {
+        return null;
+    }
+
+    @Override
+    public boolean isSend() {
+        return true;
+    }
+
+    @Override
+    public void reply(Object message) {
+        if (replyHandler == null) {
+            return;
+        }
+        if (message instanceof DataGridReply) {
+            replyHandler.handle(Future.succeededFuture((DataGridReply) message));
+        } else {
+            replyHandler.handle(Future.failedFuture(new IllegalStateException("Reply to " + address
+                    + " must be a " + DataGridReply.class.getSimpleName() + ", but got: " + message)));
+        }
+    }
+
+    @Override
+    public <R> void reply(Object message, Handler<AsyncResult<Message<R>>> replyHandler) {
+        reply(message);
+        replyHandler.handle(Future.failedFuture(new ReplyException(ReplyFailure.NO_HANDLERS,
+                "Local reply to " + address + " can not be answered")));
+    }
+
+    @Override
+    public void reply(Object message, DeliveryOptions options) {
+        reply(message);
+    }
+
+    @Override
+    public <R> void reply(Object message, DeliveryOptions options, Handler<AsyncResult<Message<R>>> replyHandler) {
+        reply(message, replyHandler);
+    }
+
+    @Override
+    public void fail(int failureCode, String message) {
+        if (replyHandler != null) {
+            replyHandler.handle(Future.failedFuture(
+                    new ReplyException(ReplyFailure.RECIPIENT_FAILURE, failureCode, message)));
+        }
+    }
+}
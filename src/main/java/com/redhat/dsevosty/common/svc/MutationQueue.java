@@ -0,0 +1,115 @@
+package com.redhat.dsevosty.common.svc;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import io.vertx.core.Context;
+
+/*
+  Runs asynchronous mutations of one key one after another. Task gets a callback it must run
+  when its work is done, the next task of the key then runs on its own context. Keys without
+  pending tasks take no memory. Shared by the verticle instances of one JVM, so they never
+  send competing compare-and-set attempts for one key to the grid.
+*/
+
+public class MutationQueue<K> {
+
+    private static class Task {
+        private final Context context;
+        private final Consumer<Runnable> work;
+
+        private Task(Context context, Consumer<Runnable> work) {
+            this.context = context;
+            this.work = work;
+        }
+    }
+
+    // running task of the key is not in its deque
+    private final Map<K, Deque<Task>> queues = new HashMap<K, Deque<Task>>();
+    private final int maxQueued;
+
+    private long submitted;
+    private long queued;
+    private long rejected;
+
+    public MutationQueue(int maxQueued) {
+        this.maxQueued = maxQueued;
+    }
+
+    /*
+      false when maxQueued tasks already wait for the key, task is not run then.
+    */
+    public boolean submit(K key, Context context, Consumer<Runnable> work) {
+        final Task task = new Task(context, work);
+        synchronized (this) {
+            final Deque<Task> waiting = queues.get(key);
+            if (waiting != null) {
+                if (waiting.size() >= maxQueued) {
+                    rejected++;
+                    return false;
+                }
+                waiting.add(task);
+                submitted++;
+                queued++;
+                return true;
+            }
+            queues.put(key, new ArrayDeque<Task>());
+            submitted++;
+        }
+        run(key, task);
+        return true;
+    }
+
+    private void run(K key, Task task) {
+        final boolean[] done = new boolean[1];
+        final Runnable callback = () -> {
+            // callback may be run twice by mistake, the queue must not advance twice
+            synchronized (done) {
+                if (done[0]) {
+                    return;
+                }
+                done[0] = true;
+            }
+            next(key);
+        };
+        try {
+            task.work.accept(callback);
+        } catch (RuntimeException e) {
+            callback.run();
+            throw e;
+        }
+    }
+
+    private void next(K key) {
+        final Task task;
+        synchronized (this) {
+            final Deque<Task> waiting = queues.get(key);
+            task = waiting.poll();
+            if (task == null) {
+                queues.remove(key);
+                return;
+            }
+        }
+        task.context.runOnContext(v -> run(key, task));
+    }
+
+    public synchronized int getKeys() {
+        return queues.size();
+    }
+
+    public synchronized long getSubmitted() {
+        return submitted;
+    }
+
+    // Tasks that had to wait for another task of the same key
+    public synchronized long getQueued() {
+        return queued;
+    }
+
+    public synchronized long getRejected() {
+        return rejected;
+    }
+}
@@ -0,0 +1,108 @@
+package com.redhat.dsevosty.common.svc;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+  Bounded local copy of remote cache entries, kept consistent by NearCacheInvalidationListener.
+  Fill uses a stamp taken before the remote read, so the value fetched concurrently
+  with an invalidation is never stored.
+*/
+
+public class NearCache<K, V> {
+
+    public enum EvictionPolicy {
+        LRU, FIFO
+    }
+
+    private final int maxEntries;
+    private final EvictionPolicy policy;
+    private final LinkedHashMap<K, V> entries;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+
+    private long stamp;
+
+    public NearCache(int maxEntries, EvictionPolicy policy) {
+        this.maxEntries = maxEntries;
+        this.policy = policy;
+        this.entries = new LinkedHashMap<K, V>(16, 0.75f, policy == EvictionPolicy.LRU) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+                if (size() > NearCache.this.maxEntries) {
+                    evictions.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    public synchronized V get(K key) {
+        V value = entries.get(key);
+        if (value == null) {
+            misses.incrementAndGet();
+        } else {
+            hits.incrementAndGet();
+        }
+        return value;
+    }
+
+    public synchronized long stamp() {
+        return stamp;
+    }
+
+    public synchronized boolean put(K key, V value, long fetchStamp) {
+        if (fetchStamp != stamp) {
+            return false;
+        }
+        entries.put(key, value);
+        return true;
+    }
+
+    public synchronized void invalidate(K key) {
+        stamp++;
+        if (entries.remove(key) != null) {
+            invalidations.incrementAndGet();
+        }
+    }
+
+    public synchronized void clear() {
+        stamp++;
+        entries.clear();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public int getMaxEntries() {
+        return maxEntries;
+    }
+
+    public EvictionPolicy getPolicy() {
+        return policy;
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    public long getInvalidations() {
+        return invalidations.get();
+    }
+}
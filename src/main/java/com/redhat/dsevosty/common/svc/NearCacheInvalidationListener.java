@@ -0,0 +1,54 @@
+package com.redhat.dsevosty.common.svc;
+
+import org.infinispan.client.hotrod.annotation.ClientCacheEntryCreated;
+import org.infinispan.client.hotrod.annotation.ClientCacheEntryExpired;
+import org.infinispan.client.hotrod.annotation.ClientCacheEntryModified;
+import org.infinispan.client.hotrod.annotation.ClientCacheEntryRemoved;
+import org.infinispan.client.hotrod.annotation.ClientCacheFailover;
+import org.infinispan.client.hotrod.annotation.ClientListener;
+import org.infinispan.client.hotrod.event.ClientCacheEntryCreatedEvent;
+import org.infinispan.client.hotrod.event.ClientCacheEntryExpiredEvent;
+import org.infinispan.client.hotrod.event.ClientCacheEntryModifiedEvent;
+import org.infinispan.client.hotrod.event.ClientCacheEntryRemovedEvent;
+import org.infinispan.client.hotrod.event.ClientCacheFailoverEvent;
+
+import io.vertx.core.logging.Logger;
+import io.vertx.core.logging.LoggerFactory;
+
+@ClientListener
+public class NearCacheInvalidationListener<K> {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(NearCacheInvalidationListener.class);
+
+    private final NearCache<K, ?> nearCache;
+
+    public NearCacheInvalidationListener(NearCache<K, ?> nearCache) {
+        this.nearCache = nearCache;
+    }
+
+    @ClientCacheEntryCreated
+    public void created(ClientCacheEntryCreatedEvent<K> e) {
+        nearCache.invalidate(e.getKey());
+    }
+
+    @ClientCacheEntryModified
+    public void modified(ClientCacheEntryModifiedEvent<K> e) {
+        nearCache.invalidate(e.getKey());
+    }
+
+    @ClientCacheEntryRemoved
+    public void removed(ClientCacheEntryRemovedEvent<K> e) {
+        nearCache.invalidate(e.getKey());
+    }
+
+    @ClientCacheEntryExpired
+    public void expired(ClientCacheEntryExpiredEvent<K> e) {
+        nearCache.invalidate(e.getKey());
+    }
+
+    @ClientCacheFailover
+    public void failover(ClientCacheFailoverEvent e) {
+        LOGGER.info("Client listener failover, near cache is cleared");
+        nearCache.clear();
+    }
+}
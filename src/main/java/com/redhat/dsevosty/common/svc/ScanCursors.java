@@ -0,0 +1,159 @@
+package com.redhat.dsevosty.common.svc;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import com.redhat.dsevosty.common.model.AbstractDataObject;
+
+import org.infinispan.commons.util.CloseableIterator;
+
+import io.vertx.core.logging.Logger;
+import io.vertx.core.logging.LoggerFactory;
+
+/*
+  Open full-cache scans, one Hot Rod entry iterator per cursor. Cursor is taken while its page
+  is read, so a page is never read twice, and returned afterwards. Cursors idle for longer than
+  idleMillis can not be taken and are closed by expire(). Closing an iterator is a round trip
+  to the server, so close, discard, release, expire and closeAll run on a worker, take never
+  does I/O. Cursors are local to the JVM.
+*/
+
+public class ScanCursors {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ScanCursors.class);
+
+    public static class Cursor {
+        private final String id = UUID.randomUUID().toString();
+        private final CloseableIterator<Map.Entry<Object, Object>> iterator;
+        private long lastAccess = System.currentTimeMillis();
+        private boolean exhausted;
+
+        private Cursor(CloseableIterator<Map.Entry<Object, Object>> iterator) {
+            this.iterator = iterator;
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public boolean isExhausted() {
+            return exhausted;
+        }
+
+        /*
+          Blocking, reads up to max entries. Iterator fetches them from the server in its own batches.
+        */
+        public Map<UUID, AbstractDataObject> next(int max) {
+            final Map<UUID, AbstractDataObject> page = new LinkedHashMap<UUID, AbstractDataObject>();
+            while (page.size() < max && iterator.hasNext()) {
+                final Map.Entry<Object, Object> e = iterator.next();
+                page.put((UUID) e.getKey(), (AbstractDataObject) e.getValue());
+            }
+            exhausted = iterator.hasNext() == false;
+            return page;
+        }
+
+        private void close() {
+            try {
+                iterator.close();
+            } catch (RuntimeException e) {
+                LOGGER.warn("Could not close scan cursor {}", e, id);
+            }
+        }
+    }
+
+    private final Map<String, Cursor> cursors = new HashMap<String, Cursor>();
+    private final long idleMillis;
+
+    private long expired;
+
+    public ScanCursors(long idleMillis) {
+        this.idleMillis = idleMillis;
+    }
+
+    public Cursor open(CloseableIterator<Map.Entry<Object, Object>> iterator) {
+        return new Cursor(iterator);
+    }
+
+    // null when cursor is unknown, expired or its page is being read, expired one is left to expire()
+    public synchronized Cursor take(String id) {
+        final Cursor cursor = cursors.get(id);
+        if (cursor == null || cursor.lastAccess < System.currentTimeMillis() - idleMillis) {
+            return null;
+        }
+        return cursors.remove(id);
+    }
+
+    // Exhausted cursor is closed, otherwise it waits for the next take
+    public void release(Cursor cursor) {
+        if (cursor.exhausted) {
+            cursor.close();
+            return;
+        }
+        cursor.lastAccess = System.currentTimeMillis();
+        synchronized (this) {
+            cursors.put(cursor.id, cursor);
+        }
+    }
+
+    public boolean close(String id) {
+        final Cursor cursor;
+        synchronized (this) {
+            cursor = cursors.remove(id);
+        }
+        if (cursor == null) {
+            return false;
+        }
+        cursor.close();
+        return true;
+    }
+
+    // Taken cursor that is not released
+    public void discard(Cursor cursor) {
+        cursor.close();
+    }
+
+    public void closeAll() {
+        final List<Cursor> all;
+        synchronized (this) {
+            all = new ArrayList<Cursor>(cursors.values());
+            cursors.clear();
+        }
+        for (Cursor cursor : all) {
+            cursor.close();
+        }
+    }
+
+    // Closes cursors idle for longer than idleMillis
+    public void expire() {
+        final long deadline = System.currentTimeMillis() - idleMillis;
+        final List<Cursor> idle = new ArrayList<Cursor>();
+        synchronized (this) {
+            for (Iterator<Cursor> i = cursors.values().iterator(); i.hasNext();) {
+                final Cursor cursor = i.next();
+                if (cursor.lastAccess < deadline) {
+                    i.remove();
+                    idle.add(cursor);
+                }
+            }
+            expired += idle.size();
+        }
+        for (Cursor cursor : idle) {
+            LOGGER.debug("Scan cursor {} expired after {} ms idle", cursor.id, idleMillis);
+            cursor.close();
+        }
+    }
+
+    public synchronized int getOpen() {
+        return cursors.size();
+    }
+
+    public synchronized long getExpired() {
+        return expired;
+    }
+}
@@ -0,0 +1,135 @@
+package com.redhat.dsevosty.common.svc;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+import com.redhat.dsevosty.common.model.AbstractDataObject;
+
+import org.infinispan.client.hotrod.RemoteCache;
+import org.infinispan.client.hotrod.RemoteCacheManager;
+
+import io.vertx.core.eventbus.EventBus;
+import io.vertx.core.logging.Logger;
+import io.vertx.core.logging.LoggerFactory;
+
+/*
+  Process-wide RemoteCacheManager for all instances of one DataGridVerticle class talking to the
+  same Hot Rod server, so N instances use one connection pool. Classes are not mixed, as the
+  marshaller knows only the externalizers of the class that created the manager. Reference
+  counted, stopped when the last instance releases it. Near caches, GET coalescing, change event
+  listeners, scan cursors and mutation queues are shared as well, one per cache name.
+*/
+
+public class SharedRemoteCacheManager {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SharedRemoteCacheManager.class);
+
+    private static final Map<String, SharedRemoteCacheManager> SHARED = new HashMap<String, SharedRemoteCacheManager>();
+
+    private final String key;
+    private final RemoteCacheManager manager;
+    private final Map<String, NearCache<UUID, byte[]>> nearCaches = new HashMap<String, NearCache<UUID, byte[]>>();
+    private final Map<String, SingleFlight<UUID, ?>> singleFlights = new HashMap<String, SingleFlight<UUID, ?>>();
+    private final Map<String, ChangeEventListener> changeListeners = new HashMap<String, ChangeEventListener>();
+    private final Map<String, ScanCursors> scanCursors = new HashMap<String, ScanCursors>();
+    private final Map<String, MutationQueue<UUID>> mutationQueues = new HashMap<String, MutationQueue<UUID>>();
+
+    private int references;
+
+    private SharedRemoteCacheManager(String key, RemoteCacheManager manager) {
+        this.key = key;
+        this.manager = manager;
+    }
+
+    /*
+      Blocking, factory is called only by the first instance for the key.
+    */
+    public static SharedRemoteCacheManager acquire(String key, Supplier<RemoteCacheManager> factory) {
+        synchronized (SHARED) {
+            SharedRemoteCacheManager shared = SHARED.get(key);
+            if (shared == null) {
+                shared = new SharedRemoteCacheManager(key, factory.get());
+                SHARED.put(key, shared);
+            }
+            shared.references++;
+            LOGGER.info("Acquired RemoteCacheManager for {}, references={}", key, shared.references);
+            return shared;
+        }
+    }
+
+    public CompletableFuture<Void> release() {
+        synchronized (SHARED) {
+            if (references == 0) {
+                return CompletableFuture.completedFuture(null);
+            }
+            references--;
+            LOGGER.info("Released RemoteCacheManager for {}, references={}", key, references);
+            if (references > 0) {
+                return CompletableFuture.completedFuture(null);
+            }
+            SHARED.remove(key);
+        }
+        synchronized (this) {
+            for (ScanCursors cursors : scanCursors.values()) {
+                cursors.closeAll();
+            }
+        }
+        LOGGER.info("About to stop RemoteCacheManager for {}", key);
+        return manager.stopAsync();
+    }
+
+    /*
+      First caller decides size and policy and registers the invalidation listener.
+    */
+    public synchronized NearCache<UUID, byte[]> getNearCache(String cacheName, int maxEntries,
+            NearCache.EvictionPolicy policy) {
+        NearCache<UUID, byte[]> near = nearCaches.get(cacheName);
+        if (near == null) {
+            near = new NearCache<UUID, byte[]>(maxEntries, policy);
+            manager.getCache(cacheName).addClientListener(new NearCacheInvalidationListener<UUID>(near));
+            nearCaches.put(cacheName, near);
+        }
+        return near;
+    }
+
+    /*
+      Blocking, the first caller registers the listener, it publishes to the eventbus and address given.
+    */
+    public synchronized void addChangeEventListener(String cacheName, EventBus eventBus, String address) {
+        if (changeListeners.containsKey(cacheName) == false) {
+            final RemoteCache<UUID, AbstractDataObject> cache = manager.getCache(cacheName);
+            final ChangeEventListener listener = new ChangeEventListener(cache, eventBus, address);
+            cache.addClientListener(listener);
+            changeListeners.put(cacheName, listener);
+            LOGGER.info("Change events of cache {} are published to {}", cacheName, address);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    public synchronized <V> SingleFlight<UUID, V> getSingleFlight(String cacheName) {
+        return (SingleFlight<UUID, V>) singleFlights.computeIfAbsent(cacheName, n -> new SingleFlight<UUID, V>());
+    }
+
+    // First caller decides idle timeout
+    public synchronized ScanCursors getScanCursors(String cacheName, long idleMillis) {
+        return scanCursors.computeIfAbsent(cacheName, n -> new ScanCursors(idleMillis));
+    }
+
+    // First caller decides queue limit
+    public synchronized MutationQueue<UUID> getMutationQueue(String cacheName, int maxQueued) {
+        return mutationQueues.computeIfAbsent(cacheName, n -> new MutationQueue<UUID>(maxQueued));
+    }
+
+    public RemoteCacheManager getManager() {
+        return manager;
+    }
+
+    public int getReferences() {
+        synchronized (SHARED) {
+            return references;
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.redhat.dsevosty.common.svc;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/*
+  At most one call per key in flight: while it runs, callers for the same key get its future
+  instead of starting their own. Waiters share the result, so it must be treated as read-only.
+  forget() makes the next caller start a new call, it is used after local writes of the key.
+*/
+
+public class SingleFlight<K, V> {
+
+    private final ConcurrentMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<K, CompletableFuture<V>>();
+
+    private final AtomicLong calls = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+
+    public CompletableFuture<V> execute(K key, Supplier<CompletableFuture<V>> call) {
+        final CompletableFuture<V> mine = new CompletableFuture<V>();
+        final CompletableFuture<V> pending = inFlight.putIfAbsent(key, mine);
+        if (pending != null) {
+            coalesced.incrementAndGet();
+            return pending;
+        }
+        calls.incrementAndGet();
+        final CompletableFuture<V> future;
+        try {
+            future = call.get();
+        } catch (RuntimeException e) {
+            inFlight.remove(key, mine);
+            mine.completeExceptionally(e);
+            return mine;
+        }
+        future.whenComplete((v, t) -> {
+            inFlight.remove(key, mine);
+            if (t != null) {
+                mine.completeExceptionally(t);
+            } else {
+                mine.complete(v);
+            }
+        });
+        return mine;
+    }
+
+    public void forget(K key) {
+        inFlight.remove(key);
+    }
+
+    public void clear() {
+        inFlight.clear();
+    }
+
+    public int getInFlight() {
+        return inFlight.size();
+    }
+
+    public long getCalls() {
+        return calls.get();
+    }
+
+    public long getCoalesced() {
+        return coalesced.get();
+    }
+}
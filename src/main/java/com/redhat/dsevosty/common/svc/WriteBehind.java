@@ -0,0 +1,185 @@
+package com.redhat.dsevosty.common.svc;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.UnaryOperator;
+
+import com.redhat.dsevosty.common.metrics.OperationMetrics;
+import com.redhat.dsevosty.common.metrics.ServiceMetrics;
+import com.redhat.dsevosty.common.model.AbstractDataObject;
+
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.eventbus.ReplyException;
+import io.vertx.core.eventbus.ReplyFailure;
+import io.vertx.core.logging.Logger;
+import io.vertx.core.logging.LoggerFactory;
+
+/*
+  Changes of one DataObject kept in memory for up to window ms or maxChanges changes, then applied
+  in order by one conditional replace. A change refused by its mutation, or whose mutation fails,
+  is left out of the flush, the others still go. Changes submitted without a handler were acked before the flush, when such
+  a change is lost, because the flush fails or the JVM goes down first, it is only logged.
+  Runs on the context of its verticle.
+*/
+
+public class WriteBehind {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(WriteBehind.class);
+
+    public interface Flusher {
+        void flush(UUID id, UnaryOperator<AbstractDataObject> mutation,
+                Handler<AsyncResult<AbstractDataObject>> handler);
+    }
+
+    private static class Change {
+        private final UnaryOperator<AbstractDataObject> mutation;
+        private final Handler<AsyncResult<AbstractDataObject>> handler;
+        // 422 for a refused change, 500 for a mutation that failed otherwise
+        private ReplyException refused;
+
+        private Change(UnaryOperator<AbstractDataObject> mutation, Handler<AsyncResult<AbstractDataObject>> handler) {
+            this.mutation = mutation;
+            this.handler = handler;
+        }
+    }
+
+    private final Vertx vertx;
+    private final Flusher flusher;
+    private final ServiceMetrics metrics;
+    private final long window;
+    private final int maxChanges;
+    private final Map<UUID, List<Change>> pending = new HashMap<UUID, List<Change>>();
+
+    public WriteBehind(Vertx vertx, Flusher flusher, ServiceMetrics metrics, long window, int maxChanges) {
+        this.vertx = vertx;
+        this.flusher = flusher;
+        this.metrics = metrics;
+        this.window = window;
+        this.maxChanges = maxChanges;
+    }
+
+    /*
+      handler gets the DataObject after the flush, null when there is no such id, or ReplyException
+      of 422 when the mutation refused the change, 500 when it failed otherwise.
+      null handler means the change is acked already.
+    */
+    public void submit(UUID id, UnaryOperator<AbstractDataObject> mutation,
+            Handler<AsyncResult<AbstractDataObject>> handler) {
+        List<Change> changes = pending.get(id);
+        if (changes == null) {
+            changes = new ArrayList<Change>();
+            pending.put(id, changes);
+            final List<Change> scheduled = changes;
+            vertx.setTimer(window, timer -> {
+                if (pending.get(id) == scheduled) {
+                    pending.remove(id);
+                    flush(id, scheduled, null);
+                }
+            });
+        }
+        changes.add(new Change(mutation, handler));
+        if (changes.size() >= maxChanges) {
+            pending.remove(id);
+            flush(id, changes, null);
+        }
+    }
+
+    // Flushes every pending change now, like before stop
+    public void flushAll(Handler<Void> done) {
+        final Map<UUID, List<Change>> all = new HashMap<UUID, List<Change>>(pending);
+        pending.clear();
+        if (all.isEmpty()) {
+            done.handle(null);
+            return;
+        }
+        final int[] remaining = { all.size() };
+        all.forEach((id, changes) -> flush(id, changes, () -> {
+            if (--remaining[0] == 0) {
+                done.handle(null);
+            }
+        }));
+    }
+
+    // Changes waiting for their flush
+    public int getPending() {
+        int n = 0;
+        for (List<Change> changes : pending.values()) {
+            n += changes.size();
+        }
+        return n;
+    }
+
+    private void flush(UUID id, List<Change> changes, Runnable flushed) {
+        metrics.sizes("writeBehindFlush").record(changes.size());
+        final OperationMetrics.Timer timer = metrics.get(ServiceMetrics.HOP_WRITE_BEHIND, "flush").start();
+        final List<Change> applied = new ArrayList<Change>(changes.size());
+        flusher.flush(id, ado -> {
+            // runs again after a lost race
+            applied.clear();
+            AbstractDataObject current = ado;
+            for (Change change : changes) {
+                try {
+                    current = change.mutation.apply(current);
+                    change.refused = null;
+                    applied.add(change);
+                } catch (IllegalStateException e) {
+                    change.refused = new ReplyException(ReplyFailure.RECIPIENT_FAILURE,
+                            HttpResponseStatus.UNPROCESSABLE_ENTITY.code(), e.getMessage());
+                } catch (RuntimeException e) {
+                    LOGGER.error("Change of id={} failed", e, id);
+                    change.refused = new ReplyException(ReplyFailure.RECIPIENT_FAILURE,
+                            HttpResponseStatus.INTERNAL_SERVER_ERROR.code(), "Change of " + id + " failed: " + e);
+                }
+            }
+            if (applied.isEmpty()) {
+                throw new IllegalStateException(changes.get(0).refused.getMessage());
+            }
+            return current;
+        }, ar -> {
+            int lost = 0;
+            final List<AsyncResult<AbstractDataObject>> results = new ArrayList<AsyncResult<AbstractDataObject>>(
+                    changes.size());
+            for (Change change : changes) {
+                final AsyncResult<AbstractDataObject> result;
+                if (change.refused != null && (ar.succeeded() || isRefusal(ar.cause()))) {
+                    result = Future.failedFuture(change.refused);
+                } else if (ar.failed()) {
+                    result = Future.failedFuture(ar.cause());
+                } else {
+                    result = Future.succeededFuture(ar.result());
+                }
+                results.add(result);
+                if (change.handler == null && (result.failed() || result.result() == null)) {
+                    lost++;
+                }
+            }
+            if (lost > 0) {
+                LOGGER.error("{} acked changes of id={} are lost: {}", lost, id,
+                        ar.failed() ? ar.cause().getMessage() : "refused or there is no such id");
+            }
+            // handlers see a finished flush
+            timer.stop(ar.failed() || lost > 0);
+            for (int i = 0; i < changes.size(); i++) {
+                if (changes.get(i).handler != null) {
+                    changes.get(i).handler.handle(results.get(i));
+                }
+            }
+            if (flushed != null) {
+                flushed.run();
+            }
+        });
+    }
+
+    // every change of the flush was refused
+    private static boolean isRefusal(Throwable t) {
+        return t instanceof ReplyException
+                && ((ReplyException) t).failureCode() == HttpResponseStatus.UNPROCESSABLE_ENTITY.code();
+    }
+}
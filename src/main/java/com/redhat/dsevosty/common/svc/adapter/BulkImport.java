@@ -0,0 +1,311 @@
+package com.redhat.dsevosty.common.svc.adapter;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import com.redhat.dsevosty.common.model.AbstractDataObject;
+import com.redhat.dsevosty.common.model.DataGridReply;
+import com.redhat.dsevosty.common.model.DataGridRequest;
+
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Handler;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.eventbus.Message;
+import io.vertx.core.eventbus.ReplyException;
+import io.vertx.core.json.DecodeException;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.logging.Logger;
+import io.vertx.core.logging.LoggerFactory;
+import io.vertx.core.parsetools.JsonEventType;
+import io.vertx.core.parsetools.JsonParser;
+import io.vertx.core.parsetools.RecordParser;
+import io.vertx.ext.web.RoutingContext;
+
+/*
+  Streams NDJSON or JSON array request body into "putAll" batches.
+  No more than maxInFlight batches are sent to the data grid at once, request is paused
+  while the limit is reached. Reply is a summary with one entry per batch. Records the data grid
+  leaves out of a batch are counted as rejected, errors then carry their id instead of record number.
+  Reading stops after maxSize bytes (-1 is no limit), records read so far are stored and reply is 413.
+*/
+
+class BulkImport {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(BulkImport.class);
+
+    private static final int MAX_RECORD_SIZE = 1024 * 1024;
+    private static final int MAX_REPORTED_ERRORS = 100;
+
+    interface Sender {
+        void send(String operation, Object request, Handler<AsyncResult<Message<DataGridReply>>> handler);
+    }
+
+    private final RoutingContext rc;
+    private final Sender sender;
+    private final Function<JsonObject, AbstractDataObject> converter;
+    private final int batchSize;
+    private final int maxInFlight;
+    private final long maxSize;
+
+    private final Deque<List<AbstractDataObject>> ready = new ArrayDeque<List<AbstractDataObject>>();
+    private final List<Object> batches = new ArrayList<Object>();
+    private final JsonArray errors = new JsonArray();
+    private final long started = System.nanoTime();
+
+    private JsonParser jsonParser;
+    private RecordParser lineParser;
+    private List<AbstractDataObject> batch;
+
+    private long bytes;
+    private long records;
+    private long rejected;
+    private long imported;
+    private long failed;
+    private int inFlight;
+    private boolean paused;
+    private boolean ended;
+    private boolean finished;
+    private String malformed;
+    private boolean tooLarge;
+
+    BulkImport(RoutingContext rc, Sender sender, Function<JsonObject, AbstractDataObject> converter, int batchSize,
+            int maxInFlight, long maxSize) {
+        this.rc = rc;
+        this.sender = sender;
+        this.converter = converter;
+        this.batchSize = batchSize;
+        this.maxInFlight = maxInFlight;
+        this.maxSize = maxSize;
+        this.batch = new ArrayList<AbstractDataObject>(batchSize);
+    }
+
+    void start() {
+        rc.request().handler(this::handleChunk).endHandler(v -> handleEnd()).exceptionHandler(t -> {
+            LOGGER.warn("Bulk import request failed after {} records", t, records);
+            ended = true;
+            finished = true;
+        });
+    }
+
+    private void handleChunk(Buffer chunk) {
+        if (malformed != null || tooLarge) {
+            return;
+        }
+        bytes += chunk.length();
+        if (maxSize >= 0 && bytes > maxSize) {
+            LOGGER.debug("Bulk import body is over {} bytes, stopped after {} records", maxSize, records);
+            tooLarge = true;
+            handleEnd();
+            return;
+        }
+        try {
+            if (jsonParser == null && lineParser == null && createParser(chunk) == false) {
+                return;
+            }
+            if (jsonParser != null) {
+                jsonParser.handle(chunk);
+            } else {
+                lineParser.handle(chunk);
+            }
+        } catch (RuntimeException e) {
+            malformed(e);
+        }
+    }
+
+    // Body starting with '[' is a JSON array, anything else is read as NDJSON
+    private boolean createParser(Buffer chunk) {
+        for (int i = 0; i < chunk.length(); i++) {
+            final byte b = chunk.getByte(i);
+            if (Character.isWhitespace(b)) {
+                continue;
+            }
+            if (b == '[') {
+                jsonParser = JsonParser.newParser().objectValueMode();
+                jsonParser.handler(event -> {
+                    if (event.type() == JsonEventType.VALUE) {
+                        if (event.isObject()) {
+                            record(event.objectValue());
+                        } else {
+                            records++;
+                            reject("Record is not a JSON object: " + event.value());
+                        }
+                    }
+                });
+                jsonParser.exceptionHandler(this::malformed);
+            } else {
+                lineParser = RecordParser.newDelimited("\n", this::line).maxRecordSize(MAX_RECORD_SIZE);
+            }
+            return true;
+        }
+        return false;
+    }
+
+    private void line(Buffer line) {
+        final String s = line.toString("UTF-8").trim();
+        if (s.isEmpty()) {
+            return;
+        }
+        final JsonObject json;
+        try {
+            json = new JsonObject(s);
+        } catch (DecodeException e) {
+            records++;
+            reject(e.getMessage());
+            return;
+        }
+        record(json);
+    }
+
+    private void record(JsonObject json) {
+        records++;
+        final AbstractDataObject ado;
+        try {
+            ado = converter.apply(json);
+        } catch (IllegalArgumentException e) {
+            reject(e.getMessage());
+            return;
+        }
+        if (ado == null || ado.hasId() == false) {
+            reject("Record has no id");
+            return;
+        }
+        batch.add(ado);
+        if (batch.size() >= batchSize) {
+            ready.add(batch);
+            batch = new ArrayList<AbstractDataObject>(batchSize);
+            drain();
+        }
+    }
+
+    private void reject(String msg) {
+        rejected++;
+        if (errors.size() < MAX_REPORTED_ERRORS) {
+            errors.add(new JsonObject().put("record", records).put("error", msg));
+        }
+    }
+
+    private void malformed(Throwable t) {
+        LOGGER.debug("Malformed bulk import body after {} records", t, records);
+        malformed = String.valueOf(t.getMessage());
+    }
+
+    private void handleEnd() {
+        if (ended) {
+            return;
+        }
+        if (malformed == null && tooLarge == false) {
+            try {
+                if (jsonParser != null) {
+                    jsonParser.end();
+                } else if (lineParser != null) {
+                    // last line may have no trailing delimiter
+                    lineParser.handle(Buffer.buffer("\n"));
+                }
+            } catch (RuntimeException e) {
+                malformed(e);
+            }
+        }
+        ended = true;
+        if (batch.isEmpty() == false) {
+            ready.add(batch);
+            batch = new ArrayList<AbstractDataObject>(0);
+        }
+        drain();
+    }
+
+    private void drain() {
+        while (inFlight < maxInFlight && ready.isEmpty() == false) {
+            send(ready.poll());
+        }
+        final boolean full = inFlight >= maxInFlight || ready.isEmpty() == false;
+        if (full && paused == false && ended == false) {
+            rc.request().pause();
+            paused = true;
+        } else if (full == false && paused) {
+            rc.request().resume();
+            paused = false;
+        }
+        if (ended && inFlight == 0 && ready.isEmpty()) {
+            finish();
+        }
+    }
+
+    private void send(List<AbstractDataObject> dataObjects) {
+        final int index = batches.size();
+        final long sent = System.nanoTime();
+        batches.add(null);
+        inFlight++;
+        sender.send("putAll", new DataGridRequest("putAll", dataObjects), ar -> {
+            inFlight--;
+            final JsonObject summary = new JsonObject().put("batch", index).put("records", dataObjects.size());
+            if (ar.succeeded() && ar.result().body().getStatusCode() == HttpResponseStatus.CREATED.code()) {
+                // records refused by the data grid, like for a used index key
+                final JsonObject result = ar.result().body().getResult();
+                final JsonArray refused = result == null ? null : result.getJsonArray("rejected");
+                final int n = refused == null ? 0 : refused.size();
+                for (int i = 0; i < n; i++) {
+                    rejected++;
+                    if (errors.size() < MAX_REPORTED_ERRORS) {
+                        errors.add(refused.getJsonObject(i).copy().put("batch", index));
+                    }
+                }
+                imported += dataObjects.size() - n;
+                summary.put("statusCode", HttpResponseStatus.CREATED.code()).put("rejected", n);
+            } else {
+                failed += dataObjects.size();
+                int status = HttpResponseStatus.INTERNAL_SERVER_ERROR.code();
+                if (ar.succeeded()) {
+                    status = ar.result().body().getStatusCode();
+                } else {
+                    if (ar.cause() instanceof ReplyException && ((ReplyException) ar.cause()).failureCode() > 0) {
+                        status = ((ReplyException) ar.cause()).failureCode();
+                    }
+                    summary.put("error", ar.cause().getMessage());
+                    LOGGER.warn("Bulk import batch {} of {} records failed", ar.cause(), index, dataObjects.size());
+                }
+                summary.put("statusCode", status);
+            }
+            summary.put("millis", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - sent));
+            batches.set(index, summary);
+            drain();
+        });
+    }
+
+    private void finish() {
+        if (finished) {
+            return;
+        }
+        finished = true;
+        final JsonObject summary = new JsonObject();
+        summary.put("records", records);
+        summary.put("imported", imported);
+        summary.put("failed", failed);
+        summary.put("rejected", rejected);
+        summary.put("millis", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+        summary.put("batches", new JsonArray(batches));
+        summary.put("errors", errors);
+        if (malformed != null) {
+            summary.put("malformed", malformed);
+        }
+        if (tooLarge) {
+            summary.put("maxSize", maxSize);
+        }
+        LOGGER.debug("Bulk import finished: {} records, {} imported, {} failed, {} rejected", records, imported,
+                failed, rejected);
+        int status = HttpResponseStatus.OK.code();
+        if (tooLarge) {
+            // rest of the body is not read, connection can not be reused
+            status = HttpResponseStatus.REQUEST_ENTITY_TOO_LARGE.code();
+            rc.response().putHeader("connection", "close");
+        } else if (malformed != null) {
+            status = HttpResponseStatus.BAD_REQUEST.code();
+        }
+        rc.response().setStatusCode(status).putHeader("content-type", "application/json").end(summary.encode());
+    }
+}
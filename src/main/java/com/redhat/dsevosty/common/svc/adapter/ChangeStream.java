@@ -0,0 +1,198 @@
+package com.redhat.dsevosty.common.svc.adapter;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import io.vertx.core.Handler;
+import io.vertx.core.http.HttpServerResponse;
+import io.vertx.core.http.ServerWebSocket;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.logging.Logger;
+import io.vertx.core.logging.LoggerFactory;
+
+/*
+  Pushes data grid change events (see ChangeEventListener) to HTTP subscribers,
+  as Server-Sent Events or as WebSocket text frames with the event JSON.
+  Subscriber may filter by ids and by status of the DataObject; removed, expired and failover
+  events have no DataObject and pass the status filter.
+  Every subscriber has a write queue of bufferSize bytes. When it is full the subscriber is
+  disconnected if disconnectSlow is set, otherwise events are dropped and counted, and once the
+  queue drains the subscriber gets a "dropped" event with their number.
+  Lives on the adapter context, there is no synchronization.
+*/
+
+class ChangeStream {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ChangeStream.class);
+
+    private final int maxSubscribers;
+    private final int bufferSize;
+    private final boolean disconnectSlow;
+
+    private final List<Subscriber> subscribers = new ArrayList<Subscriber>();
+
+    ChangeStream(int maxSubscribers, int bufferSize, boolean disconnectSlow) {
+        this.maxSubscribers = maxSubscribers;
+        this.bufferSize = bufferSize;
+        this.disconnectSlow = disconnectSlow;
+    }
+
+    abstract class Subscriber {
+        private final Set<String> ids;
+        private final Set<String> statuses;
+        private long missed;
+        private boolean closed;
+
+        Subscriber(Set<String> ids, Set<String> statuses) {
+            this.ids = ids;
+            this.statuses = statuses;
+        }
+
+        protected abstract boolean writeQueueFull();
+
+        protected abstract void write(String type, String event);
+
+        protected abstract void drainHandler(Handler<Void> handler);
+
+        protected abstract void disconnect();
+
+        private boolean accepts(String id, String status) {
+            if (ids.isEmpty() == false && (id == null || ids.contains(id) == false)) {
+                return false;
+            }
+            return statuses.isEmpty() || status == null || statuses.contains(status);
+        }
+
+        private void send(String type, String event) {
+            if (closed) {
+                return;
+            }
+            if (writeQueueFull() == false) {
+                write(type, event);
+                return;
+            }
+            if (disconnectSlow) {
+                LOGGER.debug("Change stream subscriber {} is too slow, disconnecting", this);
+                closed();
+                disconnect();
+                return;
+            }
+            if (missed++ == 0) {
+                drainHandler(v -> {
+                    if (closed == false) {
+                        write("dropped", new JsonObject().put("type", "dropped").put("dropped", missed).encode());
+                    }
+                    missed = 0;
+                });
+            }
+        }
+
+        protected void closed() {
+            if (closed == false) {
+                closed = true;
+                subscribers.remove(this);
+            }
+        }
+    }
+
+    boolean isFull() {
+        return subscribers.size() >= maxSubscribers;
+    }
+
+    void subscribe(HttpServerResponse response, Set<String> ids, Set<String> statuses) {
+        response.setChunked(true).putHeader("content-type", "text/event-stream").putHeader("cache-control",
+                "no-cache");
+        response.setWriteQueueMaxSize(bufferSize);
+        final Subscriber s = new Subscriber(ids, statuses) {
+            @Override
+            protected boolean writeQueueFull() {
+                return response.writeQueueFull();
+            }
+
+            @Override
+            protected void write(String type, String event) {
+                response.write("event: " + type + "\ndata: " + event + "\n\n");
+            }
+
+            @Override
+            protected void drainHandler(Handler<Void> handler) {
+                response.drainHandler(handler);
+            }
+
+            @Override
+            protected void disconnect() {
+                response.close();
+            }
+        };
+        response.closeHandler(v -> s.closed());
+        subscribers.add(s);
+        // comment line sends the headers right away
+        response.write(": subscribed\n\n");
+    }
+
+    void subscribe(ServerWebSocket ws, Set<String> ids, Set<String> statuses) {
+        ws.setWriteQueueMaxSize(bufferSize);
+        final Subscriber s = new Subscriber(ids, statuses) {
+            @Override
+            protected boolean writeQueueFull() {
+                return ws.writeQueueFull();
+            }
+
+            @Override
+            protected void write(String type, String event) {
+                ws.writeTextMessage(event);
+            }
+
+            @Override
+            protected void drainHandler(Handler<Void> handler) {
+                ws.drainHandler(handler);
+            }
+
+            @Override
+            protected void disconnect() {
+                ws.close();
+            }
+        };
+        ws.closeHandler(v -> s.closed());
+        subscribers.add(s);
+    }
+
+    void publish(JsonObject event) {
+        if (subscribers.isEmpty()) {
+            return;
+        }
+        final String type = event.getString("type");
+        final String id = event.getString("id");
+        final JsonObject ado = event.getJsonObject("dataObject");
+        final String status = ado == null ? null : ado.getString("status");
+        String encoded = null;
+        // disconnect of a slow subscriber removes it from the list
+        for (Subscriber s : subscribers.toArray(new Subscriber[subscribers.size()])) {
+            if (s.accepts(id, status)) {
+                if (encoded == null) {
+                    encoded = event.encode();
+                }
+                s.send(type, encoded);
+            }
+        }
+    }
+
+    // Comma separated values of every occurrence of the parameter, empty set is no filter
+    static Set<String> filterOf(List<String> params) {
+        if (params == null || params.isEmpty()) {
+            return Collections.emptySet();
+        }
+        final Set<String> values = new HashSet<String>();
+        for (String param : params) {
+            for (String value : param.split(",")) {
+                if (value.trim().isEmpty() == false) {
+                    values.add(value.trim());
+                }
+            }
+        }
+        return values;
+    }
+}
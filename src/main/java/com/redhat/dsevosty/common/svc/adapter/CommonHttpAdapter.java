@@ -1,14 +1,58 @@
 package com.redhat.dsevosty.common.svc.adapter;
 
+import static com.redhat.dsevosty.common.ServiceConstant.SERVICE_DATA_OBJECT_CLASS;
+import static com.redhat.dsevosty.common.ServiceConstant.SERVICE_DATA_OBJECT_EXTERNALIZER;
+import static com.redhat.dsevosty.common.ServiceConstant.SERVICE_DATAGRID_LOCAL_DISPATCH;
+import static com.redhat.dsevosty.common.ServiceConstant.SERVICE_HTTP_BATCH_GET_MAX_IDS;
+import static com.redhat.dsevosty.common.ServiceConstant.SERVICE_HTTP_BULK_IMPORT_BATCH_SIZE;
+import static com.redhat.dsevosty.common.ServiceConstant.SERVICE_HTTP_BULK_IMPORT_MAX_IN_FLIGHT;
+import static com.redhat.dsevosty.common.ServiceConstant.SERVICE_HTTP_BULK_IMPORT_MAX_SIZE;
+import static com.redhat.dsevosty.common.ServiceConstant.SERVICE_HTTP_CHANGES_BUFFER_SIZE;
+import static com.redhat.dsevosty.common.ServiceConstant.SERVICE_HTTP_CHANGES_MAX_SUBSCRIBERS;
+import static com.redhat.dsevosty.common.ServiceConstant.SERVICE_HTTP_CHANGES_SLOW_CONSUMER;
+import static com.redhat.dsevosty.common.ServiceConstant.SERVICE_JDG_INDEX_FIELD;
 import static com.redhat.dsevosty.common.ServiceConstant.SERVICE_OPERATION;
 
+import java.io.IOException;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.redhat.dsevosty.common.CurrencyCode;
+import com.redhat.dsevosty.common.marshall.DataObjectExternalizer;
+import com.redhat.dsevosty.common.marshall.DataObjectMarshaller;
+import com.redhat.dsevosty.common.marshall.DataObjectMessageCodec;
+import com.redhat.dsevosty.common.metrics.OperationMetrics;
+import com.redhat.dsevosty.common.metrics.ServiceMetrics;
+import com.redhat.dsevosty.common.model.AbstractDataObject;
+import com.redhat.dsevosty.common.model.DataGridReply;
+import com.redhat.dsevosty.common.model.DataGridRequest;
+import com.redhat.dsevosty.common.model.Money;
+import com.redhat.dsevosty.common.model.Versionable;
+import com.redhat.dsevosty.common.svc.ChangeEventListener;
 import com.redhat.dsevosty.common.svc.CommonVerticle;
+import com.redhat.dsevosty.common.svc.LocalDataGridServices;
+import com.redhat.dsevosty.common.svc.LocalMessage;
 
+import io.netty.buffer.ByteBuf;
 import io.netty.handler.codec.http.HttpResponseStatus;
+import io.vertx.core.AsyncResult;
 import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.buffer.Buffer;
 import io.vertx.core.eventbus.DeliveryOptions;
 import io.vertx.core.eventbus.Message;
+import io.vertx.core.eventbus.ReplyException;
 import io.vertx.core.http.HttpServerResponse;
+import io.vertx.core.json.DecodeException;
+import io.vertx.core.json.Json;
+import io.vertx.core.json.JsonArray;
 import io.vertx.core.json.JsonObject;
 import io.vertx.core.logging.Logger;
 import io.vertx.core.logging.LoggerFactory;
@@ -21,12 +65,34 @@ public class CommonHttpAdapter extends CommonVerticle {
 
     public static final String ARTIFACT_ID = "http_adapter";
 
+    private static final int RESPONSE_CHUNK_SIZE = 8192;
+
+    private static final String BULK_IMPORT_PATH = "/bulk-import";
+
+    private static final String CHANGES_PATH = "/changes";
+
+    private static final String SCAN_PATH = "/scan";
+
+    private static final int SERVER_ERROR = 500;
+
     private Router apiRouter;
 
+    private Constructor<? extends AbstractDataObject> dataObjectConstructor;
+    private Constructor<? extends AbstractDataObject> dataObjectParserConstructor;
+    private int batchGetMaxIds;
+    private int bulkImportBatchSize;
+    private int bulkImportMaxInFlight;
+    private long bulkImportMaxSize;
+    private LocalDataGridServices.Binding localDataGrid;
+    private ChangeStream changeStream;
+    private String indexField;
+
     @Override
     public void start(Future<Void> start) {
         super.start(start);
         registerDefaultRestApi();
+        getEventBus().<JsonObject>consumer(ChangeEventListener.addressOf(getEventBusAddress()),
+                message -> changeStream.publish(message.body()));
     }
 
     protected synchronized Router getApiRouter() {
@@ -45,16 +111,92 @@ public class CommonHttpAdapter extends CommonVerticle {
         return root;
     }
 
+    @Override
+    protected String initConfiguration() {
+        final String info = super.initConfiguration();
+        JsonObject vertxConfig = config();
+        batchGetMaxIds = Integer.valueOf(
+                vertxConfig.getString(SERVICE_HTTP_BATCH_GET_MAX_IDS.key, SERVICE_HTTP_BATCH_GET_MAX_IDS.value));
+        bulkImportBatchSize = Integer.valueOf(vertxConfig.getString(SERVICE_HTTP_BULK_IMPORT_BATCH_SIZE.key,
+                SERVICE_HTTP_BULK_IMPORT_BATCH_SIZE.value));
+        bulkImportMaxInFlight = Integer.valueOf(vertxConfig.getString(SERVICE_HTTP_BULK_IMPORT_MAX_IN_FLIGHT.key,
+                SERVICE_HTTP_BULK_IMPORT_MAX_IN_FLIGHT.value));
+        bulkImportMaxSize = Long.valueOf(vertxConfig.getString(SERVICE_HTTP_BULK_IMPORT_MAX_SIZE.key,
+                SERVICE_HTTP_BULK_IMPORT_MAX_SIZE.value));
+        if (Boolean.valueOf(vertxConfig.getString(SERVICE_DATAGRID_LOCAL_DISPATCH.key,
+                SERVICE_DATAGRID_LOCAL_DISPATCH.value))) {
+            localDataGrid = LocalDataGridServices.binding(vertx, getEventBusAddress());
+        }
+        indexField = vertxConfig.getString(SERVICE_JDG_INDEX_FIELD.key, SERVICE_JDG_INDEX_FIELD.value);
+        changeStream = new ChangeStream(
+                Integer.valueOf(vertxConfig.getString(SERVICE_HTTP_CHANGES_MAX_SUBSCRIBERS.key,
+                        SERVICE_HTTP_CHANGES_MAX_SUBSCRIBERS.value)),
+                Integer.valueOf(vertxConfig.getString(SERVICE_HTTP_CHANGES_BUFFER_SIZE.key,
+                        SERVICE_HTTP_CHANGES_BUFFER_SIZE.value)),
+                "disconnect".equalsIgnoreCase(vertxConfig.getString(SERVICE_HTTP_CHANGES_SLOW_CONSUMER.key,
+                        SERVICE_HTTP_CHANGES_SLOW_CONSUMER.value)));
+        DataObjectMarshaller marshaller = DataObjectMessageCodec.registerCodecs(getEventBus());
+        final String dataObjectClass = vertxConfig.getString(SERVICE_DATA_OBJECT_CLASS.key,
+                SERVICE_DATA_OBJECT_CLASS.value);
+        if (dataObjectClass.equals("") == false) {
+            try {
+                final Class<? extends AbstractDataObject> clazz = Class.forName(dataObjectClass)
+                        .asSubclass(AbstractDataObject.class);
+                dataObjectConstructor = clazz.getConstructor(JsonObject.class);
+                dataObjectParserConstructor = parserConstructorOf(clazz);
+            } catch (ClassNotFoundException | NoSuchMethodException | ClassCastException e) {
+                LOGGER.error("Could not use {} as DataObject class, JsonObject will be sent to eventbus", e,
+                        dataObjectClass);
+            }
+        }
+        final String externalizerClass = vertxConfig.getString(SERVICE_DATA_OBJECT_EXTERNALIZER.key,
+                SERVICE_DATA_OBJECT_EXTERNALIZER.value);
+        if (externalizerClass.equals("") == false) {
+            try {
+                marshaller.register((DataObjectExternalizer<?>) Class.forName(externalizerClass)
+                        .getDeclaredConstructor().newInstance());
+            } catch (ReflectiveOperationException | ClassCastException e) {
+                LOGGER.error("Could not register DataObject externalizer {}", e, externalizerClass);
+            }
+        }
+        return info;
+    }
+
     protected void registerDefaultRestApi() {
         Router router = getApiRouter();
 
+        // GET has no body to buffer, bulk import reads its body as a stream
+        router.get(CHANGES_PATH).handler(this::subscribeToChanges);
+        router.get(SCAN_PATH).handler(this::scanDataObjects);
+        router.get(SCAN_PATH + "/page").handler(this::scanDataObjectsPage);
+        router.get("/aggregate").handler(this::aggregateDataObjects);
+        if (indexField.equals("") == false) {
+            router.get("/by-" + indexField + "/:key").handler(this::getDataObjectByIndex);
+        }
         router.get("/:id").handler(this::getDataObject);
+        router.post("/").handler(bodyHandler());
         router.post("/").handler(this::addDataObject);
-        // router.put("/:id").handler(this::updateSDO);
-        // router.patch("/:id").handler(this::updateSDO);
+        router.post("/batch-get").handler(bodyHandler());
+        router.post("/batch-get").handler(this::batchGetDataObjects);
+        router.post("/transfer").handler(bodyHandler());
+        router.post("/transfer").handler(this::transferAmount);
+        router.post(BULK_IMPORT_PATH).handler(this::bulkImportDataObjects);
+        router.put("/:id").handler(bodyHandler());
+        router.put("/:id").handler(this::updateDataObject);
+        router.patch("/:id").handler(bodyHandler());
+        router.patch("/:id").handler(this::patchDataObject);
+        router.post("/:id/credit").handler(bodyHandler());
+        router.post("/:id/credit").handler(rc -> changeAmount(rc, "credit"));
+        router.post("/:id/debit").handler(bodyHandler());
+        router.post("/:id/debit").handler(rc -> changeAmount(rc, "debit"));
         // router.delete("/:id").handler(this::removeSDO);
     }
 
+    private void sendBadRequest(RoutingContext rc, String msg) {
+        LOGGER.debug("Bad request: {}", msg);
+        rc.response().setStatusCode(HttpResponseStatus.BAD_REQUEST.code()).end(msg);
+    }
+
     private void sendError(RoutingContext rc, String id, Throwable th) {
         final String msg = "Error occured while asking service " + getServiceName() + " for key " + id;
         LOGGER.error(msg, th);
@@ -62,7 +204,182 @@ public class CommonHttpAdapter extends CommonVerticle {
         rc.fail(th);
     }
 
+    /*
+      Builds DataObject from HTTP body when its class is configured,
+      otherwise returns null and body goes to eventbus as JsonObject.
+    */
+    protected AbstractDataObject dataObjectFromJson(JsonObject json) {
+        if (dataObjectConstructor == null) {
+            return null;
+        }
+        try {
+            return dataObjectConstructor.newInstance(json);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalArgumentException("Could not create DataObject from " + json, e);
+        }
+    }
+
+    // DataObject constructor from Jackson JsonParser is optional, POST body is read as JsonObject without it
+    private static Constructor<? extends AbstractDataObject> parserConstructorOf(
+            Class<? extends AbstractDataObject> clazz) {
+        try {
+            return clazz.getConstructor(JsonParser.class);
+        } catch (NoSuchMethodException e) {
+            LOGGER.debug("{} has no JsonParser constructor, body will be parsed into JsonObject", clazz.getName());
+            return null;
+        }
+    }
+
+    /*
+      Streams body straight into DataObject when its class has a JsonParser constructor,
+      otherwise returns null. Heap buffer is parsed in place, without copying.
+    */
+    protected AbstractDataObject dataObjectFromBuffer(Buffer body) {
+        if (dataObjectParserConstructor == null) {
+            return null;
+        }
+        if (body == null || body.length() == 0) {
+            throw new IllegalArgumentException("There is no body");
+        }
+        final ByteBuf buf = body.getByteBuf();
+        try (JsonParser parser = buf.hasArray()
+                ? Json.mapper.getFactory().createParser(buf.array(), buf.arrayOffset() + buf.readerIndex(),
+                        buf.readableBytes())
+                : Json.mapper.getFactory().createParser(body.getBytes())) {
+            return dataObjectParserConstructor.newInstance(parser);
+        } catch (InvocationTargetException e) {
+            throw new IllegalArgumentException(String.valueOf(e.getCause().getMessage()), e.getCause());
+        } catch (ReflectiveOperationException | IOException e) {
+            throw new IllegalArgumentException("Could not create DataObject from body", e);
+        }
+    }
+
+    protected JsonObject replyAsJson(Object body) {
+        if (body instanceof DataGridReply) {
+            return ((DataGridReply) body).toJson();
+        }
+        return (JsonObject) body;
+    }
+
+    protected void sendReply(RoutingContext rc, String id, AsyncResult<Message<Object>> result,
+            HttpResponseStatus expected) {
+        if (result.failed()) {
+            final Throwable t = result.cause();
+            final int code = t instanceof ReplyException ? ((ReplyException) t).failureCode() : -1;
+            if (code == HttpResponseStatus.PRECONDITION_FAILED.code()
+                    || code == HttpResponseStatus.PRECONDITION_REQUIRED.code()
+                    || code == HttpResponseStatus.CONFLICT.code()
+                    || code == HttpResponseStatus.GONE.code()
+                    || code == HttpResponseStatus.BAD_REQUEST.code()
+                    || code == HttpResponseStatus.UNPROCESSABLE_ENTITY.code()
+                    || code == HttpResponseStatus.SERVICE_UNAVAILABLE.code()) {
+                rc.response().setStatusCode(code).end(String.valueOf(t.getMessage()));
+                return;
+            }
+            sendError(rc, id, t);
+            return;
+        }
+        final Object body = result.result().body();
+        JsonObject json = replyAsJson(body);
+        final int status = json.getInteger("statusCode");
+        final HttpServerResponse response = rc.response();
+        if (status == expected.code()) {
+            response.setStatusCode(status).putHeader("content-type", "application/json");
+            final String etag = etagOf(body);
+            if (etag != null) {
+                response.putHeader("ETag", etag);
+            }
+            if (LOGGER.isDebugEnabled()) {
+                response.end(json.encodePrettily());
+            } else {
+                response.end(json.encode());
+            }
+            return;
+        }
+        if (status == HttpResponseStatus.NOT_FOUND.code()) {
+            response.setStatusCode(HttpResponseStatus.NOT_FOUND.code()).end();
+            return;
+        }
+        // accepted, to be applied later, like a write-behind credit
+        if (status == HttpResponseStatus.ACCEPTED.code()) {
+            response.setStatusCode(status).putHeader("content-type", "application/json").end(json.encode());
+            return;
+        }
+        sendError(rc, id, new IllegalArgumentException(
+                "Unexpected answer code " + status + " form service " + getServiceName() + " for key" + id));
+    }
+
+    // ETag is the version of Versionable DataObject, it changes on every update
+    protected String etagOf(Object body) {
+        if (body instanceof DataGridReply) {
+            final AbstractDataObject ado = ((DataGridReply) body).getDataObject();
+            if (ado instanceof Versionable && ((Versionable) ado).isVersionSet()) {
+                return "\"" + ((Versionable) ado).versionAsString() + "\"";
+            }
+        }
+        return null;
+    }
+
+    // Returns version from If-Match header, null when header is absent or "*"
+    protected String versionFromIfMatch(RoutingContext rc) {
+        String value = rc.request().getHeader("If-Match");
+        if (value == null) {
+            return null;
+        }
+        value = value.trim();
+        if (value.startsWith("W/")) {
+            value = value.substring(2);
+        }
+        if (value.length() >= 2 && value.startsWith("\"") && value.endsWith("\"")) {
+            value = value.substring(1, value.length() - 1);
+        }
+        return value.equals("*") || value.equals("") ? null : value;
+    }
+
+    protected void meterHttp(RoutingContext rc, String operation) {
+        final OperationMetrics.Timer timer = getServiceMetrics().get(ServiceMetrics.HOP_HTTP, operation).start();
+        rc.addBodyEndHandler(v -> timer.stop(rc.response().getStatusCode() >= SERVER_ERROR));
+        rc.response().closeHandler(v -> timer.stop(true));
+    }
+
+    protected <T> void send(String operation, Object request, Handler<AsyncResult<Message<T>>> handler) {
+        send(operation, request, new DeliveryOptions(), handler);
+    }
+
+    /*
+      Sends to the data grid timing the eventbus hop. Failures with status below 500,
+      like 412 on stale version, are answers rather than errors.
+      DataGridRequest goes straight to a data grid deployed in this Vert.x, when there is one.
+    */
+    @SuppressWarnings("unchecked")
+    protected <T> void send(String operation, Object request, DeliveryOptions options,
+            Handler<AsyncResult<Message<T>>> handler) {
+        if (request instanceof DataGridRequest && localDataGrid != null && localDataGrid.isEmpty() == false) {
+            final OperationMetrics.Timer timer = getServiceMetrics().get(ServiceMetrics.HOP_LOCAL, operation).start();
+            localDataGrid.execute((DataGridRequest) request, result -> {
+                timer.stop(isError(result));
+                handler.handle(result.map(reply -> new LocalMessage<T>(getEventBusAddress(), (T) reply, null)));
+            });
+            return;
+        }
+        final OperationMetrics.Timer timer = getServiceMetrics().get(ServiceMetrics.HOP_EVENTBUS, operation).start();
+        getEventBus().<T>send(getEventBusAddress(), request, options, result -> {
+            timer.stop(isError(result));
+            handler.handle(result);
+        });
+    }
+
+    private static boolean isError(AsyncResult<?> result) {
+        if (result.succeeded()) {
+            return false;
+        }
+        final Throwable t = result.cause();
+        return t instanceof ReplyException == false || ((ReplyException) t).failureCode() < 0
+                || ((ReplyException) t).failureCode() >= SERVER_ERROR;
+    }
+
     protected void getDataObject(RoutingContext rc) {
+        meterHttp(rc, "get");
         final String id = rc.request().getParam(HTTP_GET_PARAMETER_ID);
         LOGGER.trace("Handling GET request for id: {}", id);
         if (id == null || id.equals("")) {
@@ -70,35 +387,80 @@ public class CommonHttpAdapter extends CommonVerticle {
                     new IllegalArgumentException("There is no an " + HTTP_GET_PARAMETER_ID + " or it is NULL"));
             return;
         }
-        DeliveryOptions options = new DeliveryOptions();
-        options.addHeader(SERVICE_OPERATION.key, "get");
-        getEventBus().<JsonObject>send(getEventBusAddress(), new JsonObject().put("id", id), options, result -> {
-            if (result.succeeded()) {
-                JsonObject json = result.result().body();
-                final int status = json.getInteger("statusCode");
-                final HttpServerResponse response = rc.response();
-                if (status == HttpResponseStatus.OK.code()) {
-                    response.setStatusCode(HttpResponseStatus.OK.code()).putHeader("context-type", "application/json");
-                    if (LOGGER.isDebugEnabled()) {
-                        response.end(json.encodePrettily());
-                    } else {
-                        response.end(json.encode());
-                    }
-                    return;
-                }
-                if (status == HttpResponseStatus.NOT_FOUND.code()) {
-                    response.setStatusCode(HttpResponseStatus.NOT_FOUND.code()).end();
-                    return;
-                }
-                sendError(rc, id, new IllegalArgumentException(
-                        "Unexpected answer code " + status + " form service " + getServiceName() + " for key" + id));
-            } else {
-                sendError(rc, id, result.cause());
-            }
+        final DataGridRequest request;
+        try {
+            request = new DataGridRequest("get", UUID.fromString(id));
+        } catch (IllegalArgumentException e) {
+            sendError(rc, id, e);
+            return;
+        }
+        send("get", request, result -> {
+            sendReply(rc, id, result, HttpResponseStatus.OK);
+        });
+    }
+
+    // GET /by-<service.jdg.index.field>/:key
+    protected void getDataObjectByIndex(RoutingContext rc) {
+        meterHttp(rc, "getByIndex");
+        final String key = rc.request().getParam("key");
+        LOGGER.trace("Handling GET request for {}: {}", indexField, key);
+        if (key == null || key.equals("")) {
+            sendBadRequest(rc, "There is no " + indexField + " or it is empty");
+            return;
+        }
+        send("getByIndex", new DataGridRequest("getByIndex", key), result -> {
+            sendReply(rc, key, result, HttpResponseStatus.OK);
+        });
+    }
+
+    // GET /scan, all DataObjects as one chunked JSON array
+    protected void scanDataObjects(RoutingContext rc) {
+        meterHttp(rc, "scan");
+        LOGGER.trace("Handling SCAN request");
+        new ScanExport(rc, this::send).start();
+    }
+
+    // GET /scan/page?cursor=, one page and the cursor of the next one, no cursor starts a new scan
+    protected void scanDataObjectsPage(RoutingContext rc) {
+        meterHttp(rc, "scanPage");
+        final String cursor = rc.request().getParam("cursor");
+        LOGGER.trace("Handling SCAN PAGE request for cursor: {}", cursor);
+        send("scan", new DataGridRequest("scan", cursor), result -> {
+            sendReply(rc, cursor, result, HttpResponseStatus.OK);
+        });
+    }
+
+    // GET /aggregate, aggregates computed by the data grid
+    protected void aggregateDataObjects(RoutingContext rc) {
+        meterHttp(rc, "aggregate");
+        LOGGER.trace("Handling AGGREGATE request");
+        send("aggregate", new DataGridRequest("aggregate", (String) null), result -> {
+            sendReply(rc, null, result, HttpResponseStatus.OK);
         });
     }
 
     protected void addDataObject(RoutingContext rc) {
+        meterHttp(rc, "create");
+        if (dataObjectParserConstructor != null) {
+            final AbstractDataObject ado;
+            try {
+                ado = dataObjectFromBuffer(rc.getBody());
+            } catch (IllegalArgumentException e) {
+                sendBadRequest(rc, "Malformed body: " + e.getMessage());
+                return;
+            }
+            if (ado.hasId() == false) {
+                sendError(rc, null,
+                        new IllegalArgumentException("There is no an " + HTTP_GET_PARAMETER_ID + " or it is NULL"));
+                return;
+            }
+            final String id = ado.getId().toString();
+            LOGGER.trace("Handlilng POST request for: {}", id);
+            send("create", new DataGridRequest("create", ado), result -> {
+                sendReply(rc, id, result, HttpResponseStatus.CREATED);
+            });
+            return;
+        }
         final JsonObject json = rc.getBodyAsJson();
         LOGGER.trace("Handlilng POST request for: ", json);
         final String id = json.getString(HTTP_GET_PARAMETER_ID);
@@ -107,35 +469,313 @@ public class CommonHttpAdapter extends CommonVerticle {
                     new IllegalArgumentException("There is no an " + HTTP_GET_PARAMETER_ID + " or it is NULL"));
             return;
         }
+        final AbstractDataObject ado;
+        try {
+            ado = dataObjectFromJson(json);
+        } catch (IllegalArgumentException e) {
+            sendBadRequest(rc, "Malformed body: " + e.getMessage());
+            return;
+        }
+        if (ado != null) {
+            send("create", new DataGridRequest("create", ado), result -> {
+                sendReply(rc, id, result, HttpResponseStatus.CREATED);
+            });
+            return;
+        }
         DeliveryOptions options = new DeliveryOptions();
         options.addHeader(SERVICE_OPERATION.key, "create");
-        getEventBus().<JsonObject>send(getEventBusAddress(), json, options, result -> {
-            if (result.succeeded()) {
-                JsonObject answer = result.result().body();
-                final int status = json.getInteger("statusCode");
-                final HttpServerResponse response = rc.response();
-                if (status == HttpResponseStatus.CREATED.code()) {
-                    response.setStatusCode(HttpResponseStatus.OK.code()).putHeader("context-type", "application/json");
-                    if (LOGGER.isDebugEnabled()) {
-                        response.end(answer.encodePrettily());
-                    } else {
-                        response.end(answer.encode());
-                    }
-                    return;
-                }
-                sendError(rc, id, new IllegalArgumentException(
-                        "Unexpected answer code " + status + " form service " + getServiceName() + " for key" + id));
+        send("create", json, options, result -> {
+            sendReply(rc, id, result, HttpResponseStatus.CREATED);
+        });
+    }
+
+    /*
+      PUT replaces the whole DataObject. Version comes from If-Match, or from the body
+      when header is absent, stale version gets 412.
+    */
+    protected void updateDataObject(RoutingContext rc) {
+        meterHttp(rc, "update");
+        final String id = rc.request().getParam(HTTP_GET_PARAMETER_ID);
+        LOGGER.trace("Handling PUT request for id: {}", id);
+        final JsonObject json;
+        try {
+            json = rc.getBodyAsJson();
+        } catch (DecodeException e) {
+            sendBadRequest(rc, "Malformed body: " + e.getMessage());
+            return;
+        }
+        if (json == null) {
+            sendBadRequest(rc, "There is no body to update " + id);
+            return;
+        }
+        final String bodyId = json.getString(HTTP_GET_PARAMETER_ID);
+        if (bodyId != null && bodyId.equals(id) == false) {
+            sendBadRequest(rc, "Body " + HTTP_GET_PARAMETER_ID + " " + bodyId + " does not match " + id);
+            return;
+        }
+        json.put(HTTP_GET_PARAMETER_ID, id);
+        final String version = versionFromIfMatch(rc);
+        if (version != null) {
+            json.put("version", version);
+        }
+        final AbstractDataObject ado;
+        try {
+            ado = dataObjectFromJson(json);
+        } catch (IllegalArgumentException e) {
+            sendBadRequest(rc, e.getMessage());
+            return;
+        }
+        if (ado != null) {
+            send("update", new DataGridRequest("update", ado), result -> {
+                sendReply(rc, id, result, HttpResponseStatus.OK);
+            });
+            return;
+        }
+        DeliveryOptions options = new DeliveryOptions();
+        options.addHeader(SERVICE_OPERATION.key, "update");
+        send("update", json, options, result -> {
+            sendReply(rc, id, result, HttpResponseStatus.OK);
+        });
+    }
+
+    /*
+      PATCH merges body into the current DataObject. Without If-Match the update is
+      conditional on the version just read, so a concurrent change still gets 412.
+    */
+    protected void patchDataObject(RoutingContext rc) {
+        meterHttp(rc, "patch");
+        final String id = rc.request().getParam(HTTP_GET_PARAMETER_ID);
+        LOGGER.trace("Handling PATCH request for id: {}", id);
+        if (dataObjectConstructor == null) {
+            rc.response().setStatusCode(HttpResponseStatus.NOT_IMPLEMENTED.code())
+                    .end("PATCH requires " + SERVICE_DATA_OBJECT_CLASS.key + " to be set");
+            return;
+        }
+        final JsonObject patch;
+        final UUID uuid;
+        try {
+            patch = rc.getBodyAsJson();
+            uuid = UUID.fromString(id);
+        } catch (DecodeException | IllegalArgumentException e) {
+            sendBadRequest(rc, "Malformed request: " + e.getMessage());
+            return;
+        }
+        if (patch == null) {
+            sendBadRequest(rc, "There is no body to patch " + id);
+            return;
+        }
+        final String patchId = patch.getString(HTTP_GET_PARAMETER_ID);
+        if (patchId != null && patchId.equals(id) == false) {
+            sendBadRequest(rc, HTTP_GET_PARAMETER_ID + " can not be patched");
+            return;
+        }
+        final String version = versionFromIfMatch(rc);
+        this.<DataGridReply>send("get", new DataGridRequest("get", uuid), current -> {
+            if (current.failed()) {
+                sendError(rc, id, current.cause());
+                return;
+            }
+            final AbstractDataObject ado = current.result().body().getDataObject();
+            if (ado == null) {
+                rc.response().setStatusCode(HttpResponseStatus.NOT_FOUND.code()).end();
+                return;
+            }
+            final JsonObject json = ado.toJson().mergeIn(patch);
+            if (version != null) {
+                json.put("version", version);
+            } else if (ado instanceof Versionable) {
+                json.put("version", ((Versionable) ado).versionAsString());
+            }
+            final AbstractDataObject patched;
+            try {
+                patched = dataObjectFromJson(json);
+            } catch (IllegalArgumentException e) {
+                sendBadRequest(rc, e.getMessage());
+                return;
+            }
+            send("update", new DataGridRequest("update", patched), result -> {
+                sendReply(rc, id, result, HttpResponseStatus.OK);
+            });
+        });
+    }
+
+    /*
+      POST /:id/credit and /:id/debit with { "amount": "10.00", "currency": "RUB" }, currency is optional.
+      Amount is changed atomically by the data grid service, the reply holds the changed DataObject.
+    */
+    protected void changeAmount(RoutingContext rc, String operation) {
+        meterHttp(rc, operation);
+        final String id = rc.request().getParam(HTTP_GET_PARAMETER_ID);
+        LOGGER.trace("Handling {} request for id: {}", operation, id);
+        final DataGridRequest request;
+        try {
+            final JsonObject body = rc.getBodyAsJson();
+            if (body == null || body.getValue("amount") == null) {
+                sendBadRequest(rc, "There is no an amount to " + operation);
+                return;
+            }
+            final String currency = body.getString("currency");
+            request = new DataGridRequest(operation, UUID.fromString(id),
+                    Money.parse(String.valueOf(body.getValue("amount")),
+                            currency == null ? null : CurrencyCode.valueOf(currency)));
+        } catch (DecodeException | IllegalArgumentException | ClassCastException e) {
+            sendBadRequest(rc, "Malformed request: " + e.getMessage());
+            return;
+        }
+        send(operation, request, result -> {
+            sendReply(rc, id, result, HttpResponseStatus.OK);
+        });
+    }
+
+    /*
+      POST /transfer with { "from": ..., "to": ..., "amount": "10.00", "currency": "RUB" }, currency is optional.
+      Reply result is the transfer journal entry with both accounts after it.
+    */
+    protected void transferAmount(RoutingContext rc) {
+        meterHttp(rc, "transfer");
+        final DataGridRequest request;
+        final String from;
+        try {
+            final JsonObject body = rc.getBodyAsJson();
+            if (body == null || body.getString("from") == null || body.getString("to") == null
+                    || body.getValue("amount") == null) {
+                sendBadRequest(rc, "Transfer needs a from, a to and an amount");
+                return;
+            }
+            from = body.getString("from");
+            final String currency = body.getString("currency");
+            request = new DataGridRequest("transfer", UUID.fromString(from),
+                    Collections.singletonList(UUID.fromString(body.getString("to"))),
+                    Money.parse(String.valueOf(body.getValue("amount")),
+                            currency == null ? null : CurrencyCode.valueOf(currency)));
+        } catch (DecodeException | IllegalArgumentException | ClassCastException e) {
+            sendBadRequest(rc, "Malformed request: " + e.getMessage());
+            return;
+        }
+        send("transfer", request, result -> {
+            sendReply(rc, from, result, HttpResponseStatus.OK);
+        });
+    }
+
+    /*
+      Body is either { "ids": [...] } or a plain JSON array of ids.
+      Reply is streamed as { "statusCode": 200, "result": { "<id>": {...} | null, ... } }
+    */
+    protected void batchGetDataObjects(RoutingContext rc) {
+        meterHttp(rc, "batch-get");
+        final List<UUID> ids;
+        try {
+            final Buffer body = rc.getBody();
+            final JsonArray array;
+            if (body != null && body.length() > 0 && body.getByte(0) == '[') {
+                array = new JsonArray(body);
             } else {
-                sendError(rc, id, result.cause());
+                array = rc.getBodyAsJson() == null ? null : rc.getBodyAsJson().getJsonArray("ids");
+            }
+            if (array == null) {
+                sendBadRequest(rc, "There is no an ids array or it is NULL");
+                return;
+            }
+            if (array.size() > batchGetMaxIds) {
+                sendBadRequest(rc, "Too many ids " + array.size() + ", max is " + batchGetMaxIds);
+                return;
+            }
+            ids = new ArrayList<UUID>(array.size());
+            for (Object id : array) {
+                ids.add(UUID.fromString(String.valueOf(id)));
+            }
+        } catch (DecodeException | IllegalArgumentException | ClassCastException e) {
+            sendBadRequest(rc, "Malformed ids: " + e.getMessage());
+            return;
+        }
+        LOGGER.trace("Handling BATCH GET request for {} ids", ids.size());
+        this.<DataGridReply>send("getAll", new DataGridRequest("getAll", ids), result -> {
+            if (result.failed()) {
+                sendError(rc, String.valueOf(ids.size()) + " ids", result.cause());
+                return;
+            }
+            final DataGridReply reply = result.result().body();
+            final HttpServerResponse response = rc.response();
+            response.setChunked(true).setStatusCode(reply.getStatusCode()).putHeader("content-type",
+                    "application/json");
+            Buffer chunk = Buffer.buffer(RESPONSE_CHUNK_SIZE);
+            chunk.appendString("{\"statusCode\":").appendString(String.valueOf(reply.getStatusCode()))
+                    .appendString(",\"result\":{");
+            boolean first = true;
+            for (Map.Entry<UUID, AbstractDataObject> e : reply.getDataObjects().entrySet()) {
+                if (first == false) {
+                    chunk.appendByte((byte) ',');
+                }
+                first = false;
+                chunk.appendByte((byte) '"').appendString(e.getKey().toString()).appendString("\":");
+                final AbstractDataObject ado = e.getValue();
+                chunk.appendString(ado == null ? "null" : ado.toJson().encode());
+                if (chunk.length() >= RESPONSE_CHUNK_SIZE) {
+                    response.write(chunk);
+                    chunk = Buffer.buffer(RESPONSE_CHUNK_SIZE);
+                }
             }
+            response.end(chunk.appendString("}}"));
         });
     }
 
+    /*
+      Body is NDJSON or a JSON array of DataObjects, stored with "putAll" in batches of
+      service.http.bulk.import.batch.size, at most service.http.bulk.import.max.inflight at once.
+      Route has no BodyHandler, body may be far bigger than memory and is read as a stream
+      up to service.http.bulk.import.max.size.
+    */
+    protected void bulkImportDataObjects(RoutingContext rc) {
+        meterHttp(rc, "bulk-import");
+        if (dataObjectConstructor == null) {
+            rc.response().setStatusCode(HttpResponseStatus.NOT_IMPLEMENTED.code())
+                    .end("Bulk import requires " + SERVICE_DATA_OBJECT_CLASS.key + " to be set");
+            return;
+        }
+        if (rejectTooLarge(rc, bulkImportMaxSize)) {
+            return;
+        }
+        LOGGER.trace("Handling BULK IMPORT request");
+        new BulkImport(rc, this::send, this::dataObjectFromJson, bulkImportBatchSize, bulkImportMaxInFlight,
+                bulkImportMaxSize).start();
+    }
+
+    /*
+      Change events of the data grid, published when it runs with service.jdg.change.events=true.
+      Server-Sent Events, or WebSocket when the request asks for an upgrade. Query parameters
+      id and status (repeated or comma separated) filter the events.
+    */
+    protected void subscribeToChanges(RoutingContext rc) {
+        if (changeStream.isFull()) {
+            LOGGER.debug("Too many change stream subscribers, rejecting {}", rc.request().remoteAddress());
+            rc.response().setStatusCode(HttpResponseStatus.SERVICE_UNAVAILABLE.code())
+                    .end("Too many change stream subscribers");
+            return;
+        }
+        final Set<String> ids = ChangeStream.filterOf(rc.queryParam(HTTP_GET_PARAMETER_ID));
+        final Set<String> statuses = ChangeStream.filterOf(rc.queryParam("status"));
+        if ("websocket".equalsIgnoreCase(rc.request().getHeader("Upgrade"))) {
+            changeStream.subscribe(rc.request().upgrade(), ids, statuses);
+        } else {
+            changeStream.subscribe(rc.response(), ids, statuses);
+        }
+    }
+
     @Override
     protected void defaultEventBusHandler(Message<JsonObject> message) {
 
     }
 
+    // Adapter only sends to the data grid address, consuming it would steal requests
+    @Override
+    public void registerEventBusHandler() {
+        LOGGER.info("{} does not consume eventbus address {}", getClass().getSimpleName(), getEventBusAddress());
+    }
+
+    @Override
+    public void unregisterEventBusHandler() {
+    }
+
     @Override
     protected String getType() {
         return ARTIFACT_ID;
@@ -0,0 +1,112 @@
+package com.redhat.dsevosty.common.svc.adapter;
+
+import com.redhat.dsevosty.common.model.AbstractDataObject;
+import com.redhat.dsevosty.common.model.DataGridReply;
+import com.redhat.dsevosty.common.model.DataGridRequest;
+
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.eventbus.ReplyException;
+import io.vertx.core.http.HttpServerResponse;
+import io.vertx.core.logging.Logger;
+import io.vertx.core.logging.LoggerFactory;
+import io.vertx.ext.web.RoutingContext;
+
+/*
+  Streams the whole cache as a chunked JSON array, one "scan" page at a time.
+  Next page is asked for only when the previous one is written and the response write queue
+  is not full, so memory is bounded by one page whatever the cache size. Failure after
+  the first page resets the connection, client sees a truncated body, not a complete array.
+*/
+
+class ScanExport {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ScanExport.class);
+
+    private static final int RESPONSE_CHUNK_SIZE = 8192;
+
+    private final RoutingContext rc;
+    private final BulkImport.Sender sender;
+
+    private long records;
+    private boolean started;
+    private boolean closed;
+
+    ScanExport(RoutingContext rc, BulkImport.Sender sender) {
+        this.rc = rc;
+        this.sender = sender;
+    }
+
+    void start() {
+        rc.response().closeHandler(v -> closed = true);
+        fetch(null);
+    }
+
+    private void fetch(String cursor) {
+        sender.send("scan", new DataGridRequest("scan", cursor), ar -> {
+            if (closed) {
+                LOGGER.debug("Scan export closed by client after {} records", records);
+                if (ar.succeeded() && ar.result().body().getCursor() != null) {
+                    sender.send("scanClose", new DataGridRequest("scanClose", ar.result().body().getCursor()),
+                            closedScan -> {
+                            });
+                }
+                return;
+            }
+            if (ar.failed()) {
+                failed(ar.cause());
+                return;
+            }
+            write(ar.result().body());
+        });
+    }
+
+    private void write(DataGridReply page) {
+        final HttpServerResponse response = rc.response();
+        Buffer chunk = Buffer.buffer(RESPONSE_CHUNK_SIZE);
+        if (started == false) {
+            started = true;
+            response.setChunked(true).setStatusCode(HttpResponseStatus.OK.code()).putHeader("content-type",
+                    "application/json");
+            chunk.appendByte((byte) '[');
+        }
+        for (AbstractDataObject ado : page.getDataObjects().values()) {
+            if (records > 0) {
+                chunk.appendByte((byte) ',');
+            }
+            records++;
+            chunk.appendString(ado.toJson().encode());
+            if (chunk.length() >= RESPONSE_CHUNK_SIZE) {
+                response.write(chunk);
+                chunk = Buffer.buffer(RESPONSE_CHUNK_SIZE);
+            }
+        }
+        final String cursor = page.getCursor();
+        if (cursor == null) {
+            LOGGER.debug("Scan export finished, {} records", records);
+            response.end(chunk.appendByte((byte) ']'));
+            return;
+        }
+        response.write(chunk);
+        if (response.writeQueueFull()) {
+            response.drainHandler(v -> {
+                response.drainHandler(null);
+                fetch(cursor);
+            });
+        } else {
+            fetch(cursor);
+        }
+    }
+
+    private void failed(Throwable t) {
+        LOGGER.error("Scan export failed after {} records", t, records);
+        if (started) {
+            rc.request().connection().close();
+            return;
+        }
+        final int code = t instanceof ReplyException && ((ReplyException) t).failureCode() > 0
+                ? ((ReplyException) t).failureCode()
+                : HttpResponseStatus.INTERNAL_SERVER_ERROR.code();
+        rc.response().setStatusCode(code).end(String.valueOf(t.getMessage()));
+    }
+}
@@ -0,0 +1,7 @@
+/*
+  Module declaration for vertx-codegen, data object converters are generated into src/main/generated.
+*/
+@ModuleGen(name = "dsevosty", groupPackage = "com.redhat.dsevosty")
+package com.redhat.dsevosty;
+
+import io.vertx.codegen.annotations.ModuleGen;
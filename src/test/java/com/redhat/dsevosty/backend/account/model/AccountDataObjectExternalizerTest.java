@@ -0,0 +1,133 @@
+package com.redhat.dsevosty.backend.account.model;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.UUID;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.redhat.dsevosty.common.AccountStatusCode;
+import com.redhat.dsevosty.common.marshall.DataObjectExternalizer;
+import com.redhat.dsevosty.common.marshall.DataObjectMarshaller;
+
+import org.infinispan.commons.marshall.JavaSerializationMarshaller;
+import org.infinispan.commons.marshall.Marshaller;
+import org.junit.jupiter.api.Test;
+
+import io.vertx.core.json.Json;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+
+public class AccountDataObjectExternalizerTest {
+
+    private final DataObjectMarshaller marshaller = new DataObjectMarshaller()
+            .register(new AccountDataObjectExternalizer());
+
+    private static AccountDataObject newAccount() {
+        AccountDataObject ado = new AccountDataObject(UUID.randomUUID(), "40817-810-0-0000-0000001", "RUB", true,
+                new BigDecimal("12345.67"));
+        ado.setStatus(AccountStatusCode.ACTIVE.name());
+        ado.setMetaId(UUID.randomUUID());
+        ado.setVersion();
+        return ado;
+    }
+
+    @Test
+    public void roundTrip() throws Exception {
+        AccountDataObject ado = newAccount();
+        AccountDataObject fetched = (AccountDataObject) marshaller
+                .objectFromByteBuffer(marshaller.objectToByteBuffer(ado));
+        assertThat(fetched.exactlyEquals(ado)).isTrue();
+        assertThat(fetched.isCredit()).isEqualTo(ado.isCredit());
+        assertThat(fetched.getStatus()).isEqualTo(ado.getStatus());
+        assertThat(fetched.getMetaId()).isEqualTo(ado.getMetaId());
+        assertThat(fetched.getAmount().scale()).isEqualTo(ado.getAmount().scale());
+    }
+
+    @Test
+    public void roundTripWithUnsetFields() throws Exception {
+        AccountDataObject ado = new AccountDataObject(UUID.randomUUID(), null, null, false,
+                new BigDecimal("-92233720368547758.08"));
+        ado.setStatus(null);
+        AccountDataObject fetched = (AccountDataObject) marshaller
+                .objectFromByteBuffer(marshaller.objectToByteBuffer(ado));
+        assertThat(fetched).isEqualTo(ado);
+        assertThat(fetched.isVersionSet()).isFalse();
+        assertThat(fetched.getStatus()).isNull();
+        assertThat(fetched.getMetaId()).isNull();
+        assertThat(fetched.getMinorUnits()).isEqualTo(Long.MIN_VALUE);
+    }
+
+    @Test
+    public void amountStoredAsBigDecimalIsRead() throws Exception {
+        assertThat(DataObjectExternalizer.readUnscaled(input(new BigDecimal("12345.67")), 2)).isEqualTo(1234567);
+        assertThat(DataObjectExternalizer.readUnscaled(input(new BigDecimal("10.5")), 2)).isEqualTo(1050);
+        assertThat(DataObjectExternalizer.readUnscaled(input(new BigDecimal("-3.000")), 2)).isEqualTo(-300);
+        assertThatThrownBy(() -> DataObjectExternalizer.readUnscaled(input(new BigDecimal("0.001")), 2))
+                .isInstanceOf(IOException.class);
+        assertThatThrownBy(() -> DataObjectExternalizer
+                .readUnscaled(input(new BigDecimal("123456789012345678901234567890.00")), 2))
+                .isInstanceOf(IOException.class);
+    }
+
+    private static DataInputStream input(BigDecimal stored) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataObjectExternalizer.writeBigDecimal(new DataOutputStream(bytes), stored);
+        return new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+    }
+
+    @Test
+    public void jsonRoundTrip() {
+        AccountDataObject ado = newAccount();
+        AccountDataObject fetched = new AccountDataObject(ado.toJson());
+        assertThat(fetched.exactlyEquals(ado)).isTrue();
+        assertThat(fetched.isCredit()).isTrue();
+        assertThat(fetched.getStatus()).isEqualTo(ado.getStatus());
+        assertThat(fetched.getMetaId()).isEqualTo(ado.getMetaId());
+        assertThat(fetched.toString()).contains(ado.getId().toString()).doesNotContain("versionSet");
+        assertThat(new AccountDataObject(new JsonObject().put("amount", 10.5)).getAmount())
+                .isEqualByComparingTo("10.5");
+        assertThat(new AccountDataObject(new JsonObject().put("amount", 10.5)).toJson().getString("amount"))
+                .isEqualTo("10.50");
+    }
+
+    @Test
+    public void parsedFromJsonParserAsFromJsonObject() throws Exception {
+        AccountDataObject ado = newAccount();
+        JsonObject json = ado.toJson().put("ignored", new JsonObject().put("nested", new JsonArray().add(1)));
+        try (JsonParser parser = Json.mapper.getFactory().createParser(json.encode())) {
+            AccountDataObject parsed = new AccountDataObject(parser);
+            assertThat(parsed.exactlyEquals(new AccountDataObject(json))).isTrue();
+            assertThat(parsed.isCredit()).isTrue();
+            assertThat(parsed.getMetaId()).isEqualTo(ado.getMetaId());
+            assertThat(parsed.getStatus()).isEqualTo(ado.getStatus());
+        }
+        try (JsonParser parser = Json.mapper.getFactory().createParser("{\"number\":\"1\"}")) {
+            assertThat(new AccountDataObject(parser).hasId()).isFalse();
+        }
+    }
+
+    @Test
+    public void roundTripKeys() throws Exception {
+        UUID id = UUID.randomUUID();
+        assertThat(marshaller.objectFromByteBuffer(marshaller.objectToByteBuffer(id))).isEqualTo(id);
+        assertThat(marshaller.objectToByteBuffer(id)).hasSize(17);
+        assertThat(marshaller.objectFromByteBuffer(marshaller.objectToByteBuffer("key"))).isEqualTo("key");
+        assertThat(marshaller.objectFromByteBuffer(marshaller.objectToByteBuffer(null))).isNull();
+    }
+
+    // timing of both is in SerializationBenchmark of the jmh profile
+    @Test
+    public void compactPayloadIsSmallerThanJavaSerialization() throws Exception {
+        AccountDataObject ado = newAccount();
+        Marshaller java = new JavaSerializationMarshaller();
+        assertThat(marshaller.objectToByteBuffer(ado).length)
+                .isLessThan(java.objectToByteBuffer(ado).length / 2);
+    }
+}
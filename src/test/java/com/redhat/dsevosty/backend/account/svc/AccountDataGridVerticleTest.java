@@ -1,24 +1,53 @@
 package com.redhat.dsevosty.backend.account.svc;
 
+import static com.redhat.dsevosty.common.ServiceConstant.SERVICE_DATA_OBJECT_CLASS;
 import static com.redhat.dsevosty.common.ServiceConstant.SERVICE_EVENTBUS_PREFIX;
+import static com.redhat.dsevosty.common.ServiceConstant.SERVICE_HTTP_BODY_MAX_SIZE;
+import static com.redhat.dsevosty.common.ServiceConstant.SERVICE_HTTP_BULK_IMPORT_BATCH_SIZE;
+import static com.redhat.dsevosty.common.ServiceConstant.SERVICE_HTTP_BULK_IMPORT_MAX_SIZE;
 import static com.redhat.dsevosty.common.ServiceConstant.SERVICE_HTTP_LISTEN_ADDRESS;
 import static com.redhat.dsevosty.common.ServiceConstant.SERVICE_HTTP_LISTEN_PORT;
+import static com.redhat.dsevosty.common.ServiceConstant.SERVICE_JDG_CHANGE_EVENTS;
+import static com.redhat.dsevosty.common.ServiceConstant.SERVICE_JDG_NEAR_CACHE_MAX_ENTRIES;
 import static com.redhat.dsevosty.common.ServiceConstant.SERVICE_JDG_REMOTE_ADDRESS;
 import static com.redhat.dsevosty.common.ServiceConstant.SERVICE_JDG_REMOTE_PORT;
+import static com.redhat.dsevosty.common.ServiceConstant.SERVICE_JDG_SCAN_BATCH_SIZE;
+import static com.redhat.dsevosty.common.ServiceConstant.SERVICE_JDG_TRANSFER_BATCH_WINDOW;
 import static com.redhat.dsevosty.common.ServiceConstant.SERVICE_NAMESPACE;
 import static com.redhat.dsevosty.common.ServiceConstant.SERVICE_OPERATION;
 import static org.assertj.core.api.Assertions.assertThat;
 
+import java.lang.management.ManagementFactory;
 import java.math.BigDecimal;
 import java.net.ServerSocket;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
 
 import com.redhat.dsevosty.backend.account.model.AccountDataObject;
+import com.redhat.dsevosty.backend.account.model.AccountDataObjectExternalizer;
 import com.redhat.dsevosty.backend.util.InfinispanLocalHotrodServer;
 import com.redhat.dsevosty.common.AccountStatusCode;
+import com.redhat.dsevosty.common.CurrencyCode;
+import com.redhat.dsevosty.common.marshall.DataObjectMarshaller;
+import com.redhat.dsevosty.common.metrics.OperationMetrics;
+import com.redhat.dsevosty.common.metrics.ServiceMetrics;
 import com.redhat.dsevosty.common.model.AbstractDataObject;
+import com.redhat.dsevosty.common.model.DataGridReply;
+import com.redhat.dsevosty.common.model.DataGridRequest;
+import com.redhat.dsevosty.common.svc.LocalDataGridServices;
+import com.redhat.dsevosty.common.svc.adapter.CommonHttpAdapter;
 
+import org.infinispan.client.hotrod.RemoteCache;
 import org.infinispan.configuration.cache.ConfigurationBuilder;
 import org.infinispan.server.hotrod.configuration.HotRodServerConfigurationBuilder;
 import org.junit.jupiter.api.AfterAll;
@@ -38,6 +67,9 @@ import io.vertx.core.eventbus.DeliveryOptions;
 import io.vertx.core.eventbus.EventBus;
 import io.vertx.core.eventbus.Message;
 import io.vertx.core.eventbus.ReplyException;
+import io.vertx.core.http.HttpClient;
+import io.vertx.core.http.HttpClientRequest;
+import io.vertx.core.json.JsonArray;
 import io.vertx.core.json.JsonObject;
 import io.vertx.core.logging.Logger;
 import io.vertx.core.logging.LoggerFactory;
@@ -52,6 +84,11 @@ public class AccountDataGridVerticleTest {
     private static final Logger LOGGER = LoggerFactory.getLogger(AccountDataGridVerticleTest.class);
     private static final String PUBLIC_CONTEXT_NAME = "account";
     private static final int DEFAULT_DELAY = 2;
+    private static final int DATA_GRID_INSTANCES = 2;
+    private static final int BODY_MAX_SIZE = 64 * 1024;
+    private static final int BULK_IMPORT_MAX_SIZE = 32 * 1024;
+    private static final int SCAN_BATCH_SIZE = 7;
+    private static final String TRANSFER_JOURNAL = PUBLIC_CONTEXT_NAME + "-transfers";
 
     private static InfinispanLocalHotrodServer<UUID, AbstractDataObject> server;
 
@@ -63,6 +100,18 @@ public class AccountDataGridVerticleTest {
 
     private static final AccountDataObject ADO = new AccountDataObject();
     private static int httpPort = 0;
+    private static int adapterPort = 0;
+
+    private static int freePort() {
+        try {
+            ServerSocket socket = new ServerSocket(0);
+            final int port = socket.getLocalPort();
+            socket.close();
+            return port;
+        } catch (Exception e) {
+            return Integer.valueOf(SERVICE_HTTP_LISTEN_PORT.value);
+        }
+    }
 
     @BeforeAll
     public static void setUp(Vertx vertx, VertxTestContext context) throws InterruptedException {
@@ -70,26 +119,36 @@ public class AccountDataGridVerticleTest {
                 .host(SERVICE_JDG_REMOTE_ADDRESS.value).defaultCacheName(PUBLIC_CONTEXT_NAME)
                 .port(Integer.valueOf(SERVICE_JDG_REMOTE_PORT.value));
         ConfigurationBuilder cacheConfig = new ConfigurationBuilder();
-        server = new InfinispanLocalHotrodServer<UUID, AbstractDataObject>(cacheConfig.build(), serverConfig.build());
+        DataObjectMarshaller marshaller = new DataObjectMarshaller().register(new AccountDataObjectExternalizer());
+        server = new InfinispanLocalHotrodServer<UUID, AbstractDataObject>(cacheConfig.build(), serverConfig.build(),
+                marshaller);
         server.getCache().put(ADO.getId(), ADO);
+        server.defineCache(TRANSFER_JOURNAL);
 
         DeploymentOptions options = new DeploymentOptions();
         JsonObject vertxConfig = new JsonObject();
         vertxConfig.put(SERVICE_JDG_REMOTE_ADDRESS.key, SERVICE_JDG_REMOTE_ADDRESS.value);
         vertxConfig.put(SERVICE_JDG_REMOTE_PORT.key, SERVICE_JDG_REMOTE_PORT.value);
         vertxConfig.put(SERVICE_NAMESPACE.key, PUBLIC_CONTEXT_NAME);
-        try {
-            ServerSocket socket = new ServerSocket(0);
-            httpPort = socket.getLocalPort();
-            socket.close();
-        } catch (Exception e) {
-            httpPort = Integer.valueOf(SERVICE_HTTP_LISTEN_PORT.value);
-        }
+        vertxConfig.put(SERVICE_JDG_NEAR_CACHE_MAX_ENTRIES.key, "1000");
+        vertxConfig.put(SERVICE_JDG_CHANGE_EVENTS.key, "true");
+        vertxConfig.put(SERVICE_JDG_SCAN_BATCH_SIZE.key, String.valueOf(SCAN_BATCH_SIZE));
+        vertxConfig.put(SERVICE_JDG_TRANSFER_BATCH_WINDOW.key, "20");
+        httpPort = freePort();
         vertxConfig.put(SERVICE_HTTP_LISTEN_PORT.key, String.valueOf(httpPort));
 
-        options.setConfig(vertxConfig);
-        vertx.deployVerticle(AccountDataGridVerticle.class, options,
-                context.succeeding(result -> context.completeNow()));
+        options.setConfig(vertxConfig).setInstances(DATA_GRID_INSTANCES);
+        vertx.deployVerticle(AccountDataGridVerticle.class, options, context.succeeding(result -> {
+            adapterPort = freePort();
+            JsonObject adapterConfig = vertxConfig.copy();
+            adapterConfig.put(SERVICE_HTTP_LISTEN_PORT.key, String.valueOf(adapterPort));
+            adapterConfig.put(SERVICE_DATA_OBJECT_CLASS.key, AccountDataObject.class.getName());
+            adapterConfig.put(SERVICE_HTTP_BULK_IMPORT_BATCH_SIZE.key, "10");
+            adapterConfig.put(SERVICE_HTTP_BODY_MAX_SIZE.key, String.valueOf(BODY_MAX_SIZE));
+            adapterConfig.put(SERVICE_HTTP_BULK_IMPORT_MAX_SIZE.key, String.valueOf(BULK_IMPORT_MAX_SIZE));
+            vertx.deployVerticle(CommonHttpAdapter.class, new DeploymentOptions().setConfig(adapterConfig),
+                    context.succeeding(adapter -> context.completeNow()));
+        }));
     }
 
     @AfterAll
@@ -240,12 +299,37 @@ public class AccountDataGridVerticleTest {
         options.addHeader(SERVICE_OPERATION.key, "create");
         AccountDataObject _new = ADO;
         sender.<JsonObject>send(address, _new.toJson(), options, result -> {
-            checkWrongResult(result, HttpResponseStatus.CREATED, HttpResponseStatus.INTERNAL_SERVER_ERROR, context,
+            checkWrongResult(result, HttpResponseStatus.CREATED, HttpResponseStatus.CONFLICT, context,
                     this::handleCreateRightAnswer, this::handleCreateWrongAnswer);
         });
         context.awaitCompletion(DEFAULT_DELAY, TimeUnit.SECONDS);
     }
 
+    @Test
+    public void concurrentCreateOfSameIdSucceedsOnce(Vertx vertx, VertxTestContext context)
+            throws InterruptedException {
+        final int attempts = 8;
+        final AccountDataObject _new = new AccountDataObject();
+        final AtomicInteger created = new AtomicInteger();
+        final AtomicInteger rejected = new AtomicInteger();
+        Checkpoint replies = context.checkpoint(attempts);
+        DeliveryOptions options = new DeliveryOptions();
+        options.addHeader(SERVICE_OPERATION.key, "create");
+        for (int i = 0; i < attempts; i++) {
+            sender.<JsonObject>send(address, _new.toJson(), options, result -> {
+                if (result.succeeded()) {
+                    created.incrementAndGet();
+                } else {
+                    rejected.incrementAndGet();
+                }
+                replies.flag();
+            });
+        }
+        assertThat(context.awaitCompletion(DEFAULT_DELAY, TimeUnit.SECONDS)).isTrue();
+        assertThat(created.get()).isEqualTo(1);
+        assertThat(rejected.get()).isEqualTo(attempts - 1);
+    }
+
     @Test
     public void getAccount(Vertx vertx, VertxTestContext context) throws InterruptedException {
         DeliveryOptions options = new DeliveryOptions();
@@ -271,6 +355,396 @@ public class AccountDataGridVerticleTest {
         context.awaitCompletion(DEFAULT_DELAY, TimeUnit.SECONDS);
     }
 
+    @Test
+    public void getAccountWithDataGridRequest(Vertx vertx, VertxTestContext context) throws InterruptedException {
+        sender.<DataGridReply>send(address, new DataGridRequest("get", ADO.getId()), result -> {
+            if (result.failed()) {
+                context.failNow(result.cause());
+                return;
+            }
+            try {
+                DataGridReply reply = result.result().body();
+                assertThat(reply.getStatusCode()).isEqualTo(HttpResponseStatus.OK.code());
+                assertThat(reply.getDataObject()).isEqualTo(ADO);
+                context.completeNow();
+            } catch (Throwable t) {
+                context.failNow(t);
+            }
+        });
+        context.awaitCompletion(DEFAULT_DELAY, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void createAccountWithDataGridRequest(Vertx vertx, VertxTestContext context) throws InterruptedException {
+        AccountDataObject _new = new AccountDataObject();
+        sender.<DataGridReply>send(address, new DataGridRequest("create", _new), result -> {
+            if (result.failed()) {
+                context.failNow(result.cause());
+                return;
+            }
+            try {
+                DataGridReply reply = result.result().body();
+                assertThat(reply.getStatusCode()).isEqualTo(HttpResponseStatus.CREATED.code());
+                assertThat(reply.getDataObject()).isEqualTo(_new);
+                assertThat(((AccountDataObject) reply.getDataObject()).isVersionSet()).isTrue();
+                context.completeNow();
+            } catch (Throwable t) {
+                context.failNow(t);
+            }
+        });
+        context.awaitCompletion(DEFAULT_DELAY, TimeUnit.SECONDS);
+    }
+
+    private DataGridReply sendAndWait(DataGridRequest request) throws Exception {
+        CompletableFuture<DataGridReply> future = new CompletableFuture<DataGridReply>();
+        sender.<DataGridReply>send(address, request, result -> {
+            if (result.succeeded()) {
+                future.complete(result.result().body());
+            } else {
+                future.completeExceptionally(result.cause());
+            }
+        });
+        return future.get(DEFAULT_DELAY, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void nearCacheIsInvalidatedByRemoteWrite(Vertx vertx, VertxTestContext context) throws Exception {
+        AccountDataObject ado = new AccountDataObject();
+        server.getCache().put(ado.getId(), ado);
+        assertThat(sendAndWait(new DataGridRequest("get", ado.getId())).getDataObject()).isEqualTo(ado);
+        assertThat(sendAndWait(new DataGridRequest("get", ado.getId())).getDataObject()).isEqualTo(ado);
+
+        AccountDataObject changed = new AccountDataObject(ado.getId(), ado.getNumber(), ado.getCurrencyISO4217(),
+                ado.isCredit(), new BigDecimal("100.00"));
+        server.getCache().put(changed.getId(), changed);
+        // client listener events are delivered asynchronously
+        AbstractDataObject fetched = null;
+        for (int i = 0; i < 20; i++) {
+            fetched = sendAndWait(new DataGridRequest("get", ado.getId())).getDataObject();
+            if (changed.equals(fetched)) {
+                break;
+            }
+            Thread.sleep(50);
+        }
+        assertThat(fetched).isEqualTo(changed);
+        context.completeNow();
+    }
+
+    @Test
+    public void instancesShareCacheManagerAndMBean(Vertx vertx, VertxTestContext context) throws Exception {
+        MBeanServer mbs = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName(AccountDataGridVerticle.PACKAGE_NAME + ":type=" + AccountDataGridVerticle.ARTIFACT_ID);
+        assertThat(mbs.getAttribute(name, "Instances")).isEqualTo(DATA_GRID_INSTANCES);
+        assertThat(mbs.getAttribute(name, "CacheManagerReferences")).isEqualTo(DATA_GRID_INSTANCES);
+        context.completeNow();
+    }
+
+    @Test
+    public void metricsAreExposedOnManagementEndpoint(Vertx vertx, VertxTestContext context) throws Exception {
+        sendAndWait(new DataGridRequest("get", ADO.getId()));
+        WebClient web = WebClient.create(vertx);
+        web.get(httpPort, SERVICE_HTTP_LISTEN_ADDRESS.value, "/" + AccountDataGridVerticle.ARTIFACT_ID + "/management/metrics")
+                .send(response -> {
+                    httpResponseHandler(response, context, buffer -> {
+                        JsonObject metrics = buffer.toJsonObject().getJsonObject("result");
+                        JsonObject get = metrics.getJsonObject("datagrid").getJsonObject("get");
+                        assertThat(get.getLong("count")).isGreaterThan(0);
+                        assertThat(get.getLong("max")).isGreaterThanOrEqualTo(get.getLong("p50"));
+                        assertThat(get.getInteger("inFlight")).isZero();
+                        assertThat(metrics.getJsonObject("cache")).isNotNull();
+                    });
+                    web.close();
+                });
+        context.awaitCompletion(DEFAULT_DELAY, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void adapterCallsColocatedDataGridDirectly(Vertx vertx, VertxTestContext context) throws Exception {
+        final LocalDataGridServices.Binding binding = LocalDataGridServices.binding(vertx, address);
+        assertThat(binding.size()).isEqualTo(DATA_GRID_INSTANCES);
+        final OperationMetrics local = ServiceMetrics.forService(PUBLIC_CONTEXT_NAME).get(ServiceMetrics.HOP_LOCAL,
+                "get");
+        final long before = local.getLatency().getCount();
+        WebClient web = WebClient.create(vertx);
+        web.get(adapterPort, SERVICE_HTTP_LISTEN_ADDRESS.value, "/" + CommonHttpAdapter.ARTIFACT_ID + "/" + ADO.getId())
+                .send(fetched -> {
+            context.verify(() -> {
+                assertThat(fetched.result().statusCode()).isEqualTo(HttpResponseStatus.OK.code());
+                assertThat(local.getLatency().getCount()).isEqualTo(before + 1);
+            });
+            binding.execute(new DataGridRequest("update", new AccountDataObject()), updated -> {
+                context.verify(() -> {
+                    assertThat(updated.failed()).isTrue();
+                    assertThat(((ReplyException) updated.cause()).failureCode())
+                            .isEqualTo(HttpResponseStatus.PRECONDITION_REQUIRED.code());
+                });
+                web.close();
+                context.completeNow();
+            });
+        });
+        context.awaitCompletion(DEFAULT_DELAY, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void changesAreStreamedToSubscribers(Vertx vertx, VertxTestContext context) throws Exception {
+        final Checkpoint sse = context.checkpoint();
+        final Checkpoint ws = context.checkpoint();
+        final String base = "/" + CommonHttpAdapter.ARTIFACT_ID;
+        final AccountDataObject watched = new AccountDataObject();
+        final AccountDataObject active = new AccountDataObject();
+        active.setStatus(AccountStatusCode.ACTIVE.name());
+        HttpClient client = vertx.createHttpClient();
+        WebClient web = WebClient.create(vertx);
+        client.get(adapterPort, SERVICE_HTTP_LISTEN_ADDRESS.value, base + "/changes?id=" + watched.getId(), response -> {
+            context.verify(() -> {
+                assertThat(response.getHeader("content-type")).isEqualTo("text/event-stream");
+            });
+            final StringBuilder events = new StringBuilder();
+            response.handler(chunk -> {
+                events.append(chunk.toString());
+                if (events.indexOf("event: created") >= 0) {
+                    context.verify(() -> {
+                        assertThat(events.toString()).contains(watched.getId().toString())
+                                .doesNotContain(active.getId().toString());
+                    });
+                    sse.flag();
+                }
+            });
+            client.websocket(adapterPort, SERVICE_HTTP_LISTEN_ADDRESS.value, base + "/changes?status=ACTIVE", socket -> {
+                socket.textMessageHandler(text -> {
+                    final JsonObject event = new JsonObject(text);
+                    context.verify(() -> {
+                        assertThat(event.getString("type")).isEqualTo("created");
+                        assertThat(event.getString("id")).isEqualTo(active.getId().toString());
+                        assertThat(event.getJsonObject("dataObject").getString("status"))
+                                .isEqualTo(AccountStatusCode.ACTIVE.name());
+                    });
+                    ws.flag();
+                });
+                web.post(adapterPort, SERVICE_HTTP_LISTEN_ADDRESS.value, base + "/").sendJsonObject(active.toJson(),
+                        created -> web.post(adapterPort, SERVICE_HTTP_LISTEN_ADDRESS.value, base + "/")
+                                .sendJsonObject(watched.toJson(), ar -> {}));
+            });
+        }).end();
+        context.awaitCompletion(DEFAULT_DELAY, TimeUnit.SECONDS);
+        web.close();
+        client.close();
+    }
+
+    private static Set<UUID> putAccounts(int count) {
+        Map<UUID, AbstractDataObject> accounts = new HashMap<UUID, AbstractDataObject>();
+        for (int i = 0; i < count; i++) {
+            AccountDataObject ado = new AccountDataObject();
+            accounts.put(ado.getId(), ado);
+        }
+        server.getCache().putAll(accounts);
+        return accounts.keySet();
+    }
+
+    @Test
+    public void scanStreamsAllAccounts(Vertx vertx, VertxTestContext context) throws InterruptedException {
+        putAccounts(SCAN_BATCH_SIZE * 3);
+        final Set<UUID> expected = new HashSet<UUID>(server.getCache().keySet());
+        WebClient web = WebClient.create(vertx);
+        web.get(adapterPort, SERVICE_HTTP_LISTEN_ADDRESS.value, "/" + CommonHttpAdapter.ARTIFACT_ID + "/scan")
+                .send(response -> {
+                    httpResponseHandler(response, context, buffer -> {
+                        assertThat(response.result().getHeader("transfer-encoding")).isEqualTo("chunked");
+                        JsonArray all = buffer.toJsonArray();
+                        Set<UUID> scanned = new HashSet<UUID>();
+                        for (int i = 0; i < all.size(); i++) {
+                            scanned.add(new AccountDataObject(all.getJsonObject(i)).getId());
+                        }
+                        assertThat(all.size()).isEqualTo(expected.size());
+                        assertThat(scanned).isEqualTo(expected);
+                    });
+                    web.close();
+                });
+        context.awaitCompletion(DEFAULT_DELAY, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void scanPagesFollowCursor(Vertx vertx, VertxTestContext context) throws Exception {
+        putAccounts(SCAN_BATCH_SIZE * 2);
+        final Set<UUID> expected = new HashSet<UUID>(server.getCache().keySet());
+        final Set<UUID> scanned = new HashSet<UUID>();
+        String cursor = null;
+        int pages = 0;
+        do {
+            DataGridReply page = sendAndWait(new DataGridRequest("scan", cursor));
+            assertThat(page.getStatusCode()).isEqualTo(HttpResponseStatus.OK.code());
+            assertThat(page.getDataObjects().size()).isLessThanOrEqualTo(SCAN_BATCH_SIZE);
+            scanned.addAll(page.getDataObjects().keySet());
+            cursor = page.getCursor();
+            pages++;
+        } while (cursor != null);
+        assertThat(scanned).isEqualTo(expected);
+        assertThat(pages).isGreaterThanOrEqualTo(expected.size() / SCAN_BATCH_SIZE);
+
+        final String open = sendAndWait(new DataGridRequest("scan", (String) null)).getCursor();
+        assertThat(sendAndWait(new DataGridRequest("scanClose", open)).getStatusCode())
+                .isEqualTo(HttpResponseStatus.NO_CONTENT.code());
+        WebClient web = WebClient.create(vertx);
+        web.get(adapterPort, SERVICE_HTTP_LISTEN_ADDRESS.value,
+                "/" + CommonHttpAdapter.ARTIFACT_ID + "/scan/page?cursor=" + open).send(gone -> {
+                    context.verify(() -> {
+                        assertThat(gone.result().statusCode()).isEqualTo(HttpResponseStatus.GONE.code());
+                    });
+                    web.close();
+                    context.completeNow();
+                });
+        context.awaitCompletion(DEFAULT_DELAY, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void aggregatesAreComputedByDataGrid(Vertx vertx, VertxTestContext context) throws InterruptedException {
+        Map<UUID, AbstractDataObject> accounts = new HashMap<UUID, AbstractDataObject>();
+        for (CurrencyCode currency : CurrencyCode.values()) {
+            AccountDataObject ado = new AccountDataObject(UUID.randomUUID(), "AGG-" + currency.code, currency.code,
+                    false, new BigDecimal("10.25"));
+            accounts.put(ado.getId(), ado);
+        }
+        server.getCache().putAll(accounts);
+        final Map<String, BigDecimal> balances = new HashMap<String, BigDecimal>();
+        final Map<String, Long> counts = new HashMap<String, Long>();
+        long total = 0;
+        for (AbstractDataObject ado : server.getCache().values()) {
+            AccountDataObject account = (AccountDataObject) ado;
+            balances.merge(account.getCurrencyISO4217(), account.getAmount(), BigDecimal::add);
+            counts.merge(account.getStatus(), 1L, Long::sum);
+            total++;
+        }
+        final long expected = total;
+        WebClient web = WebClient.create(vertx);
+        web.get(adapterPort, SERVICE_HTTP_LISTEN_ADDRESS.value, "/" + CommonHttpAdapter.ARTIFACT_ID + "/aggregate")
+                .send(response -> {
+                    httpResponseHandler(response, context, buffer -> {
+                        JsonObject result = buffer.toJsonObject().getJsonObject("result");
+                        assertThat(result.getLong("accounts")).isEqualTo(expected);
+                        JsonObject byCurrency = result.getJsonObject("balanceByCurrency");
+                        assertThat(byCurrency.fieldNames()).isEqualTo(balances.keySet());
+                        balances.forEach((currency, balance) -> assertThat(
+                                new BigDecimal(byCurrency.getString(currency))).isEqualByComparingTo(balance));
+                        JsonObject byStatus = result.getJsonObject("countByStatus");
+                        assertThat(byStatus.fieldNames()).isEqualTo(counts.keySet());
+                        counts.forEach((status, count) -> assertThat(byStatus.getLong(status)).isEqualTo(count));
+                    });
+                    web.close();
+                });
+        context.awaitCompletion(DEFAULT_DELAY, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void batchGetAccounts(Vertx vertx, VertxTestContext context) throws InterruptedException {
+        final UUID missing = UUID.randomUUID();
+        WebClient web = WebClient.create(vertx);
+        JsonObject body = new JsonObject().put("ids", new JsonArray().add(ADO.getId().toString()).add(missing.toString()));
+        web.post(adapterPort, SERVICE_HTTP_LISTEN_ADDRESS.value, "/" + CommonHttpAdapter.ARTIFACT_ID + "/batch-get")
+                .sendJsonObject(body, response -> {
+                    httpResponseHandler(response, context, buffer -> {
+                        JsonObject result = buffer.toJsonObject().getJsonObject("result");
+                        assertThat(new AccountDataObject(result.getJsonObject(ADO.getId().toString()))).isEqualTo(ADO);
+                        assertThat(result.containsKey(missing.toString())).isTrue();
+                        assertThat(result.getValue(missing.toString())).isNull();
+                    });
+                    web.close();
+                });
+        context.awaitCompletion(DEFAULT_DELAY, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void bulkImportAccounts(Vertx vertx, VertxTestContext context) throws InterruptedException {
+        final AccountDataObject last = new AccountDataObject();
+        Buffer body = Buffer.buffer();
+        for (int i = 0; i < 24; i++) {
+            body.appendString(new AccountDataObject().toJson().encode()).appendString("\n");
+        }
+        body.appendString("{ not a json }\n\n").appendString("{ \"number\": \"no-id\" }\n")
+                .appendString(last.toJson().encode());
+        WebClient web = WebClient.create(vertx);
+        web.post(adapterPort, SERVICE_HTTP_LISTEN_ADDRESS.value, "/" + CommonHttpAdapter.ARTIFACT_ID + "/bulk-import")
+                .putHeader("content-type", "application/x-ndjson").sendBuffer(body, response -> {
+                    httpResponseHandler(response, context, buffer -> {
+                        JsonObject summary = buffer.toJsonObject();
+                        assertThat(summary.getLong("records")).isEqualTo(27);
+                        assertThat(summary.getLong("imported")).isEqualTo(25);
+                        assertThat(summary.getLong("rejected")).isEqualTo(2);
+                        assertThat(summary.getJsonArray("errors").getJsonObject(1).getString("error"))
+                                .isEqualTo("Record has no id");
+                        assertThat(summary.getJsonArray("batches").size()).isEqualTo(3);
+                        assertThat(summary.getJsonArray("batches").getJsonObject(2).getInteger("records"))
+                                .isEqualTo(5);
+                        assertThat(server.getCache().get(last.getId())).isEqualTo(last);
+                    });
+                    web.close();
+                });
+        context.awaitCompletion(DEFAULT_DELAY, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void bodyOverLimitIsRejected(Vertx vertx, VertxTestContext context) throws InterruptedException {
+        final JsonObject json = new AccountDataObject().toJson();
+        json.put("number", String.join("", Collections.nCopies(BODY_MAX_SIZE, "1")));
+        WebClient web = WebClient.create(vertx);
+        web.post(adapterPort, SERVICE_HTTP_LISTEN_ADDRESS.value, "/" + CommonHttpAdapter.ARTIFACT_ID + "/")
+                .sendJsonObject(json, response -> {
+                    context.verify(() -> {
+                        assertThat(response.result().statusCode())
+                                .isEqualTo(HttpResponseStatus.REQUEST_ENTITY_TOO_LARGE.code());
+                        assertThat(server.getCache().get(UUID.fromString(json.getString("id")))).isNull();
+                    });
+                    web.close();
+                    context.completeNow();
+                });
+        context.awaitCompletion(DEFAULT_DELAY, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void chunkedBulkImportStopsAtMaxSize(Vertx vertx, VertxTestContext context) throws InterruptedException {
+        final int records = 500;
+        HttpClient client = vertx.createHttpClient();
+        HttpClientRequest request = client.post(adapterPort, SERVICE_HTTP_LISTEN_ADDRESS.value,
+                "/" + CommonHttpAdapter.ARTIFACT_ID + "/bulk-import", response -> {
+                    response.bodyHandler(buffer -> {
+                        context.verify(() -> {
+                            assertThat(response.statusCode())
+                                    .isEqualTo(HttpResponseStatus.REQUEST_ENTITY_TOO_LARGE.code());
+                            JsonObject summary = buffer.toJsonObject();
+                            assertThat(summary.getLong("maxSize")).isEqualTo(BULK_IMPORT_MAX_SIZE);
+                            assertThat(summary.getLong("imported")).isPositive()
+                                    .isEqualTo(summary.getLong("records")).isLessThan(records);
+                        });
+                        client.close();
+                        context.completeNow();
+                    });
+                });
+        // server closes the connection after 413, rest of the body can not be written
+        request.setChunked(true).exceptionHandler(t -> LOGGER.debug("Bulk import request closed", t));
+        for (int i = 0; i < records; i++) {
+            request.write(new AccountDataObject().toJson().encode() + "\n");
+        }
+        request.end();
+        context.awaitCompletion(DEFAULT_DELAY, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void bulkImportAccountsFromJsonArray(Vertx vertx, VertxTestContext context) throws InterruptedException {
+        final AccountDataObject first = new AccountDataObject();
+        JsonArray body = new JsonArray().add(first.toJson()).add(new AccountDataObject().toJson());
+        WebClient web = WebClient.create(vertx);
+        web.post(adapterPort, SERVICE_HTTP_LISTEN_ADDRESS.value, "/" + CommonHttpAdapter.ARTIFACT_ID + "/bulk-import")
+                .sendBuffer(body.toBuffer(), response -> {
+                    httpResponseHandler(response, context, buffer -> {
+                        JsonObject summary = buffer.toJsonObject();
+                        assertThat(summary.getLong("imported")).isEqualTo(2);
+                        assertThat(summary.getJsonArray("batches").size()).isEqualTo(1);
+                        assertThat(server.getCache().get(first.getId())).isEqualTo(first);
+                    });
+                    web.close();
+                });
+        context.awaitCompletion(DEFAULT_DELAY, TimeUnit.SECONDS);
+    }
+
     @Test
     public void updateAccount(Vertx vertx, VertxTestContext context) throws InterruptedException {
         Checkpoint create = context.checkpoint();
@@ -332,7 +806,7 @@ public class AccountDataGridVerticleTest {
         options.addHeader(SERVICE_OPERATION.key, "update");
         sender.<JsonObject>send(address, createdForUpdate.toJson().put("version", UUID.randomUUID().toString()),
                 options, result -> {
-                    checkWrongResult(result, HttpResponseStatus.OK, HttpResponseStatus.INTERNAL_SERVER_ERROR, context,
+                    checkWrongResult(result, HttpResponseStatus.OK, HttpResponseStatus.PRECONDITION_FAILED, context,
                             update, rightAnswer -> {
                                 assertThat(createdForUpdate).isEqualTo(rightAnswer);
                                 LOGGER.info("Updated account is " + rightAnswer);
@@ -341,6 +815,230 @@ public class AccountDataGridVerticleTest {
         context.awaitCompletion(DEFAULT_DELAY, TimeUnit.SECONDS);
     }
 
+    @Test
+    public void createAccountFromStreamedBody(Vertx vertx, VertxTestContext context) throws InterruptedException {
+        final UUID newId = UUID.randomUUID();
+        final String body = "{\"id\":\"" + newId + "\",\"unknown\":{\"a\":[1,2]},\"credit\":true,\"amount\":10.50}";
+        WebClient web = WebClient.create(vertx);
+        web.post(adapterPort, SERVICE_HTTP_LISTEN_ADDRESS.value, "/" + CommonHttpAdapter.ARTIFACT_ID + "/")
+                .sendBuffer(Buffer.buffer(body), created -> {
+            context.verify(() -> {
+                assertThat(created.result().statusCode()).isEqualTo(HttpResponseStatus.CREATED.code());
+                AccountDataObject stored = (AccountDataObject) server.getCache().get(newId);
+                assertThat(stored.isCredit()).isTrue();
+                assertThat(stored.getAmount()).isEqualTo(new BigDecimal("10.50"));
+            });
+            web.post(adapterPort, SERVICE_HTTP_LISTEN_ADDRESS.value, "/" + CommonHttpAdapter.ARTIFACT_ID + "/")
+                    .sendBuffer(Buffer.buffer("{\"id\":\"" + newId + "\","), malformed -> {
+                context.verify(() -> {
+                    assertThat(malformed.result().statusCode()).isEqualTo(HttpResponseStatus.BAD_REQUEST.code());
+                });
+                web.close();
+                context.completeNow();
+            });
+        });
+        context.awaitCompletion(DEFAULT_DELAY, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void updateAccountWithIfMatch(Vertx vertx, VertxTestContext context) throws InterruptedException {
+        final AccountDataObject ado = new AccountDataObject();
+        final String path = "/" + CommonHttpAdapter.ARTIFACT_ID + "/" + ado.getId();
+        WebClient web = WebClient.create(vertx);
+        web.post(adapterPort, SERVICE_HTTP_LISTEN_ADDRESS.value, "/" + CommonHttpAdapter.ARTIFACT_ID + "/")
+                .sendJsonObject(ado.toJson(), created -> {
+            final String etag = created.result().getHeader("ETag");
+            final JsonObject body = ado.toJson().put("status", AccountStatusCode.ACTIVE.name());
+            body.remove("version");
+            web.put(adapterPort, SERVICE_HTTP_LISTEN_ADDRESS.value, path).putHeader("If-Match", etag)
+                    .sendJsonObject(body, updated -> {
+                context.verify(() -> {
+                    assertThat(updated.result().statusCode()).isEqualTo(HttpResponseStatus.OK.code());
+                    assertThat(updated.result().getHeader("ETag")).isNotNull().isNotEqualTo(etag);
+                });
+                web.put(adapterPort, SERVICE_HTTP_LISTEN_ADDRESS.value, path).putHeader("If-Match", etag)
+                        .sendJsonObject(body, stale -> {
+                    context.verify(() -> {
+                        assertThat(stale.result().statusCode()).isEqualTo(HttpResponseStatus.PRECONDITION_FAILED.code());
+                    });
+                    web.patch(adapterPort, SERVICE_HTTP_LISTEN_ADDRESS.value, path)
+                            .sendJsonObject(new JsonObject().put("status", AccountStatusCode.CLOSED.name()), patched -> {
+                        context.verify(() -> {
+                            assertThat(patched.result().statusCode()).isEqualTo(HttpResponseStatus.OK.code());
+                            assertThat(patched.result().bodyAsJsonObject().getJsonObject("result").getString("status"))
+                                    .isEqualTo(AccountStatusCode.CLOSED.name());
+                        });
+                        web.close();
+                        context.completeNow();
+                    });
+                });
+            });
+        });
+        context.awaitCompletion(DEFAULT_DELAY, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void concurrentCreditsAreNotLost(Vertx vertx, VertxTestContext context) throws InterruptedException {
+        final int credits = 20;
+        final AccountDataObject ado = new AccountDataObject(UUID.randomUUID(), "CREDIT-1", CurrencyCode.RUB.code,
+                false, new BigDecimal("0.00"));
+        server.getCache().put(ado.getId(), ado);
+        final String path = "/" + CommonHttpAdapter.ARTIFACT_ID + "/" + ado.getId() + "/credit";
+        final AtomicInteger succeeded = new AtomicInteger();
+        Checkpoint replies = context.checkpoint(credits);
+        WebClient web = WebClient.create(vertx);
+        for (int i = 0; i < credits; i++) {
+            web.post(adapterPort, SERVICE_HTTP_LISTEN_ADDRESS.value, path)
+                    .sendJsonObject(new JsonObject().put("amount", "1.25"), response -> {
+                if (response.succeeded() && response.result().statusCode() == HttpResponseStatus.OK.code()) {
+                    succeeded.incrementAndGet();
+                }
+                replies.flag();
+            });
+        }
+        assertThat(context.awaitCompletion(DEFAULT_DELAY, TimeUnit.SECONDS)).isTrue();
+        web.close();
+        assertThat(succeeded.get()).isEqualTo(credits);
+        AccountDataObject stored = (AccountDataObject) server.getCache().get(ado.getId());
+        assertThat(stored.getAmount()).isEqualByComparingTo(new BigDecimal("25.00"));
+    }
+
+    @Test
+    public void debitBeyondBalanceIsRefused(Vertx vertx, VertxTestContext context) throws InterruptedException {
+        final AccountDataObject ado = new AccountDataObject(UUID.randomUUID(), "DEBIT-1", CurrencyCode.RUB.code,
+                false, new BigDecimal("1.00"));
+        server.getCache().put(ado.getId(), ado);
+        final String path = "/" + CommonHttpAdapter.ARTIFACT_ID + "/" + ado.getId();
+        WebClient web = WebClient.create(vertx);
+        web.post(adapterPort, SERVICE_HTTP_LISTEN_ADDRESS.value, path + "/debit")
+                .sendJsonObject(new JsonObject().put("amount", "5.00"), insufficient -> {
+            context.verify(() -> {
+                assertThat(insufficient.result().statusCode())
+                        .isEqualTo(HttpResponseStatus.UNPROCESSABLE_ENTITY.code());
+            });
+            web.post(adapterPort, SERVICE_HTTP_LISTEN_ADDRESS.value, path + "/credit")
+                    .sendJsonObject(new JsonObject().put("amount", "5.00").put("currency", CurrencyCode.USD.name()),
+                            foreign -> {
+                context.verify(() -> {
+                    assertThat(foreign.result().statusCode())
+                            .isEqualTo(HttpResponseStatus.UNPROCESSABLE_ENTITY.code());
+                });
+                web.post(adapterPort, SERVICE_HTTP_LISTEN_ADDRESS.value, path + "/debit")
+                        .sendJsonObject(new JsonObject().put("amount", "0.40"), debited -> {
+                    context.verify(() -> {
+                        assertThat(debited.result().statusCode()).isEqualTo(HttpResponseStatus.OK.code());
+                        assertThat(new BigDecimal(debited.result().bodyAsJsonObject().getJsonObject("result")
+                                .getValue("amount").toString())).isEqualByComparingTo(new BigDecimal("0.60"));
+                        AccountDataObject stored = (AccountDataObject) server.getCache().get(ado.getId());
+                        assertThat(stored.getAmount()).isEqualByComparingTo(new BigDecimal("0.60"));
+                    });
+                    web.close();
+                    context.completeNow();
+                });
+            });
+        });
+        context.awaitCompletion(DEFAULT_DELAY, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void payrollTransfersAreBatched(Vertx vertx, VertxTestContext context) throws InterruptedException {
+        final int payments = 30;
+        final AccountDataObject source = new AccountDataObject(UUID.randomUUID(), "PAYROLL-0", CurrencyCode.RUB.code,
+                false, new BigDecimal("1000.00"));
+        final Map<UUID, AbstractDataObject> accounts = new HashMap<UUID, AbstractDataObject>();
+        accounts.put(source.getId(), source);
+        final UUID[] employees = new UUID[3];
+        for (int i = 0; i < employees.length; i++) {
+            AccountDataObject employee = new AccountDataObject(UUID.randomUUID(), "PAYROLL-" + (i + 1),
+                    CurrencyCode.RUB.code, false, new BigDecimal("0.00"));
+            employees[i] = employee.getId();
+            accounts.put(employee.getId(), employee);
+        }
+        server.getCache().putAll(accounts);
+        final AtomicInteger succeeded = new AtomicInteger();
+        Checkpoint replies = context.checkpoint(payments);
+        DeliveryOptions options = new DeliveryOptions();
+        options.addHeader(SERVICE_OPERATION.key, "transfer");
+        for (int i = 0; i < payments; i++) {
+            JsonObject transfer = new JsonObject().put("from", source.getId().toString())
+                    .put("to", employees[i % employees.length].toString()).put("amount", "10.00");
+            sender.<JsonObject>send(address, transfer, options, result -> {
+                if (result.succeeded()) {
+                    succeeded.incrementAndGet();
+                } else {
+                    LOGGER.warn("Transfer failed", result.cause());
+                }
+                replies.flag();
+            });
+        }
+        assertThat(context.awaitCompletion(DEFAULT_DELAY, TimeUnit.SECONDS)).isTrue();
+        assertThat(succeeded.get()).isEqualTo(payments);
+        assertThat(((AccountDataObject) server.getCache().get(source.getId())).getAmount())
+                .isEqualByComparingTo(new BigDecimal("700.00"));
+        for (UUID employee : employees) {
+            assertThat(((AccountDataObject) server.getCache().get(employee)).getAmount())
+                    .isEqualByComparingTo(new BigDecimal("100.00"));
+        }
+        Set<String> batches = new HashSet<String>();
+        int committed = 0;
+        for (JsonObject entry : journalOf(source.getId())) {
+            assertThat(entry.getString("state")).isEqualTo("COMMITTED");
+            batches.add(entry.getString("batch"));
+            committed++;
+        }
+        assertThat(committed).isEqualTo(payments);
+        assertThat(batches.size()).isLessThan(payments);
+    }
+
+    @Test
+    public void refusedTransferIsCompensated(Vertx vertx, VertxTestContext context) throws InterruptedException {
+        final AccountDataObject source = new AccountDataObject(UUID.randomUUID(), "COMPENSATE-0",
+                CurrencyCode.RUB.code, false, new BigDecimal("50.00"));
+        final AccountDataObject closed = new AccountDataObject(UUID.randomUUID(), "COMPENSATE-1",
+                CurrencyCode.RUB.code, false, new BigDecimal("0.00"));
+        closed.setStatus(AccountStatusCode.CLOSED.name());
+        server.getCache().put(source.getId(), source);
+        server.getCache().put(closed.getId(), closed);
+        final String path = "/" + CommonHttpAdapter.ARTIFACT_ID + "/transfer";
+        WebClient web = WebClient.create(vertx);
+        JsonObject transfer = new JsonObject().put("from", source.getId().toString())
+                .put("to", closed.getId().toString()).put("amount", "20.00");
+        web.post(adapterPort, SERVICE_HTTP_LISTEN_ADDRESS.value, path).sendJsonObject(transfer, compensated -> {
+            context.verify(() -> {
+                assertThat(compensated.result().statusCode()).isEqualTo(HttpResponseStatus.UNPROCESSABLE_ENTITY.code());
+            });
+            web.post(adapterPort, SERVICE_HTTP_LISTEN_ADDRESS.value, path)
+                    .sendJsonObject(transfer.copy().put("amount", "80.00"), insufficient -> {
+                context.verify(() -> {
+                    assertThat(insufficient.result().statusCode())
+                            .isEqualTo(HttpResponseStatus.UNPROCESSABLE_ENTITY.code());
+                });
+                web.close();
+                context.completeNow();
+            });
+        });
+        assertThat(context.awaitCompletion(DEFAULT_DELAY, TimeUnit.SECONDS)).isTrue();
+        assertThat(((AccountDataObject) server.getCache().get(source.getId())).getAmount())
+                .isEqualByComparingTo(new BigDecimal("50.00"));
+        Map<String, String> states = new HashMap<String, String>();
+        for (JsonObject entry : journalOf(source.getId())) {
+            states.put(entry.getString("amount"), entry.getString("state"));
+        }
+        assertThat(states).containsEntry("20.00", "COMPENSATED").containsEntry("80.00", "FAILED");
+    }
+
+    private static Iterable<JsonObject> journalOf(UUID source) {
+        final RemoteCache<?, ?> journal = server.getCache(TRANSFER_JOURNAL);
+        final Set<JsonObject> entries = new HashSet<JsonObject>();
+        for (Object value : journal.values()) {
+            JsonObject entry = new JsonObject((String) value);
+            if (source.toString().equals(entry.getString("from"))) {
+                entries.add(entry);
+            }
+        }
+        return entries;
+    }
+
     protected void httpResponseHandler(AsyncResult<HttpResponse<Buffer>> result, VertxTestContext context, Handler<Buffer> bodyHandler) {
         if (result.succeeded()) {
             try {
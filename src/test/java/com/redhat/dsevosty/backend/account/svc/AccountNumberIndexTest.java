@@ -0,0 +1,273 @@
+package com.redhat.dsevosty.backend.account.svc;
+
+import static com.redhat.dsevosty.common.ServiceConstant.SERVICE_DATA_OBJECT_CLASS;
+import static com.redhat.dsevosty.common.ServiceConstant.SERVICE_EVENTBUS_PREFIX;
+import static com.redhat.dsevosty.common.ServiceConstant.SERVICE_HTTP_LISTEN_ADDRESS;
+import static com.redhat.dsevosty.common.ServiceConstant.SERVICE_HTTP_LISTEN_PORT;
+import static com.redhat.dsevosty.common.ServiceConstant.SERVICE_JDG_INDEX_FIELD;
+import static com.redhat.dsevosty.common.ServiceConstant.SERVICE_JDG_REMOTE_ADDRESS;
+import static com.redhat.dsevosty.common.ServiceConstant.SERVICE_JDG_REMOTE_PORT;
+import static com.redhat.dsevosty.common.ServiceConstant.SERVICE_NAMESPACE;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.math.BigDecimal;
+import java.net.ServerSocket;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import com.redhat.dsevosty.backend.account.model.AccountDataObject;
+import com.redhat.dsevosty.backend.account.model.AccountDataObjectExternalizer;
+import com.redhat.dsevosty.backend.util.InfinispanLocalHotrodServer;
+import com.redhat.dsevosty.common.CurrencyCode;
+import com.redhat.dsevosty.common.marshall.DataObjectMarshaller;
+import com.redhat.dsevosty.common.model.AbstractDataObject;
+import com.redhat.dsevosty.common.model.DataGridReply;
+import com.redhat.dsevosty.common.model.DataGridRequest;
+import com.redhat.dsevosty.common.svc.adapter.CommonHttpAdapter;
+
+import org.infinispan.client.hotrod.RemoteCache;
+import org.infinispan.configuration.cache.ConfigurationBuilder;
+import org.infinispan.server.hotrod.configuration.HotRodServerConfigurationBuilder;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.vertx.core.DeploymentOptions;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.web.client.HttpRequest;
+import io.vertx.ext.web.client.HttpResponse;
+import io.vertx.ext.web.client.WebClient;
+import io.vertx.junit5.VertxExtension;
+import io.vertx.junit5.VertxTestContext;
+
+/*
+  Secondary index on account number: own Hot Rod server, since index cache has to be defined
+  and the default accounts of AccountDataGridVerticleTest all share one placeholder number.
+*/
+
+@ExtendWith(VertxExtension.class)
+public class AccountNumberIndexTest {
+    private static final String PUBLIC_CONTEXT_NAME = "account";
+    private static final String INDEX_CACHE_NAME = PUBLIC_CONTEXT_NAME + "-by-number";
+    private static final String PATH = "/" + CommonHttpAdapter.ARTIFACT_ID;
+    private static final int DEFAULT_DELAY = 5;
+
+    private static InfinispanLocalHotrodServer<UUID, AbstractDataObject> server;
+    private static int adapterPort = 0;
+
+    private static int freePort() throws Exception {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    @BeforeAll
+    public static void setUp(Vertx vertx, VertxTestContext context) throws Exception {
+        final int hotrodPort = freePort();
+        HotRodServerConfigurationBuilder serverConfig = new HotRodServerConfigurationBuilder()
+                .host(SERVICE_JDG_REMOTE_ADDRESS.value).defaultCacheName(PUBLIC_CONTEXT_NAME).port(hotrodPort);
+        DataObjectMarshaller marshaller = new DataObjectMarshaller().register(new AccountDataObjectExternalizer());
+        server = new InfinispanLocalHotrodServer<UUID, AbstractDataObject>(new ConfigurationBuilder().build(),
+                serverConfig.build(), marshaller);
+        server.defineCache(INDEX_CACHE_NAME);
+
+        JsonObject config = new JsonObject();
+        config.put(SERVICE_JDG_REMOTE_ADDRESS.key, SERVICE_JDG_REMOTE_ADDRESS.value);
+        config.put(SERVICE_JDG_REMOTE_PORT.key, String.valueOf(hotrodPort));
+        config.put(SERVICE_NAMESPACE.key, PUBLIC_CONTEXT_NAME);
+        config.put(SERVICE_JDG_INDEX_FIELD.key, "number");
+        config.put(SERVICE_HTTP_LISTEN_PORT.key, String.valueOf(freePort()));
+        vertx.deployVerticle(AccountDataGridVerticle.class, new DeploymentOptions().setConfig(config),
+                context.succeeding(result -> {
+                    JsonObject adapterConfig = config.copy();
+                    try {
+                        adapterPort = freePort();
+                    } catch (Exception e) {
+                        context.failNow(e);
+                        return;
+                    }
+                    adapterConfig.put(SERVICE_HTTP_LISTEN_PORT.key, String.valueOf(adapterPort));
+                    adapterConfig.put(SERVICE_DATA_OBJECT_CLASS.key, AccountDataObject.class.getName());
+                    vertx.deployVerticle(CommonHttpAdapter.class, new DeploymentOptions().setConfig(adapterConfig),
+                            context.succeeding(adapter -> context.completeNow()));
+                }));
+    }
+
+    @AfterAll
+    public static void tearDown(Vertx vertx, VertxTestContext context) throws InterruptedException {
+        vertx.close(context.succeeding(ar -> {
+            if (server != null) {
+                server.stop();
+            }
+            context.completeNow();
+        }));
+        context.awaitCompletion(DEFAULT_DELAY, TimeUnit.SECONDS);
+    }
+
+    private static CompletableFuture<HttpResponse<Buffer>> send(HttpRequest<Buffer> request, JsonObject body) {
+        CompletableFuture<HttpResponse<Buffer>> f = new CompletableFuture<HttpResponse<Buffer>>();
+        if (body == null) {
+            request.send(ar -> complete(f, ar.succeeded() ? ar.result() : null, ar.cause()));
+        } else {
+            request.sendJsonObject(body, ar -> complete(f, ar.succeeded() ? ar.result() : null, ar.cause()));
+        }
+        return f;
+    }
+
+    private static void complete(CompletableFuture<HttpResponse<Buffer>> f, HttpResponse<Buffer> response,
+            Throwable t) {
+        if (t != null) {
+            f.completeExceptionally(t);
+        } else {
+            f.complete(response);
+        }
+    }
+
+    private static RemoteCache<String, UUID> index() {
+        return server.<String, UUID>getCache(INDEX_CACHE_NAME);
+    }
+
+    private static AccountDataObject account(String number) {
+        return new AccountDataObject(UUID.randomUUID(), number, CurrencyCode.RUB.name(), false,
+                new BigDecimal("1.00"));
+    }
+
+    @Test
+    public void accountIsFoundByNumber(Vertx vertx) throws Exception {
+        WebClient web = WebClient.create(vertx);
+        final String host = SERVICE_HTTP_LISTEN_ADDRESS.value;
+        try {
+            final AccountDataObject ado = account("40817-810-0-0001-0000001");
+            HttpResponse<Buffer> created = send(web.post(adapterPort, host, PATH + "/"), ado.toJson())
+                    .get(DEFAULT_DELAY, TimeUnit.SECONDS);
+            assertThat(created.statusCode()).isEqualTo(HttpResponseStatus.CREATED.code());
+            assertThat(index().get(ado.getNumber())).isEqualTo(ado.getId());
+
+            HttpResponse<Buffer> found = send(web.get(adapterPort, host, PATH + "/by-number/" + ado.getNumber()),
+                    null).get(DEFAULT_DELAY, TimeUnit.SECONDS);
+            assertThat(found.statusCode()).isEqualTo(HttpResponseStatus.OK.code());
+            assertThat(found.bodyAsJsonObject().getJsonObject("result").getString("id"))
+                    .isEqualTo(ado.getId().toString());
+
+            HttpResponse<Buffer> missing = send(web.get(adapterPort, host, PATH + "/by-number/unknown"), null)
+                    .get(DEFAULT_DELAY, TimeUnit.SECONDS);
+            assertThat(missing.statusCode()).isEqualTo(HttpResponseStatus.NOT_FOUND.code());
+        } finally {
+            web.close();
+        }
+    }
+
+    @Test
+    public void duplicateNumberIsConflict(Vertx vertx) throws Exception {
+        WebClient web = WebClient.create(vertx);
+        final String host = SERVICE_HTTP_LISTEN_ADDRESS.value;
+        try {
+            final AccountDataObject first = account("40817-810-0-0001-0000002");
+            final AccountDataObject second = account(first.getNumber());
+            assertThat(send(web.post(adapterPort, host, PATH + "/"), first.toJson()).get(DEFAULT_DELAY,
+                    TimeUnit.SECONDS).statusCode()).isEqualTo(HttpResponseStatus.CREATED.code());
+            assertThat(send(web.post(adapterPort, host, PATH + "/"), second.toJson()).get(DEFAULT_DELAY,
+                    TimeUnit.SECONDS).statusCode()).isEqualTo(HttpResponseStatus.CONFLICT.code());
+            assertThat(server.getCache().get(second.getId())).isNull();
+            assertThat(index().get(first.getNumber())).isEqualTo(first.getId());
+        } finally {
+            web.close();
+        }
+    }
+
+    @Test
+    public void indexFollowsNumberChangeAndRemove(Vertx vertx) throws Exception {
+        WebClient web = WebClient.create(vertx);
+        final String host = SERVICE_HTTP_LISTEN_ADDRESS.value;
+        try {
+            final AccountDataObject ado = account("40817-810-0-0001-0000003");
+            final AccountDataObject taken = account("40817-810-0-0001-0000004");
+            HttpResponse<Buffer> created = send(web.post(adapterPort, host, PATH + "/"), ado.toJson())
+                    .get(DEFAULT_DELAY, TimeUnit.SECONDS);
+            send(web.post(adapterPort, host, PATH + "/"), taken.toJson()).get(DEFAULT_DELAY, TimeUnit.SECONDS);
+
+            JsonObject changed = created.bodyAsJsonObject().getJsonObject("result");
+            changed.put("number", taken.getNumber());
+            HttpResponse<Buffer> conflict = send(web.put(adapterPort, host, PATH + "/" + ado.getId())
+                    .putHeader("If-Match", created.getHeader("ETag")), changed).get(DEFAULT_DELAY, TimeUnit.SECONDS);
+            assertThat(conflict.statusCode()).isEqualTo(HttpResponseStatus.CONFLICT.code());
+
+            final String number = "40817-810-0-0001-0000005";
+            changed.put("number", number);
+            HttpResponse<Buffer> updated = send(web.put(adapterPort, host, PATH + "/" + ado.getId())
+                    .putHeader("If-Match", created.getHeader("ETag")), changed).get(DEFAULT_DELAY, TimeUnit.SECONDS);
+            assertThat(updated.statusCode()).isEqualTo(HttpResponseStatus.OK.code());
+            assertThat(send(web.get(adapterPort, host, PATH + "/by-number/" + number), null)
+                    .get(DEFAULT_DELAY, TimeUnit.SECONDS).statusCode()).isEqualTo(HttpResponseStatus.OK.code());
+            assertThat(send(web.get(adapterPort, host, PATH + "/by-number/" + ado.getNumber()), null)
+                    .get(DEFAULT_DELAY, TimeUnit.SECONDS).statusCode()).isEqualTo(HttpResponseStatus.NOT_FOUND.code());
+
+            // there is no DELETE route
+            CompletableFuture<DataGridReply> removed = new CompletableFuture<DataGridReply>();
+            vertx.eventBus().<DataGridReply>send(SERVICE_EVENTBUS_PREFIX.value + "." + PUBLIC_CONTEXT_NAME,
+                    new DataGridRequest("remove", ado.getId()), ar -> {
+                        if (ar.succeeded()) {
+                            removed.complete(ar.result().body());
+                        } else {
+                            removed.completeExceptionally(ar.cause());
+                        }
+                    });
+            assertThat(removed.get(DEFAULT_DELAY, TimeUnit.SECONDS).getStatusCode())
+                    .isEqualTo(HttpResponseStatus.NO_CONTENT.code());
+            assertThat(send(web.get(adapterPort, host, PATH + "/by-number/" + number), null)
+                    .get(DEFAULT_DELAY, TimeUnit.SECONDS).statusCode()).isEqualTo(HttpResponseStatus.NOT_FOUND.code());
+            assertThat(index().get(number)).isNull();
+        } finally {
+            web.close();
+        }
+    }
+
+    @Test
+    public void bulkImportKeepsNumbersUnique(Vertx vertx) throws Exception {
+        WebClient web = WebClient.create(vertx);
+        final String host = SERVICE_HTTP_LISTEN_ADDRESS.value;
+        try {
+            final AccountDataObject existing = account("40817-810-0-0001-0000006");
+            final AccountDataObject renamed = account("40817-810-0-0001-0000007");
+            assertThat(send(web.post(adapterPort, host, PATH + "/"), existing.toJson()).get(DEFAULT_DELAY,
+                    TimeUnit.SECONDS).statusCode()).isEqualTo(HttpResponseStatus.CREATED.code());
+            assertThat(send(web.post(adapterPort, host, PATH + "/"), renamed.toJson()).get(DEFAULT_DELAY,
+                    TimeUnit.SECONDS).statusCode()).isEqualTo(HttpResponseStatus.CREATED.code());
+
+            final AccountDataObject taken = account(existing.getNumber());
+            final AccountDataObject first = account("40817-810-0-0001-0000008");
+            final AccountDataObject twin = account(first.getNumber());
+            renamed.setNumber("40817-810-0-0001-0000009");
+            final Buffer body = Buffer.buffer();
+            for (AccountDataObject ado : new AccountDataObject[] { taken, first, twin, renamed }) {
+                body.appendString(ado.toJson().encode()).appendString("\n");
+            }
+            CompletableFuture<HttpResponse<Buffer>> f = new CompletableFuture<HttpResponse<Buffer>>();
+            web.post(adapterPort, host, PATH + "/bulk-import").putHeader("content-type", "application/x-ndjson")
+                    .sendBuffer(body, ar -> complete(f, ar.succeeded() ? ar.result() : null, ar.cause()));
+            JsonObject summary = f.get(DEFAULT_DELAY, TimeUnit.SECONDS).bodyAsJsonObject();
+            assertThat(summary.getLong("imported")).isEqualTo(2);
+            assertThat(summary.getLong("rejected")).isEqualTo(2);
+
+            assertThat(server.getCache().get(taken.getId())).isNull();
+            assertThat(server.getCache().get(twin.getId())).isNull();
+            assertThat(index().get(existing.getNumber())).isEqualTo(existing.getId());
+            assertThat(index().get(first.getNumber())).isEqualTo(first.getId());
+            assertThat(index().get(renamed.getNumber())).isEqualTo(renamed.getId());
+            // old key of the overwritten account is dropped after the reply
+            final long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(DEFAULT_DELAY);
+            while (index().get("40817-810-0-0001-0000007") != null
+                    && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            assertThat(index().get("40817-810-0-0001-0000007")).isNull();
+        } finally {
+            web.close();
+        }
+    }
+}
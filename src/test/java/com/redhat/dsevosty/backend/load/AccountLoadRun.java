@@ -0,0 +1,183 @@
+package com.redhat.dsevosty.backend.load;
+
+import static com.redhat.dsevosty.common.ServiceConstant.SERVICE_DATA_OBJECT_CLASS;
+import static com.redhat.dsevosty.common.ServiceConstant.SERVICE_HTTP_LISTEN_ADDRESS;
+import static com.redhat.dsevosty.common.ServiceConstant.SERVICE_HTTP_LISTEN_PORT;
+import static com.redhat.dsevosty.common.ServiceConstant.SERVICE_JDG_NEAR_CACHE_MAX_ENTRIES;
+import static com.redhat.dsevosty.common.ServiceConstant.SERVICE_JDG_REMOTE_ADDRESS;
+import static com.redhat.dsevosty.common.ServiceConstant.SERVICE_JDG_REMOTE_PORT;
+import static com.redhat.dsevosty.common.ServiceConstant.SERVICE_NAMESPACE;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.ServerSocket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import com.redhat.dsevosty.backend.account.model.AccountDataObject;
+import com.redhat.dsevosty.backend.account.model.AccountDataObjectExternalizer;
+import com.redhat.dsevosty.backend.account.svc.AccountDataGridVerticle;
+import com.redhat.dsevosty.backend.util.InfinispanLocalHotrodServer;
+import com.redhat.dsevosty.common.CurrencyCode;
+import com.redhat.dsevosty.common.marshall.DataObjectMarshaller;
+import com.redhat.dsevosty.common.model.AbstractDataObject;
+import com.redhat.dsevosty.common.svc.CommonVerticle;
+import com.redhat.dsevosty.common.svc.adapter.CommonHttpAdapter;
+
+import org.infinispan.configuration.cache.ConfigurationBuilder;
+import org.infinispan.server.hotrod.configuration.HotRodServerConfigurationBuilder;
+import org.junit.jupiter.api.Test;
+
+import io.vertx.core.DeploymentOptions;
+import io.vertx.core.Vertx;
+import io.vertx.core.VertxOptions;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.logging.Logger;
+import io.vertx.core.logging.LoggerFactory;
+
+/*
+  End-to-end load run: embedded Hot Rod server, AccountDataGridVerticle and CommonHttpAdapter,
+  driven over HTTP by LoadGenerator from a separate Vert.x instance. Not part of the default test run:
+    mvn -Pload test -Dload.rate=5000 -Dload.read.ratio=0.8 -Dload.distribution=uniform
+  Result is written to target/load/ (or -Dload.output=file) so runs can be compared.
+*/
+
+public class AccountLoadRun {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(AccountLoadRun.class);
+
+    private static final String PUBLIC_CONTEXT_NAME = "account";
+    private static final int PRELOAD_BATCH = 1000;
+    private static final int DEPLOY_TIMEOUT_SECONDS = 60;
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    private static List<UUID> preload(InfinispanLocalHotrodServer<UUID, AbstractDataObject> server, int keys) {
+        List<UUID> ids = new ArrayList<UUID>(keys);
+        Map<UUID, AbstractDataObject> batch = new HashMap<UUID, AbstractDataObject>();
+        for (int i = 0; i < keys; i++) {
+            AccountDataObject ado = new AccountDataObject(UUID.randomUUID(), String.format("LOAD-%08d", i),
+                    CurrencyCode.RUB.name(), false, new BigDecimal("0.00"));
+            ado.setVersion();
+            ids.add(ado.getId());
+            batch.put(ado.getId(), ado);
+            if (batch.size() == PRELOAD_BATCH || i == keys - 1) {
+                server.getCache().putAll(batch);
+                batch.clear();
+            }
+        }
+        return ids;
+    }
+
+    private static CompletableFuture<String> deploy(Vertx vertx, Class<? extends CommonVerticle> verticle,
+            JsonObject config, int instances) {
+        CompletableFuture<String> f = new CompletableFuture<String>();
+        vertx.deployVerticle(verticle, new DeploymentOptions().setConfig(config).setInstances(instances), ar -> {
+            if (ar.succeeded()) {
+                f.complete(ar.result());
+            } else {
+                f.completeExceptionally(ar.cause());
+            }
+        });
+        return f;
+    }
+
+    private static void close(Vertx vertx) throws Exception {
+        CompletableFuture<Void> f = new CompletableFuture<Void>();
+        vertx.close(ar -> f.complete(null));
+        f.get(DEPLOY_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    }
+
+    private static Path output() {
+        final String file = System.getProperty("load.output");
+        if (file != null) {
+            return Paths.get(file);
+        }
+        final String stamp = new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date());
+        return Paths.get("target", "load", "account-" + stamp + ".json");
+    }
+
+    public JsonObject run(LoadGenerator.Options options, int instances) throws Exception {
+        final int hotrodPort = freePort();
+        HotRodServerConfigurationBuilder serverConfig = new HotRodServerConfigurationBuilder()
+                .host(SERVICE_JDG_REMOTE_ADDRESS.value).defaultCacheName(PUBLIC_CONTEXT_NAME).port(hotrodPort);
+        DataObjectMarshaller marshaller = new DataObjectMarshaller().register(new AccountDataObjectExternalizer());
+        InfinispanLocalHotrodServer<UUID, AbstractDataObject> server = new InfinispanLocalHotrodServer<UUID, AbstractDataObject>(
+                new ConfigurationBuilder().build(), serverConfig.build(), marshaller);
+        final boolean nativeTransport = Boolean.getBoolean("load.native.transport");
+        Vertx service = Vertx.vertx(new VertxOptions().setPreferNativeTransport(nativeTransport));
+        Vertx load = Vertx.vertx(new VertxOptions().setPreferNativeTransport(nativeTransport));
+        try {
+            final List<UUID> ids = preload(server, options.keys);
+            LOGGER.info("Preloaded {} accounts", ids.size());
+
+            JsonObject config = new JsonObject();
+            config.put(SERVICE_JDG_REMOTE_ADDRESS.key, SERVICE_JDG_REMOTE_ADDRESS.value);
+            config.put(SERVICE_JDG_REMOTE_PORT.key, String.valueOf(hotrodPort));
+            config.put(SERVICE_NAMESPACE.key, PUBLIC_CONTEXT_NAME);
+            config.put(SERVICE_JDG_NEAR_CACHE_MAX_ENTRIES.key, System.getProperty("load.near.cache.max.entries",
+                    SERVICE_JDG_NEAR_CACHE_MAX_ENTRIES.value));
+            config.put(SERVICE_HTTP_LISTEN_PORT.key, String.valueOf(freePort()));
+            deploy(service, AccountDataGridVerticle.class, config, instances).get(DEPLOY_TIMEOUT_SECONDS,
+                    TimeUnit.SECONDS);
+
+            final int adapterPort = freePort();
+            JsonObject adapterConfig = config.copy();
+            adapterConfig.put(SERVICE_HTTP_LISTEN_PORT.key, String.valueOf(adapterPort));
+            adapterConfig.put(SERVICE_DATA_OBJECT_CLASS.key, AccountDataObject.class.getName());
+            deploy(service, CommonHttpAdapter.class, adapterConfig, instances).get(DEPLOY_TIMEOUT_SECONDS,
+                    TimeUnit.SECONDS);
+
+            CompletableFuture<JsonObject> result = new CompletableFuture<JsonObject>();
+            new LoadGenerator(load, options, SERVICE_HTTP_LISTEN_ADDRESS.value, adapterPort,
+                    "/" + CommonHttpAdapter.ARTIFACT_ID, ids).run(ar -> {
+                        if (ar.succeeded()) {
+                            result.complete(ar.result());
+                        } else {
+                            result.completeExceptionally(ar.cause());
+                        }
+                    });
+            final long timeout = options.warmupSeconds + options.durationSeconds + options.drainSeconds
+                    + DEPLOY_TIMEOUT_SECONDS;
+            return result.get(timeout, TimeUnit.SECONDS).put("instances", instances).put("nativeTransport",
+                    service.isNativeTransportEnabled());
+        } finally {
+            close(load);
+            close(service);
+            server.stop();
+        }
+    }
+
+    @Test
+    public void load() throws Exception {
+        final int instances = Integer.getInteger("load.instances", Runtime.getRuntime().availableProcessors());
+        JsonObject result = run(LoadGenerator.Options.fromSystemProperties(), instances);
+        final Path file = output();
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        Files.write(file, result.encodePrettily().getBytes(StandardCharsets.UTF_8));
+        LOGGER.info("Load result written to {}:\n{}", file.toAbsolutePath(), result.encodePrettily());
+        assertThat(result.getLong("completed")).isPositive();
+    }
+
+    public static void main(String[] args) throws Exception {
+        new AccountLoadRun().load();
+    }
+}
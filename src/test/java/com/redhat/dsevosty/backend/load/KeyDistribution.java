@@ -0,0 +1,107 @@
+package com.redhat.dsevosty.backend.load;
+
+import java.util.Random;
+
+/*
+  Picks index of the key to hit next, in [0..keys).
+  zipfian follows the YCSB generator: index 0 is the hottest key, theta 0.99 is the YCSB default.
+*/
+
+public abstract class KeyDistribution {
+
+    public static final String UNIFORM = "uniform";
+    public static final String ZIPFIAN = "zipfian";
+
+    public static final double DEFAULT_THETA = 0.99;
+
+    protected final int keys;
+
+    protected KeyDistribution(int keys) {
+        if (keys <= 0) {
+            throw new IllegalArgumentException("Key count must be positive, got " + keys);
+        }
+        this.keys = keys;
+    }
+
+    public abstract int next(Random random);
+
+    public int getKeys() {
+        return keys;
+    }
+
+    public static KeyDistribution of(String name, int keys, double theta) {
+        if (UNIFORM.equalsIgnoreCase(name)) {
+            return uniform(keys);
+        } else if (ZIPFIAN.equalsIgnoreCase(name)) {
+            return zipfian(keys, theta);
+        }
+        throw new IllegalArgumentException("Unknown key distribution " + name + ", expected " + UNIFORM + " or "
+                + ZIPFIAN);
+    }
+
+    public static KeyDistribution uniform(int keys) {
+        return new KeyDistribution(keys) {
+            @Override
+            public int next(Random random) {
+                return random.nextInt(this.keys);
+            }
+
+            @Override
+            public String toString() {
+                return UNIFORM;
+            }
+        };
+    }
+
+    public static KeyDistribution zipfian(int keys, double theta) {
+        return new Zipfian(keys, theta);
+    }
+
+    static class Zipfian extends KeyDistribution {
+
+        private final double theta;
+        private final double zetan;
+        private final double alpha;
+        private final double eta;
+        private final double halfPowTheta;
+
+        Zipfian(int keys, double theta) {
+            super(keys);
+            if (theta <= 0 || theta >= 1) {
+                throw new IllegalArgumentException("Zipfian theta must be in (0..1), got " + theta);
+            }
+            this.theta = theta;
+            this.zetan = zeta(keys, theta);
+            this.alpha = 1.0 / (1.0 - theta);
+            this.eta = (1 - Math.pow(2.0 / keys, 1 - theta)) / (1 - zeta(2, theta) / zetan);
+            this.halfPowTheta = 1.0 + Math.pow(0.5, theta);
+        }
+
+        private static double zeta(int n, double theta) {
+            double sum = 0;
+            for (int i = 1; i <= n; i++) {
+                sum += 1 / Math.pow(i, theta);
+            }
+            return sum;
+        }
+
+        @Override
+        public int next(Random random) {
+            final double u = random.nextDouble();
+            final double uz = u * zetan;
+            if (uz < 1.0) {
+                return 0;
+            }
+            if (uz < halfPowTheta) {
+                return Math.min(1, keys - 1);
+            }
+            final int index = (int) (keys * Math.pow(eta * u - eta + 1, alpha));
+            return Math.min(index, keys - 1);
+        }
+
+        @Override
+        public String toString() {
+            return ZIPFIAN + "(" + theta + ")";
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.redhat.dsevosty.backend.load;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+public class KeyDistributionTest {
+
+    private static final int KEYS = 1000;
+    private static final int SAMPLES = 100000;
+
+    private static int[] sample(KeyDistribution d) {
+        Random random = new Random(1);
+        int[] hits = new int[d.getKeys()];
+        for (int i = 0; i < SAMPLES; i++) {
+            final int k = d.next(random);
+            assertThat(k).isBetween(0, d.getKeys() - 1);
+            hits[k]++;
+        }
+        return hits;
+    }
+
+    @Test
+    public void uniformSpreadsEvenly() {
+        int[] hits = sample(KeyDistribution.uniform(KEYS));
+        for (int h : hits) {
+            assertThat(h).isBetween(SAMPLES / KEYS / 2, SAMPLES / KEYS * 2);
+        }
+    }
+
+    @Test
+    public void zipfianIsSkewedToFirstKeys() {
+        int[] hits = sample(KeyDistribution.zipfian(KEYS, KeyDistribution.DEFAULT_THETA));
+        // with theta 0.99 over 1000 keys the hottest key gets ~13%, first 10 keys ~40%
+        assertThat(hits[0]).isBetween(SAMPLES / 10, SAMPLES / 6);
+        int top = 0;
+        for (int i = 0; i < 10; i++) {
+            top += hits[i];
+        }
+        assertThat(top).isBetween(SAMPLES / 3, SAMPLES / 2);
+        assertThat(hits[0]).isGreaterThan(hits[1]).isGreaterThan(hits[10]);
+    }
+
+    @Test
+    public void unknownDistributionIsRejected() {
+        assertThatThrownBy(() -> KeyDistribution.of("gaussian", KEYS, 0.5))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
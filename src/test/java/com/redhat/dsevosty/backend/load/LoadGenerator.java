@@ -0,0 +1,257 @@
+package com.redhat.dsevosty.backend.load;
+
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import com.redhat.dsevosty.common.metrics.LatencyHistogram;
+
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.logging.Logger;
+import io.vertx.core.logging.LoggerFactory;
+import io.vertx.ext.web.client.HttpResponse;
+import io.vertx.ext.web.client.WebClient;
+import io.vertx.ext.web.client.WebClientOptions;
+
+/*
+  Open-loop HTTP load: request i is due at start + i / rate no matter how slow earlier replies are.
+  Latency is taken from the due time, so a stalled server is charged for every request
+  it delayed (coordinated omission correction). Service time, from the real send, is reported too.
+  Reads are GET /:id, writes are PATCH /:id of the amount; 412 on concurrent PATCH is a conflict, not an error.
+*/
+
+public class LoadGenerator {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(LoadGenerator.class);
+
+    private static final long TICK_MILLIS = 1;
+
+    public static class Options {
+        public int rate = 1000;
+        public int warmupSeconds = 5;
+        public int durationSeconds = 30;
+        public int drainSeconds = 10;
+        public double readRatio = 0.9;
+        public int keys = 10000;
+        public String distribution = KeyDistribution.ZIPFIAN;
+        public double theta = KeyDistribution.DEFAULT_THETA;
+        public int connections = 64;
+        public long seed = 42;
+
+        public static Options fromSystemProperties() {
+            Options o = new Options();
+            o.rate = Integer.getInteger("load.rate", o.rate);
+            o.warmupSeconds = Integer.getInteger("load.warmup.seconds", o.warmupSeconds);
+            o.durationSeconds = Integer.getInteger("load.duration.seconds", o.durationSeconds);
+            o.drainSeconds = Integer.getInteger("load.drain.seconds", o.drainSeconds);
+            o.readRatio = Double.valueOf(System.getProperty("load.read.ratio", String.valueOf(o.readRatio)));
+            o.keys = Integer.getInteger("load.keys", o.keys);
+            o.distribution = System.getProperty("load.distribution", o.distribution);
+            o.theta = Double.valueOf(System.getProperty("load.zipfian.theta", String.valueOf(o.theta)));
+            o.connections = Integer.getInteger("load.connections", o.connections);
+            o.seed = Long.getLong("load.seed", o.seed);
+            return o;
+        }
+
+        public JsonObject toJson() {
+            JsonObject json = new JsonObject();
+            json.put("rate", rate);
+            json.put("warmupSeconds", warmupSeconds);
+            json.put("durationSeconds", durationSeconds);
+            json.put("drainSeconds", drainSeconds);
+            json.put("readRatio", readRatio);
+            json.put("keys", keys);
+            json.put("distribution", distribution);
+            if (KeyDistribution.ZIPFIAN.equalsIgnoreCase(distribution)) {
+                json.put("theta", theta);
+            }
+            json.put("connections", connections);
+            json.put("seed", seed);
+            return json;
+        }
+    }
+
+    private final Vertx vertx;
+    private final Options options;
+    private final String path;
+    private final List<UUID> ids;
+    private final KeyDistribution keys;
+    private final Random random;
+    private final WebClient client;
+
+    private final LatencyHistogram all = new LatencyHistogram();
+    private final LatencyHistogram reads = new LatencyHistogram();
+    private final LatencyHistogram writes = new LatencyHistogram();
+    private final LatencyHistogram service = new LatencyHistogram();
+
+    private Handler<AsyncResult<JsonObject>> done;
+    private long timer = -1;
+    private long start;
+    private long measureStart;
+    private long end;
+    private long intervalNanos;
+    private long next;
+    private long sent;
+    private long inFlight;
+    private long maxScheduleLag;
+    private long completed;
+    private long ok;
+    private long conflicts;
+    private long errors;
+    private boolean finished;
+
+    public LoadGenerator(Vertx vertx, Options options, String host, int port, String path, List<UUID> ids) {
+        if (options.rate <= 0) {
+            throw new IllegalArgumentException("Rate must be positive, got " + options.rate);
+        }
+        if (ids.size() < options.keys) {
+            throw new IllegalArgumentException("Only " + ids.size() + " ids for " + options.keys + " keys");
+        }
+        this.vertx = vertx;
+        this.options = options;
+        this.path = path;
+        this.ids = ids;
+        this.keys = KeyDistribution.of(options.distribution, options.keys, options.theta);
+        this.random = new Random(options.seed);
+        this.client = WebClient.create(vertx, new WebClientOptions().setDefaultHost(host).setDefaultPort(port)
+                .setMaxPoolSize(options.connections).setKeepAlive(true));
+    }
+
+    /*
+      Schedule runs on one event loop, replies come back on it too, so counters need no synchronization.
+    */
+    public void run(Handler<AsyncResult<JsonObject>> done) {
+        vertx.runOnContext(v -> {
+            this.done = done;
+            intervalNanos = TimeUnit.SECONDS.toNanos(1) / options.rate;
+            start = System.nanoTime();
+            measureStart = start + TimeUnit.SECONDS.toNanos(options.warmupSeconds);
+            end = measureStart + TimeUnit.SECONDS.toNanos(options.durationSeconds);
+            next = start;
+            LOGGER.info("Starting load {} against {}, key distribution {}", options.toJson().encode(), path, keys);
+            timer = vertx.setPeriodic(TICK_MILLIS, t -> tick());
+        });
+    }
+
+    private void tick() {
+        final long now = System.nanoTime();
+        while (next <= now && next < end) {
+            issue(next, now);
+            sent++;
+            next = start + sent * intervalNanos;
+        }
+        if (next >= end && timer >= 0) {
+            vertx.cancelTimer(timer);
+            timer = -1;
+            LOGGER.info("Sent {} requests, waiting for {} in flight", sent, inFlight);
+            if (inFlight == 0) {
+                finish();
+            } else {
+                vertx.setTimer(TimeUnit.SECONDS.toMillis(options.drainSeconds), t -> finish());
+            }
+        }
+    }
+
+    private void issue(long intended, long now) {
+        maxScheduleLag = Math.max(maxScheduleLag, now - intended);
+        final boolean read = random.nextDouble() < options.readRatio;
+        final String uri = path + "/" + ids.get(keys.next(random));
+        final long sentAt = System.nanoTime();
+        inFlight++;
+        if (read) {
+            client.get(uri).send(ar -> complete(true, intended, sentAt, ar));
+        } else {
+            final String amount = String.valueOf(random.nextInt(1000000) / 100.0);
+            client.patch(uri).sendJsonObject(new JsonObject().put("amount", amount),
+                    ar -> complete(false, intended, sentAt, ar));
+        }
+    }
+
+    private void complete(boolean read, long intended, long sentAt, AsyncResult<HttpResponse<Buffer>> ar) {
+        final long now = System.nanoTime();
+        inFlight--;
+        if (finished) {
+            return;
+        }
+        if (intended >= measureStart) {
+            completed++;
+            all.record(now - intended);
+            (read ? reads : writes).record(now - intended);
+            service.record(now - sentAt);
+            if (ar.failed()) {
+                errors++;
+                LOGGER.debug("Request failed", ar.cause());
+            } else if (ar.result().statusCode() == HttpResponseStatus.PRECONDITION_FAILED.code()) {
+                conflicts++;
+            } else if (ar.result().statusCode() < HttpResponseStatus.MULTIPLE_CHOICES.code()) {
+                ok++;
+            } else {
+                errors++;
+            }
+        }
+        if (timer < 0 && inFlight == 0) {
+            finish();
+        }
+    }
+
+    private void finish() {
+        if (finished) {
+            return;
+        }
+        finished = true;
+        final long now = System.nanoTime();
+        // requests still in flight are charged with at least the time they have been waiting
+        final long unfinished = inFlight;
+        final long measured = sent - (measureStart - start + intervalNanos - 1) / intervalNanos;
+        final long lost = Math.max(0, measured - completed);
+        for (long i = 0; i < lost; i++) {
+            all.record(now - end);
+        }
+        final double seconds = options.durationSeconds;
+        JsonObject result = new JsonObject();
+        result.put("options", options.toJson());
+        result.put("sent", sent);
+        result.put("measured", measured);
+        result.put("completed", completed);
+        result.put("ok", ok);
+        result.put("conflicts", conflicts);
+        result.put("errors", errors);
+        result.put("unfinished", unfinished);
+        result.put("throughput", Math.round(completed / seconds));
+        result.put("okThroughput", Math.round(ok / seconds));
+        result.put("maxScheduleLagMicros", TimeUnit.NANOSECONDS.toMicros(maxScheduleLag));
+        JsonObject latency = new JsonObject();
+        latency.put("all", percentiles(all));
+        latency.put("read", percentiles(reads));
+        latency.put("write", percentiles(writes));
+        result.put("latency", latency);
+        result.put("serviceTime", percentiles(service));
+        client.close();
+        done.handle(Future.succeededFuture(result));
+    }
+
+    // Microseconds
+    static JsonObject percentiles(LatencyHistogram h) {
+        JsonObject json = new JsonObject();
+        json.put("count", h.getCount());
+        json.put("mean", micros(h.getMean()));
+        json.put("p50", micros(h.getValueAtQuantile(0.5)));
+        json.put("p90", micros(h.getValueAtQuantile(0.9)));
+        json.put("p99", micros(h.getValueAtQuantile(0.99)));
+        json.put("p999", micros(h.getValueAtQuantile(0.999)));
+        json.put("p9999", micros(h.getValueAtQuantile(0.9999)));
+        json.put("max", micros(h.getMax()));
+        return json;
+    }
+
+    private static long micros(long nanos) {
+        return TimeUnit.NANOSECONDS.toMicros(nanos);
+    }
+}
@@ -7,6 +7,7 @@ import org.apache.logging.log4j.Logger;
 import org.infinispan.Cache;
 import org.infinispan.client.hotrod.RemoteCache;
 import org.infinispan.client.hotrod.RemoteCacheManager;
+import org.infinispan.commons.marshall.Marshaller;
 import org.infinispan.configuration.cache.Configuration;
 import org.infinispan.configuration.cache.ConfigurationBuilder;
 import org.infinispan.manager.DefaultCacheManager;
@@ -25,6 +26,7 @@ public class InfinispanLocalHotrodServer<K, V> {
 
     // private static UUID k = UUID.randomUUID();
 
+    private Configuration cacheConfig;
     private EmbeddedCacheManager cm;
     private HotRodServer server;
     private RemoteCache<K, V> cache;
@@ -36,6 +38,12 @@ public class InfinispanLocalHotrodServer<K, V> {
     }
 
     public InfinispanLocalHotrodServer(Configuration cacheConfig, HotRodServerConfiguration serverConfig) {
+        this(cacheConfig, serverConfig, null);
+    }
+
+    public InfinispanLocalHotrodServer(Configuration cacheConfig, HotRodServerConfiguration serverConfig,
+            Marshaller marshaller) {
+        this.cacheConfig = cacheConfig;
         cm = new DefaultCacheManager(cacheConfig);
         LOGGER.info("Created CacheManager: " + cm);
         Cache<K, V> localCache = cm.getCache(serverConfig.defaultCacheName());
@@ -45,6 +53,9 @@ public class InfinispanLocalHotrodServer<K, V> {
         LOGGER.info("Started HotRod Server {}", server);
         org.infinispan.client.hotrod.configuration.ConfigurationBuilder builder = new org.infinispan.client.hotrod.configuration.ConfigurationBuilder();
         builder.addServer().host(server.getHost()).port(server.getPort());
+        if (marshaller != null) {
+            builder.marshaller(marshaller);
+        }
         rcm = new RemoteCacheManager(builder.build());
         cache = rcm.getCache(serverConfig.defaultCacheName());
         LOGGER.info("Connected to RemoteCache={} via RemoteCacheManager={}", cache.getCacheTopologyInfo(), rcm);
@@ -60,10 +71,18 @@ public class InfinispanLocalHotrodServer<K, V> {
         return cache;
     }
 
-    public RemoteCache<K, V> getCache(String name) {
+    // other caches hold other types, like an index of String to UUID
+    public <K2, V2> RemoteCache<K2, V2> getCache(String name) {
         return rcm.getCache(name);
     }
 
+    // Hot Rod serves only defined caches
+    public void defineCache(String name) {
+        cm.defineConfiguration(name, cacheConfig);
+        cm.getCache(name);
+        LOGGER.info("Defined Cache={}", name);
+    }
+
     public void stop() {
         cache.getRemoteCacheManager().stop();
         server.stop();
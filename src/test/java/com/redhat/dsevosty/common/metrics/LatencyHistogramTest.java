@@ -0,0 +1,47 @@
+package com.redhat.dsevosty.common.metrics;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+import org.junit.jupiter.api.Test;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void bucketBoundsKeepRelativeError() {
+        for (long v = 0; v < 10_000_000L; v = v * 3 / 2 + 1) {
+            final long upper = LatencyHistogram.valueOf(LatencyHistogram.bucketOf(v));
+            assertThat(upper).isGreaterThanOrEqualTo(v);
+            assertThat(upper - v).isLessThanOrEqualTo(Math.max(0, v / 64));
+        }
+        assertThat(LatencyHistogram.valueOf(LatencyHistogram.bucketOf(Long.MAX_VALUE))).isEqualTo(Long.MAX_VALUE);
+    }
+
+    @Test
+    public void quantilesOfUniformValues() {
+        LatencyHistogram h = new LatencyHistogram();
+        for (long v = 1; v <= 10_000; v++) {
+            h.record(v * 1000);
+        }
+        assertThat(h.getCount()).isEqualTo(10_000);
+        assertThat(h.getMax()).isEqualTo(10_000_000);
+        assertThat((double) h.getValueAtQuantile(0.5)).isCloseTo(5_000_000, within(5_000_000 / 64.0));
+        assertThat((double) h.getValueAtQuantile(0.99)).isCloseTo(9_900_000, within(9_900_000 / 64.0));
+        assertThat(h.getValueAtQuantile(1.0)).isEqualTo(10_000_000);
+        h.reset();
+        assertThat(h.getCount()).isZero();
+        assertThat(h.getValueAtQuantile(0.99)).isZero();
+    }
+
+    @Test
+    public void timerStopsOnce() {
+        OperationMetrics m = new OperationMetrics();
+        OperationMetrics.Timer timer = m.start();
+        assertThat(m.getInFlight()).isEqualTo(1);
+        timer.stop(true);
+        timer.stop(false);
+        assertThat(m.getInFlight()).isZero();
+        assertThat(m.getErrors()).isEqualTo(1);
+        assertThat(m.getLatency().getCount()).isEqualTo(1);
+    }
+}
@@ -0,0 +1,62 @@
+package com.redhat.dsevosty.common.model;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.math.BigDecimal;
+
+import com.redhat.dsevosty.common.CurrencyCode;
+
+import org.junit.jupiter.api.Test;
+
+public class MoneyTest {
+
+    @Test
+    public void textIsParsedAndFormattedExactly() {
+        assertThat(Money.parse("10.5", 2)).isEqualTo(1050);
+        assertThat(Money.parse("-0.07", 2)).isEqualTo(-7);
+        assertThat(Money.parse(".5", 2)).isEqualTo(50);
+        assertThat(Money.parse("+3", 2)).isEqualTo(300);
+        assertThat(Money.parse("12.3400", 2)).isEqualTo(1234);
+        assertThat(Money.parse("1.5E3", 2)).isEqualTo(150000);
+        assertThat(Money.parse("1234.5e-1", 2)).isEqualTo(12345);
+        assertThat(Money.parse("-120E-3", 2)).isEqualTo(-12);
+        assertThat(Money.parse("0.00E999999999", 2)).isEqualTo(0);
+        assertThat(Money.parse("-92233720368547758.08", 2)).isEqualTo(Long.MIN_VALUE);
+        assertThat(Money.format(1050, 2)).isEqualTo("10.50");
+        assertThat(Money.format(-7, 2)).isEqualTo("-0.07");
+        assertThat(Money.format(0, 2)).isEqualTo("0.00");
+        assertThat(Money.format(42, 0)).isEqualTo("42");
+        for (long minorUnits : new long[] { 0, 1, -1, 99, -100, 123456789, Long.MAX_VALUE, Long.MIN_VALUE }) {
+            final String text = Money.format(minorUnits, 2);
+            assertThat(Money.parse(text, 2)).isEqualTo(minorUnits);
+            assertThat(new BigDecimal(text)).isEqualTo(BigDecimal.valueOf(minorUnits, 2));
+        }
+    }
+
+    @Test
+    public void inexactOrOversizedAmountIsRefused() {
+        for (String text : new String[] { "0.001", "92233720368547758.08", "1e-3", "", "-", ".", "1.2.3", "1,5",
+                "1E999999999", "1E-999999999", "1E99999999999999999999", "1e", "1e+", "e5", "1e2.5" }) {
+            assertThatThrownBy(() -> Money.parse(text, 2)).as(text).isInstanceOf(NumberFormatException.class);
+        }
+        assertThatThrownBy(() -> new Money(new BigDecimal("0.001"), CurrencyCode.RUB))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> Money.rescale(105, 2, 1)).isInstanceOf(ArithmeticException.class);
+        assertThat(Money.rescale(150, 2, 1)).isEqualTo(15);
+    }
+
+    @Test
+    public void arithmeticIsCheckedForOverflowAndCurrency() {
+        final Money ten = Money.parse("10.00", CurrencyCode.RUB);
+        final Money any = new Money(250, null);
+        assertThat(ten.plus(any)).isEqualTo(new Money(1250, CurrencyCode.RUB));
+        assertThat(ten.minus(any).toPlainString()).isEqualTo("7.50");
+        assertThat(ten.compareTo(any)).isPositive();
+        assertThat(ten.getAmount()).isEqualTo(new BigDecimal("10.00"));
+        assertThatThrownBy(() -> ten.plus(new Money(1, CurrencyCode.USD)))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new Money(Long.MAX_VALUE, CurrencyCode.RUB).plus(new Money(1, CurrencyCode.RUB)))
+                .isInstanceOf(ArithmeticException.class);
+    }
+}
@@ -2,6 +2,8 @@ package com.redhat.dsevosty.common.svc;
 
 import static com.redhat.dsevosty.common.ServiceConstant.SERVICE_HTTP_LISTEN_ADDRESS;
 import static com.redhat.dsevosty.common.ServiceConstant.SERVICE_HTTP_LISTEN_PORT;
+import static com.redhat.dsevosty.common.ServiceConstant.SERVICE_HTTP_REUSE_PORT;
+import static com.redhat.dsevosty.common.ServiceConstant.SERVICE_HTTP_TCP_QUICK_ACK;
 import static org.assertj.core.api.Assertions.assertThat;
 
 import java.net.ServerSocket;
@@ -9,6 +11,7 @@ import java.util.concurrent.TimeUnit;
 
 import org.junit.jupiter.api.AfterAll;
 import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assumptions;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -19,8 +22,12 @@ import io.vertx.core.AsyncResult;
 import io.vertx.core.DeploymentOptions;
 import io.vertx.core.Handler;
 import io.vertx.core.Vertx;
+import io.vertx.core.VertxOptions;
 import io.vertx.core.buffer.Buffer;
 import io.vertx.core.eventbus.Message;
+import io.vertx.core.http.HttpClient;
+import io.vertx.core.http.HttpClientOptions;
+import io.vertx.core.http.HttpVersion;
 import io.vertx.core.json.JsonObject;
 import io.vertx.core.logging.Logger;
 import io.vertx.core.logging.LoggerFactory;
@@ -198,6 +205,53 @@ public class CommonVerticleTest {
         context.awaitCompletion(DEFAULT_DELAY, TimeUnit.SECONDS);
     }
 
+    @Test
+    public void serveHttp2ClearText(Vertx vertx, VertxTestContext context) throws InterruptedException {
+        HttpClient client = vertx.createHttpClient(
+                new HttpClientOptions().setProtocolVersion(HttpVersion.HTTP_2).setHttp2ClearTextUpgrade(false));
+        client.getNow(httpPort, SERVICE_HTTP_LISTEN_ADDRESS.value, "/common/info", response -> {
+            context.verify(() -> {
+                assertThat(response.version()).isEqualTo(HttpVersion.HTTP_2);
+                assertThat(response.statusCode()).isEqualTo(HttpResponseStatus.OK.code());
+            });
+            client.close();
+            context.completeNow();
+        });
+        context.awaitCompletion(DEFAULT_DELAY, TimeUnit.SECONDS);
+    }
+
+    /*
+      Two Vert.x instances, like two processes, can bind one port only with SO_REUSEPORT,
+      which needs the native transport.
+    */
+    @Test
+    public void reusePortWithNativeTransport(VertxTestContext context) throws Exception {
+        Vertx first = Vertx.vertx(new VertxOptions().setPreferNativeTransport(true));
+        Vertx second = Vertx.vertx(new VertxOptions().setPreferNativeTransport(true));
+        try {
+            Assumptions.assumeTrue(first.isNativeTransportEnabled(), "native transport is not available");
+            final int port;
+            try (ServerSocket socket = new ServerSocket(0)) {
+                port = socket.getLocalPort();
+            }
+            JsonObject config = new JsonObject().put(SERVICE_HTTP_LISTEN_PORT.key, String.valueOf(port))
+                    .put(SERVICE_HTTP_REUSE_PORT.key, "true").put(SERVICE_HTTP_TCP_QUICK_ACK.key, "true");
+            DeploymentOptions options = new DeploymentOptions().setConfig(config);
+            first.deployVerticle(MyCommonVerticle.class, options, context.succeeding(
+                    one -> second.deployVerticle(MyCommonVerticle.class, options, context.succeeding(two -> {
+                        WebClient client = WebClient.create(second);
+                        client.get(port, SERVICE_HTTP_LISTEN_ADDRESS.value, "/common/management/nativetransport")
+                                .send(response -> httpResponseHandler(response, context, body -> {
+                                    assertThat(body.toJsonObject().getBoolean("result")).isTrue();
+                                }));
+                    }))));
+            assertThat(context.awaitCompletion(DEFAULT_DELAY, TimeUnit.SECONDS)).isTrue();
+        } finally {
+            first.close();
+            second.close();
+        }
+    }
+
     public static class MyCommonVerticle extends CommonVerticle {
         // public static final String PACKAGE_NAME = MyCommonVerticle.class.getPackage().getName();
         public static final String ARTIFACT_ID = "common";
@@ -0,0 +1,66 @@
+package com.redhat.dsevosty.common.svc;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import io.vertx.core.Context;
+import io.vertx.core.Vertx;
+
+public class MutationQueueTest {
+
+    private Vertx vertx;
+    private Context context;
+
+    @BeforeEach
+    public void setUp() {
+        vertx = Vertx.vertx();
+        context = vertx.getOrCreateContext();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        vertx.close();
+    }
+
+    @Test
+    public void tasksOfOneKeyRunOneAfterAnother() throws InterruptedException {
+        MutationQueue<String> queue = new MutationQueue<String>(1);
+        List<String> started = new CopyOnWriteArrayList<String>();
+        AtomicReference<Runnable> first = new AtomicReference<Runnable>();
+        CountDownLatch second = new CountDownLatch(1);
+        assertThat(queue.submit("a", context, done -> {
+            started.add("a1");
+            first.set(done);
+        })).isTrue();
+        assertThat(queue.submit("a", context, done -> {
+            started.add("a2");
+            done.run();
+            second.countDown();
+        })).isTrue();
+        // one task is waiting already
+        assertThat(queue.submit("a", context, done -> started.add("a3"))).isFalse();
+        assertThat(queue.submit("b", context, done -> {
+            started.add("b1");
+            done.run();
+        })).isTrue();
+        assertThat(started).containsExactly("a1", "b1");
+        first.get().run();
+        // callback run twice must not advance the queue twice
+        first.get().run();
+        assertThat(second.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(started).containsExactly("a1", "b1", "a2");
+        assertThat(queue.getSubmitted()).isEqualTo(3);
+        assertThat(queue.getQueued()).isEqualTo(1);
+        assertThat(queue.getRejected()).isEqualTo(1);
+        assertThat(queue.getKeys()).isZero();
+    }
+}
@@ -0,0 +1,44 @@
+package com.redhat.dsevosty.common.svc;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+public class NearCacheTest {
+
+    @Test
+    public void lruEvictsLeastRecentlyUsed() {
+        NearCache<String, String> near = new NearCache<String, String>(2, NearCache.EvictionPolicy.LRU);
+        near.put("a", "A", near.stamp());
+        near.put("b", "B", near.stamp());
+        assertThat(near.get("a")).isEqualTo("A");
+        near.put("c", "C", near.stamp());
+        assertThat(near.get("b")).isNull();
+        assertThat(near.get("a")).isEqualTo("A");
+        assertThat(near.getEvictions()).isEqualTo(1);
+        assertThat(near.getHits()).isEqualTo(2);
+        assertThat(near.getMisses()).isEqualTo(1);
+    }
+
+    @Test
+    public void fifoEvictsFirstInserted() {
+        NearCache<String, String> near = new NearCache<String, String>(2, NearCache.EvictionPolicy.FIFO);
+        near.put("a", "A", near.stamp());
+        near.put("b", "B", near.stamp());
+        near.get("a");
+        near.put("c", "C", near.stamp());
+        assertThat(near.get("a")).isNull();
+        assertThat(near.size()).isEqualTo(2);
+    }
+
+    @Test
+    public void fillIsRejectedAfterConcurrentInvalidation() {
+        NearCache<String, String> near = new NearCache<String, String>(10, NearCache.EvictionPolicy.LRU);
+        near.put("a", "A", near.stamp());
+        final long stamp = near.stamp();
+        near.invalidate("a");
+        assertThat(near.put("a", "stale", stamp)).isFalse();
+        assertThat(near.get("a")).isNull();
+        assertThat(near.getInvalidations()).isEqualTo(1);
+    }
+}
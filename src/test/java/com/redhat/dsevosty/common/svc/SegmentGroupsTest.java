@@ -0,0 +1,45 @@
+package com.redhat.dsevosty.common.svc;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+public class SegmentGroupsTest {
+
+    @Test
+    public void ownedSegmentsAreSplitIntoGroups() {
+        Map<String, Set<Integer>> owners = new HashMap<String, Set<Integer>>();
+        // replicas own the same segment, it is still scanned once
+        owners.put("a", new HashSet<Integer>(Arrays.asList(0, 1, 2, 3, 4)));
+        owners.put("b", new HashSet<Integer>(Arrays.asList(4, 5, 6, 7, 8, 9)));
+        List<Set<Integer>> groups = DataGridVerticle.segmentGroups(owners, 4);
+        assertThat(groups).hasSize(4);
+        Set<Integer> all = new HashSet<Integer>();
+        int total = 0;
+        for (Set<Integer> group : groups) {
+            assertThat(group.size()).isBetween(2, 3);
+            all.addAll(group);
+            total += group.size();
+        }
+        assertThat(total).isEqualTo(10);
+        assertThat(all).hasSize(10);
+    }
+
+    @Test
+    public void cacheWithoutSegmentsIsOneGroup() {
+        assertThat(DataGridVerticle.segmentGroups(null, 4)).containsExactly((Set<Integer>) null);
+        assertThat(DataGridVerticle.segmentGroups(new HashMap<String, Set<Integer>>(), 4))
+                .containsExactly((Set<Integer>) null);
+        Map<String, Set<Integer>> owners = new HashMap<String, Set<Integer>>();
+        owners.put("a", new HashSet<Integer>(Arrays.asList(0, 1, 2)));
+        assertThat(DataGridVerticle.segmentGroups(owners, 1)).containsExactly((Set<Integer>) null);
+        assertThat(DataGridVerticle.segmentGroups(owners, 8)).hasSize(3);
+    }
+}
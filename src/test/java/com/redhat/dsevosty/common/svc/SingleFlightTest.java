@@ -0,0 +1,66 @@
+package com.redhat.dsevosty.common.svc;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+public class SingleFlightTest {
+
+    @Test
+    public void concurrentCallsForOneKeyShareResult() {
+        SingleFlight<String, String> flight = new SingleFlight<String, String>();
+        CompletableFuture<String> remote = new CompletableFuture<String>();
+        AtomicInteger calls = new AtomicInteger();
+        CompletableFuture<String> first = flight.execute("a", () -> {
+            calls.incrementAndGet();
+            return remote;
+        });
+        CompletableFuture<String> second = flight.execute("a", () -> {
+            calls.incrementAndGet();
+            return new CompletableFuture<String>();
+        });
+        CompletableFuture<String> other = flight.execute("b", () -> CompletableFuture.completedFuture("B"));
+        assertThat(calls.get()).isEqualTo(1);
+        assertThat(other.join()).isEqualTo("B");
+        assertThat(second.isDone()).isFalse();
+        remote.complete("A");
+        assertThat(first.join()).isEqualTo("A");
+        assertThat(second.join()).isEqualTo("A");
+        assertThat(flight.getCalls()).isEqualTo(2);
+        assertThat(flight.getCoalesced()).isEqualTo(1);
+        assertThat(flight.getInFlight()).isZero();
+        // completed call is not reused
+        assertThat(flight.execute("a", () -> CompletableFuture.completedFuture("A2")).join()).isEqualTo("A2");
+    }
+
+    @Test
+    public void failureIsSharedAndNotKept() {
+        SingleFlight<String, String> flight = new SingleFlight<String, String>();
+        CompletableFuture<String> remote = new CompletableFuture<String>();
+        CompletableFuture<String> first = flight.execute("a", () -> remote);
+        CompletableFuture<String> second = flight.execute("a", () -> remote);
+        remote.completeExceptionally(new IllegalStateException("down"));
+        assertThat(first.isCompletedExceptionally()).isTrue();
+        assertThat(second.isCompletedExceptionally()).isTrue();
+        CompletableFuture<String> thrown = flight.execute("a", () -> {
+            throw new IllegalStateException("no cache");
+        });
+        assertThat(thrown.isCompletedExceptionally()).isTrue();
+        assertThat(flight.getInFlight()).isZero();
+    }
+
+    @Test
+    public void callAfterForgetIsNotCoalesced() {
+        SingleFlight<String, String> flight = new SingleFlight<String, String>();
+        CompletableFuture<String> beforeWrite = new CompletableFuture<String>();
+        flight.execute("a", () -> beforeWrite);
+        flight.forget("a");
+        CompletableFuture<String> afterWrite = flight.execute("a", () -> CompletableFuture.completedFuture("new"));
+        beforeWrite.complete("old");
+        assertThat(afterWrite.join()).isEqualTo("new");
+        assertThat(flight.getCoalesced()).isZero();
+    }
+}
@@ -0,0 +1,165 @@
+package com.redhat.dsevosty.common.svc;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.redhat.dsevosty.backend.account.model.AccountDataObject;
+import com.redhat.dsevosty.common.CurrencyCode;
+import com.redhat.dsevosty.common.metrics.ServiceMetrics;
+import com.redhat.dsevosty.common.model.AbstractDataObject;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.core.eventbus.ReplyException;
+import io.vertx.core.eventbus.ReplyFailure;
+
+public class WriteBehindTest {
+
+    private Vertx vertx;
+    private ServiceMetrics metrics;
+    private final Map<UUID, AbstractDataObject> store = new HashMap<UUID, AbstractDataObject>();
+    private final AtomicInteger flushes = new AtomicInteger();
+
+    // in-memory modifyDataObject
+    private final WriteBehind.Flusher flusher = (id, mutation, handler) -> {
+        flushes.incrementAndGet();
+        final AbstractDataObject current = store.get(id);
+        if (current == null) {
+            handler.handle(Future.succeededFuture());
+            return;
+        }
+        try {
+            final AbstractDataObject changed = mutation.apply(current);
+            store.put(id, changed);
+            handler.handle(Future.succeededFuture(changed));
+        } catch (IllegalStateException e) {
+            handler.handle(Future.failedFuture(new ReplyException(ReplyFailure.RECIPIENT_FAILURE,
+                    HttpResponseStatus.UNPROCESSABLE_ENTITY.code(), e.getMessage())));
+        }
+    };
+
+    @BeforeEach
+    public void setUp() {
+        vertx = Vertx.vertx();
+        metrics = ServiceMetrics.forService("write-behind-test-" + UUID.randomUUID());
+    }
+
+    @AfterEach
+    public void tearDown() {
+        vertx.close();
+    }
+
+    private static AbstractDataObject add(AbstractDataObject ado, String amount) {
+        final AccountDataObject account = (AccountDataObject) ado;
+        final BigDecimal balance = account.getAmount().add(new BigDecimal(amount));
+        if (balance.signum() < 0) {
+            throw new IllegalStateException("Insufficient funds");
+        }
+        return account.withAmount(balance);
+    }
+
+    @Test
+    public void changesOfOneIdAreFlushedTogether() throws Exception {
+        final AccountDataObject account = new AccountDataObject(UUID.randomUUID(), "WB-1", CurrencyCode.RUB.code,
+                false, new BigDecimal("1.00"));
+        store.put(account.getId(), account);
+        final int changes = 10;
+        final List<AsyncResult<AbstractDataObject>> results = new CopyOnWriteArrayList<AsyncResult<AbstractDataObject>>();
+        final CountDownLatch replied = new CountDownLatch(changes + 1);
+        final AtomicInteger pending = new AtomicInteger(-1);
+        vertx.runOnContext(v -> {
+            WriteBehind wb = new WriteBehind(vertx, flusher, metrics, 50, 100);
+            for (int i = 0; i < changes; i++) {
+                wb.submit(account.getId(), ado -> add(ado, "2.00"), ar -> {
+                    results.add(ar);
+                    replied.countDown();
+                });
+            }
+            // would take the balance below zero after the credits above
+            wb.submit(account.getId(), ado -> add(ado, "-100.00"), ar -> {
+                results.add(ar);
+                replied.countDown();
+            });
+            pending.set(wb.getPending());
+        });
+        assertThat(replied.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(pending.get()).isEqualTo(changes + 1);
+        assertThat(flushes.get()).isEqualTo(1);
+        assertThat(((AccountDataObject) store.get(account.getId())).getAmount())
+                .isEqualByComparingTo(new BigDecimal("21.00"));
+        assertThat(results.stream().filter(AsyncResult::succeeded).count()).isEqualTo(changes);
+        assertThat(results.stream().filter(AsyncResult::failed).map(ar -> ((ReplyException) ar.cause()).failureCode()))
+                .containsExactly(HttpResponseStatus.UNPROCESSABLE_ENTITY.code());
+        assertThat(metrics.sizes("writeBehindFlush").getMax()).isEqualTo(changes + 1);
+        assertThat(metrics.get(ServiceMetrics.HOP_WRITE_BEHIND, "flush").getLatency().getCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void failingChangeIsLeftOutOfTheFlush() throws Exception {
+        final AccountDataObject account = new AccountDataObject(UUID.randomUUID(), "WB-3", CurrencyCode.RUB.code,
+                false, new BigDecimal("0.00"));
+        store.put(account.getId(), account);
+        final List<AsyncResult<AbstractDataObject>> results = new CopyOnWriteArrayList<AsyncResult<AbstractDataObject>>();
+        final CountDownLatch replied = new CountDownLatch(2);
+        vertx.runOnContext(v -> {
+            WriteBehind wb = new WriteBehind(vertx, flusher, metrics, 10, 100);
+            wb.submit(account.getId(), ado -> {
+                throw new ArithmeticException("long overflow");
+            }, ar -> {
+                results.add(ar);
+                replied.countDown();
+            });
+            wb.submit(account.getId(), ado -> add(ado, "3.00"), ar -> {
+                results.add(ar);
+                replied.countDown();
+            });
+        });
+        assertThat(replied.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(((AccountDataObject) store.get(account.getId())).getAmount())
+                .isEqualByComparingTo(new BigDecimal("3.00"));
+        assertThat(results.stream().filter(AsyncResult::failed).map(ar -> ((ReplyException) ar.cause()).failureCode()))
+                .containsExactly(HttpResponseStatus.INTERNAL_SERVER_ERROR.code());
+    }
+
+    @Test
+    public void maxChangesAndFlushAllDoNotWaitForWindow() throws Exception {
+        final AccountDataObject account = new AccountDataObject(UUID.randomUUID(), "WB-2", CurrencyCode.RUB.code,
+                false, new BigDecimal("0.00"));
+        store.put(account.getId(), account);
+        final CountDownLatch flushed = new CountDownLatch(1);
+        final AtomicInteger pending = new AtomicInteger(-1);
+        final AtomicInteger flushesBeforeStop = new AtomicInteger(-1);
+        vertx.runOnContext(v -> {
+            // window is far longer than the test
+            WriteBehind wb = new WriteBehind(vertx, flusher, metrics, 60000, 3);
+            for (int i = 0; i < 4; i++) {
+                // acked already, no handler
+                wb.submit(account.getId(), ado -> add(ado, "1.00"), null);
+            }
+            flushesBeforeStop.set(flushes.get());
+            pending.set(wb.getPending());
+            wb.flushAll(done -> flushed.countDown());
+        });
+        assertThat(flushed.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(flushesBeforeStop.get()).isEqualTo(1);
+        assertThat(pending.get()).isEqualTo(1);
+        assertThat(flushes.get()).isEqualTo(2);
+        assertThat(((AccountDataObject) store.get(account.getId())).getAmount())
+                .isEqualByComparingTo(new BigDecimal("4.00"));
+    }
+}